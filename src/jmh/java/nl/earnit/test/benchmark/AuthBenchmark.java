@@ -0,0 +1,81 @@
+package nl.earnit.test.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import nl.earnit.Auth;
+import nl.earnit.AuthenticationCache;
+import nl.earnit.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issuing and validating tokens and checking passwords. Needs {@code JWT_SECRET} and
+ * {@code JWT_ISSUER=earnit}, which the jmh profile sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthBenchmark {
+    private User user;
+    private String token;
+    private String hashedPassword;
+    private JWTVerifier verifier;
+
+    @Setup
+    public void setup() {
+        user = new User(UUID.randomUUID().toString(), "student@example.com", "John", "Smith", null,
+            "STUDENT", null, "Street 2 7522AZ", "NL000099998B57", "12345678");
+        long expiresAt = System.currentTimeMillis() + 24 * 60 * 60 * 1000L;
+        token = Auth.createJWT(user, null, expiresAt);
+
+        // Validated tokens are served from the cache, as after the first request of a session
+        AuthenticationCache.put(token, user, expiresAt);
+
+        // Cost 12, as every password is hashed with
+        hashedPassword = Auth.hashPassword("password");
+
+        verifier = JWT.require(Algorithm.HMAC256(System.getenv("JWT_SECRET"))).build();
+    }
+
+    @Benchmark
+    public String createJWT() {
+        return Auth.createJWT(user, null, System.currentTimeMillis() + 60_000);
+    }
+
+    @Benchmark
+    public User validateJWT() {
+        return Auth.validateJWT(token);
+    }
+
+    /**
+     * The signature check {@link Auth#validateJWT(String)} does for a token it has not seen
+     * before, without the user lookup that follows it.
+     */
+    @Benchmark
+    public DecodedJWT verifyJWT() {
+        return verifier.verify(token);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, time = 2)
+    public boolean validatePassword() {
+        return Auth.validatePassword("password", hashedPassword);
+    }
+}
@@ -0,0 +1,40 @@
+package nl.earnit.test.benchmark;
+
+import nl.earnit.helpers.InvoicePDFHandler;
+import nl.earnit.helpers.InvoicePDFHandler.InvoiceInformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a single invoice to pdf, without the invoice cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceBenchmark {
+    private final InvoiceInformation invoice = new InvoiceInformation("TestCompany",
+        "Finkenstraat 42, 7544NM Amsterdam", "NL845838", "0001", "01-01-2024", "John Smith",
+        "Street 2 7522AZ", "12345678", "NL000099998B57", "Developer", "Writing code", 12, 2024,
+        40 * 60, 1500);
+
+    @Benchmark
+    public byte[] createInvoiceStream() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(32 * 1024);
+        InvoicePDFHandler.createInvoiceStream(output, invoice);
+        return output.toByteArray();
+    }
+}
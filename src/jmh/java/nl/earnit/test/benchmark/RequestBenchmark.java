@@ -0,0 +1,72 @@
+package nl.earnit.test.benchmark;
+
+import jakarta.ws.rs.BadRequestException;
+import nl.earnit.dao.OrderBy;
+import nl.earnit.exceptions.InvalidOrderByException;
+import nl.earnit.helpers.RequestHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating request parameters: order by queries and uuids, done for nearly every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBenchmark {
+    /**
+     * The columns worked weeks can be ordered by, as in WorkedWeekDAO.
+     */
+    private final OrderBy orderBy = new OrderBy(Map.ofEntries(
+        Map.entry("worked_week.id", "ww.id"),
+        Map.entry("worked_week.year", "ww.year"),
+        Map.entry("worked_week.week", "ww.week"),
+        Map.entry("worked_week.status", "ww.status"),
+        Map.entry("worked_week.total_hours", "w.minutes"),
+        Map.entry("user_contract.hourly_wage", "uc.hourly_wage"),
+        Map.entry("user.first_name", "u.first_name"),
+        Map.entry("user.last_name", "u.last_name"),
+        Map.entry("contract.role", "c.role"),
+        Map.entry("company.name", "cy.name")));
+
+    private final String uuid = UUID.randomUUID().toString();
+
+    @Benchmark
+    public String orderBySingleColumn() throws InvalidOrderByException {
+        return orderBy.getSQLOrderBy("worked_week.week:asc", true);
+    }
+
+    @Benchmark
+    public String orderByColumns() throws InvalidOrderByException {
+        return orderBy.getSQLOrderBy("worked_week.year:desc,worked_week.week:desc,user.last_name:asc,hours.day:asc", true);
+    }
+
+    @Benchmark
+    public void validateUUID() {
+        RequestHelper.validateUUID(uuid);
+    }
+
+    @Benchmark
+    public boolean validateInvalidUUID() {
+        try {
+            RequestHelper.validateUUID("not-a-uuid");
+            return true;
+        } catch (BadRequestException e) {
+            return false;
+        }
+    }
+}
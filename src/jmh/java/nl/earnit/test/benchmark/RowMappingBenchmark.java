@@ -0,0 +1,59 @@
+package nl.earnit.test.benchmark;
+
+import nl.earnit.helpers.JsonRowDecoder;
+import nl.earnit.models.Worked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding the aggregated hours of a worked week, the parsing done by
+ * {@code WorkedWeekDAO.getWorkedWeekFromRow} for every row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+    @Param({"7", "50"})
+    private int rows;
+
+    @Param({"20", "200"})
+    private int noteLength;
+
+    private String hours;
+
+    @Setup
+    public void setup() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            String note = "did some work, \"quoted\", ".repeat(noteLength / 25 + 1).substring(0, noteLength);
+
+            if (i > 0) json.append(",");
+            json.append("""
+                {"id" : "%s", "workedWeekId" : "%s", "day" : %d, "minutes" : %d, "work" : "%s", "suggestion" : null}"""
+                .formatted(UUID.randomUUID(), UUID.randomUUID(), i % 7, 60 * i, note.replace("\"", "\\\"")));
+        }
+        hours = json.append("]").toString();
+    }
+
+    @Benchmark
+    public List<Worked> decodeHours() throws SQLException {
+        return JsonRowDecoder.decodeList(hours, Worked.class);
+    }
+}
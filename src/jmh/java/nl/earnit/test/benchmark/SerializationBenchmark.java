@@ -0,0 +1,81 @@
+package nl.earnit.test.benchmark;
+
+import com.fasterxml.jackson.jakarta.rs.json.JacksonJsonProvider;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import nl.earnit.dto.contracts.ContractDTO;
+import nl.earnit.dto.user.UserResponseDTO;
+import nl.earnit.dto.workedweek.WorkedWeekDTO;
+import nl.earnit.models.Company;
+import nl.earnit.models.UserContract;
+import nl.earnit.models.Worked;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing lists of worked weeks as json, through the same provider Jersey uses for
+ * responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    private static final GenericType<List<WorkedWeekDTO>> TYPE = new GenericType<>() {};
+
+    @Param({"1", "50", "1000"})
+    private int weeks;
+
+    private final JacksonJsonProvider provider = new JacksonJsonProvider();
+    private List<WorkedWeekDTO> workedWeeks;
+
+    @Setup
+    public void setup() {
+        workedWeeks = new ArrayList<>();
+        for (int i = 0; i < weeks; i++) {
+            String id = UUID.randomUUID().toString();
+            String userContractId = UUID.randomUUID().toString();
+
+            List<Worked> hours = new ArrayList<>();
+            for (int day = 0; day < 5; day++) {
+                hours.add(new Worked(UUID.randomUUID().toString(), id, day, 240, "Writing code and reviewing"));
+            }
+
+            workedWeeks.add(new WorkedWeekDTO(id, userContractId, 2024, i % 52 + 1, null, "APPROVED",
+                new UserResponseDTO(UUID.randomUUID().toString(), "student@example.com", "John", "Smith", null,
+                    "STUDENT", "12345678", "NL000099998B57", "Street 2 7522AZ"),
+                new Company(UUID.randomUUID().toString(), "TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam"),
+                new UserContract(userContractId, UUID.randomUUID().toString(), UUID.randomUUID().toString(), 1500, true),
+                new ContractDTO(UUID.randomUUID().toString(), "Developer", "Writing code"),
+                hours, 5 * 240));
+        }
+    }
+
+    @Benchmark
+    public byte[] writeWorkedWeeks() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        provider.writeTo(workedWeeks, ArrayList.class, TYPE.getType(), new Annotation[0],
+            MediaType.APPLICATION_JSON_TYPE, new MultivaluedHashMap<>(), output);
+        return output.toByteArray();
+    }
+}
@@ -111,6 +111,7 @@ ALTER TABLE
     "user_contract" ADD CONSTRAINT "user_contract_user_id_foreign" FOREIGN KEY("user_id") REFERENCES "user"("id");
 ALTER TABLE
     "worked" ADD CONSTRAINT "worked_worked_week_id_foreign" FOREIGN KEY("worked_week_id") REFERENCES "worked_week"("id");
+CREATE INDEX "worked_worked_week_id_index" ON "worked"("worked_week_id");
 ALTER TABLE
     "company_user" ADD CONSTRAINT "company_user_user_id_foreign" FOREIGN KEY("user_id") REFERENCES "user"("id");
 ALTER TABLE
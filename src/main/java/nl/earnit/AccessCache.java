@@ -0,0 +1,197 @@
+package nl.earnit;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of authorization decisions, so checking access does not query the same user or
+ * company membership several times while handling a request.
+ * <p>
+ * Decisions are remembered for the rest of the request on the current thread and shared
+ * between requests for {@code ACCESS_CACHE_TTL} milliseconds. The DAOs changing a user type,
+ * company membership or active flag invalidate the affected decisions.
+ */
+public class AccessCache {
+    private static final int MAX_SIZE = getEnv("ACCESS_CACHE_SIZE", 10_000);
+    private static final long MAX_AGE_MILLIS = getEnv("ACCESS_CACHE_TTL", 30_000);
+
+    private static final Map<String, Entry> shared = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Map<String, Boolean>> request = ThreadLocal.withInitial(HashMap::new);
+
+    private static final AtomicLong requestHits = new AtomicLong();
+    private static final AtomicLong sharedHits = new AtomicLong();
+    private static final AtomicLong lookups = new AtomicLong();
+
+    /**
+     * Looks up an access decision in the database.
+     */
+    @FunctionalInterface
+    public interface Lookup {
+        /**
+         * Looks up the decision.
+         *
+         * @return whether access is granted
+         * @throws SQLException if a database error occurs
+         */
+        boolean lookup() throws SQLException;
+    }
+
+    /**
+     * Gets whether a user is staff.
+     *
+     * @param userId the user id
+     * @param lookup looks up the decision if it is not cached
+     * @return whether the user is staff
+     * @throws SQLException if a database error occurs
+     */
+    public static boolean getStaffAccess(String userId, Lookup lookup) throws SQLException {
+        return get("staff:" + userId, userId, null, lookup);
+    }
+
+    /**
+     * Gets whether a user works for a company.
+     *
+     * @param companyId the company id
+     * @param userId    the user id
+     * @param lookup    looks up the decision if it is not cached
+     * @return whether the user works for the company
+     * @throws SQLException if a database error occurs
+     */
+    public static boolean getCompanyAccess(String companyId, String userId, Lookup lookup) throws SQLException {
+        return get("company:" + companyId + ":" + userId, userId, companyId, lookup);
+    }
+
+    private static boolean get(String key, String userId, String companyId, Lookup lookup) throws SQLException {
+        Map<String, Boolean> decisions = request.get();
+        Boolean decision = decisions.get(key);
+        if (decision != null) {
+            requestHits.incrementAndGet();
+            return decision;
+        }
+
+        long now = System.currentTimeMillis();
+        Entry entry = shared.get(key);
+        if (entry != null && entry.expiresAt > now) {
+            sharedHits.incrementAndGet();
+            decisions.put(key, entry.access);
+            return entry.access;
+        }
+
+        lookups.incrementAndGet();
+        boolean access = lookup.lookup();
+
+        if (shared.size() >= MAX_SIZE) {
+            shared.values().removeIf(expired -> expired.expiresAt <= now);
+            if (shared.size() >= MAX_SIZE) shared.clear();
+        }
+
+        shared.put(key, new Entry(userId, companyId, access, now + MAX_AGE_MILLIS));
+        decisions.put(key, access);
+        return access;
+    }
+
+    /**
+     * Forgets the decisions remembered for the request on the current thread.
+     */
+    public static void endRequest() {
+        request.remove();
+    }
+
+    /**
+     * Removes every decision about a user.
+     *
+     * @param userId the user id
+     */
+    public static void invalidateUser(String userId) {
+        if (userId == null) return;
+
+        shared.values().removeIf(entry -> userId.equals(entry.userId));
+        request.remove();
+    }
+
+    /**
+     * Removes every decision about a company.
+     *
+     * @param companyId the company id
+     */
+    public static void invalidateCompany(String companyId) {
+        if (companyId == null) return;
+
+        shared.values().removeIf(entry -> companyId.equals(entry.companyId));
+        request.remove();
+    }
+
+    /**
+     * Removes the decision about a user working for a company.
+     *
+     * @param companyId the company id
+     * @param userId    the user id
+     */
+    public static void invalidate(String companyId, String userId) {
+        shared.remove("company:" + companyId + ":" + userId);
+        request.remove();
+    }
+
+    /**
+     * Removes every decision.
+     */
+    public static void clear() {
+        shared.clear();
+        request.remove();
+    }
+
+    /**
+     * Gets the number of decisions served from the current request.
+     *
+     * @return the request hits
+     */
+    public static long getRequestHits() {
+        return requestHits.get();
+    }
+
+    /**
+     * Gets the number of decisions served from the shared cache.
+     *
+     * @return the shared hits
+     */
+    public static long getSharedHits() {
+        return sharedHits.get();
+    }
+
+    /**
+     * Gets the number of decisions looked up in the database.
+     *
+     * @return the lookups
+     */
+    public static long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * Gets the number of queries the cache saved.
+     *
+     * @return the queries saved
+     */
+    public static long getQueriesSaved() {
+        return requestHits.get() + sharedHits.get();
+    }
+
+    /**
+     * Gets the number of shared decisions.
+     *
+     * @return the size
+     */
+    public static int getSize() {
+        return shared.size();
+    }
+
+    private static int getEnv(String name, int fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : Integer.parseInt(value.trim());
+    }
+
+    private record Entry(String userId, String companyId, boolean access, long expiresAt) {}
+}
@@ -2,6 +2,7 @@ package nl.earnit;
 
 import at.favre.lib.crypto.bcrypt.BCrypt;
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.Claim;
@@ -23,6 +24,9 @@ import java.util.Optional;
  * The type Auth.
  */
 public class Auth {
+    // Built once, verifying a token does not need a new algorithm and verifier
+    private static volatile JWTVerifier verifier;
+
     /**
      * Validate password boolean.
      *
@@ -45,7 +49,8 @@ public class Auth {
     }
 
     /**
-     * Creates the JSON Web Token
+     * Creates the JSON Web Token. Besides the user it claims the type and token version of the
+     * user, so pages can be routed without looking up the user, see {@link #getUserType(String)}.
      *
      * @param user      the user who the token is created for
      * @param companyId the company id
@@ -61,22 +66,74 @@ public class Auth {
             .withExpiresAt(Instant.ofEpochMilli(expiresAt))
             .withClaim("user_id", user.getId())
             .withClaim("user_company", companyId)
+            .withClaim("user_type", user.getType())
+            .withClaim("token_version", user.getTokenVersion())
             .sign(algorithm);
     }
 
     /**
-     * Validate jwt user.
+     * Validate jwt user. Tokens validated before are served from the {@link AuthenticationCache}.
      *
      * @param token the token
      * @return the user
      */
     public static User validateJWT(String token) {
+        User cached = AuthenticationCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        DecodedJWT jwt = verify(token);
+        if (jwt == null) {
+            return null;
+        }
+
+        Claim userId = jwt.getClaim("user_id");
+
+        try {
+            UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+
+            User user = userDAO.getUserById(userId.asString());
+            if (user != null) {
+                AuthenticationCache.put(token, user, jwt.getExpiresAt().getTime());
+            }
+
+            return user;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the type of the user of a token from its claims alone, without looking up the user.
+     * The claims are only used while the token version in them is current, see
+     * {@link TokenVersions}.
+     *
+     * @param token the token
+     * @return the type of the user, or null if the token is invalid, has no type or its claims are stale
+     */
+    public static String getUserType(String token) {
+        DecodedJWT jwt = verify(token);
+        if (jwt == null) {
+            return null;
+        }
+
+        String userId = jwt.getClaim("user_id").asString();
+        String type = jwt.getClaim("user_type").asString();
+        Integer version = jwt.getClaim("token_version").asInt();
+
+        // Issued before the claims existed
+        if (userId == null || type == null || version == null) {
+            return null;
+        }
+
+        return TokenVersions.isCurrent(userId, version) ? type : null;
+    }
+
+    private static DecodedJWT verify(String token) {
         DecodedJWT jwt;
         try {
-            Algorithm algorithm = Algorithm.HMAC256(System.getenv("JWT_SECRET"));
-            jwt = JWT.require(algorithm)
-                .build()
-                .verify(token);
+            jwt = getVerifier().verify(token);
         } catch (JWTVerificationException ignored) {
             // JWT signature invalid
             return null;
@@ -87,8 +144,6 @@ public class Auth {
             return null;
         }
 
-        Claim userId = jwt.getClaim("user_id");
-
         // Make sure the token is currently valid
         if (!jwt.getIssuedAt().before(Date.from(Instant.ofEpochMilli(System.currentTimeMillis())))) {
             return null;
@@ -98,13 +153,22 @@ public class Auth {
             return null;
         }
 
-        try {
-            UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+        return jwt;
+    }
 
-            return userDAO.getUserById(userId.asString());
-        } catch (Exception e) {
-            return null;
+    private static JWTVerifier getVerifier() {
+        JWTVerifier current = verifier;
+        if (current == null) {
+            synchronized (Auth.class) {
+                current = verifier;
+                if (current == null) {
+                    current = JWT.require(Algorithm.HMAC256(System.getenv("JWT_SECRET"))).build();
+                    verifier = current;
+                }
+            }
         }
+
+        return current;
     }
 
     /**
@@ -191,17 +255,16 @@ public class Auth {
      * @throws SQLException the sql exception
      */
     public static boolean hasAccessToCompany(String companyId, String userId) throws SQLException {
-        UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(
-            DAOManager.DAO.USER);
-
         if (hasAccessToStaff(userId)) {
             return true;
         }
 
-        CompanyUserDAO companyUserDAO = (CompanyUserDAO) DAOManager.getInstance().getDAO(
-            DAOManager.DAO.COMPANY_USER);
+        return AccessCache.getCompanyAccess(companyId, userId, () -> {
+            CompanyUserDAO companyUserDAO = (CompanyUserDAO) DAOManager.getInstance().getDAO(
+                DAOManager.DAO.COMPANY_USER);
 
-        return companyUserDAO.isUserWorkingForCompany(companyId, userId);
+            return companyUserDAO.isUserWorkingForCompany(companyId, userId);
+        });
     }
 
     /**
@@ -249,9 +312,6 @@ public class Auth {
      * @throws SQLException the sql exception
      */
     public static boolean hasAccessToUser(String userIdToAccess, String userId) throws SQLException {
-        UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(
-            DAOManager.DAO.USER);
-
         if (hasAccessToStaff(userId)) {
             return true;
         }
@@ -278,9 +338,11 @@ public class Auth {
      * @throws SQLException the sql exception
      */
     public static boolean hasAccessToStaff(String userId) throws SQLException {
-        UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(
-            DAOManager.DAO.USER);
+        return AccessCache.getStaffAccess(userId, () -> {
+            UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(
+                DAOManager.DAO.USER);
 
-        return userDAO.getUserById(userId).getType().equals(User.Type.ADMINISTRATOR.toString());
+            return userDAO.getUserById(userId).getType().equals(User.Type.ADMINISTRATOR.toString());
+        });
     }
 }
@@ -0,0 +1,157 @@
+package nl.earnit;
+
+import nl.earnit.models.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the users belonging to validated tokens, so authenticated requests do not need to
+ * look up the user in the database.
+ * <p>
+ * Tokens are keyed by their SHA-256 hash. An entry lives until the token expires, but at most
+ * {@code AUTH_CACHE_TTL} milliseconds, and the least recently used entries are dropped once
+ * there are more than {@code AUTH_CACHE_SIZE}. Entries of a user are removed when the user is
+ * changed through the {@link nl.earnit.dao.UserDAO}.
+ */
+public class AuthenticationCache {
+    private static final int MAX_SIZE = getEnv("AUTH_CACHE_SIZE", 10_000);
+    private static final long MAX_AGE_MILLIS = getEnv("AUTH_CACHE_TTL", 10 * 60_000);
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Gets the user of a token that was validated before.
+     *
+     * @param token the token
+     * @return a copy of the cached user, or null if the token is not cached or has expired
+     */
+    public static User get(String token) {
+        String key = hash(token);
+
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                misses.incrementAndGet();
+                return null;
+            }
+
+            hits.incrementAndGet();
+            return copy(entry.user);
+        }
+    }
+
+    /**
+     * Caches the user of a validated token.
+     *
+     * @param token     the token
+     * @param user      the user the token belongs to
+     * @param expiresAt the moment the token expires in milliseconds since the epoch
+     */
+    public static void put(String token, User user, long expiresAt) {
+        String key = hash(token);
+        Entry entry = new Entry(copy(user), Math.min(expiresAt, System.currentTimeMillis() + MAX_AGE_MILLIS));
+
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Removes every cached token of a user.
+     *
+     * @param userId the user id
+     */
+    public static void invalidateUser(String userId) {
+        if (userId == null) return;
+
+        synchronized (entries) {
+            entries.values().removeIf(entry -> userId.equals(entry.user.getId()));
+        }
+    }
+
+    /**
+     * Removes every cached token.
+     */
+    public static void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Gets the number of tokens served from the cache.
+     *
+     * @return the hits
+     */
+    public static long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of tokens that had to be validated.
+     *
+     * @return the misses
+     */
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of cached tokens.
+     *
+     * @return the size
+     */
+    public static int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Copies a user, so callers can not change the cached one.
+     */
+    private static User copy(User user) {
+        User copy = new User(user.getId(), user.getEmail(), user.getFirstName(), user.getLastName(),
+            user.getLastNamePrefix(), user.getType(), user.getPassword(), user.getAddress(),
+            user.getBtw(), user.getKvk());
+        copy.setTokenVersion(user.getTokenVersion());
+        return copy;
+    }
+
+    private static int getEnv(String name, int fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : Integer.parseInt(value.trim());
+    }
+
+    private record Entry(User user, long expiresAt) {}
+}
@@ -2,6 +2,7 @@ package nl.earnit;
 
 
 import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import nl.earnit.dao.Migrations;
 import org.junit.jupiter.api.Test;
 
 import java.net.URL;
@@ -28,6 +29,11 @@ public class TestDB {
     public void setupDB() throws Exception {
         Connection con = getConnection();
 
+        importSchema(con);
+        Migrations.migrate(con);
+    }
+
+    public static void importSchema(Connection con) throws Exception {
         // Load db schema
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         URL dbSchema = classLoader.getResource("db-structure-v2.5.sql");
@@ -39,7 +45,6 @@ public class TestDB {
         PreparedStatement importStatement = con.prepareStatement(importQuery);
         importStatement.execute();
         System.out.println("Imported db schema");
-
     }
 
     @Test
@@ -0,0 +1,94 @@
+package nl.earnit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The token version of every user, so the claims of a token can be trusted without looking up
+ * the user.
+ * <p>
+ * A token carries the token version of its user at the time it was issued. The DAOs raise the
+ * version when the type of a user changes or the user is disabled, which makes the claims of
+ * older tokens stale. Only users whose version was raised are kept. The versions are loaded
+ * when the application starts and reloaded every {@code TOKEN_VERSIONS_INTERVAL}
+ * milliseconds, so changes made by other instances are seen. When they were not reloaded for
+ * two intervals no claims are trusted.
+ */
+public class TokenVersions {
+    private static final long INTERVAL_MILLIS = getEnv("TOKEN_VERSIONS_INTERVAL", 60_000);
+
+    private static final Map<String, Integer> versions = new ConcurrentHashMap<>();
+    private static volatile long loadedAt = Long.MIN_VALUE;
+
+    /**
+     * Gets the interval between reloads of the versions.
+     *
+     * @return the interval in milliseconds, 0 if the versions are not reloaded
+     */
+    public static long getInterval() {
+        return INTERVAL_MILLIS;
+    }
+
+    /**
+     * Checks whether the claims of a token are current.
+     *
+     * @param userId  the id of the user of the token
+     * @param version the token version in the token
+     * @return whether the version is current and the versions are fresh
+     */
+    public static boolean isCurrent(String userId, int version) {
+        if (!isFresh()) return false;
+
+        return version >= versions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Gets the current token version of a user.
+     *
+     * @param userId the id of the user
+     * @return the version
+     */
+    public static int get(String userId) {
+        return versions.getOrDefault(userId, 0);
+    }
+
+    /**
+     * Sets the token version of a user, a lower version than known is ignored.
+     *
+     * @param userId  the id of the user
+     * @param version the version
+     */
+    public static void update(String userId, int version) {
+        if (version > 0) versions.merge(userId, version, Math::max);
+    }
+
+    /**
+     * Loads the versions of all users whose version was raised.
+     *
+     * @param loaded the versions by user id
+     */
+    public static void load(Map<String, Integer> loaded) {
+        loaded.forEach(TokenVersions::update);
+        loadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Forgets all versions, no claims are trusted until they are loaded again.
+     */
+    public static void clear() {
+        versions.clear();
+        loadedAt = Long.MIN_VALUE;
+    }
+
+    private static boolean isFresh() {
+        if (loadedAt == Long.MIN_VALUE) return false;
+
+        // Without reloads only this instance changes versions
+        return INTERVAL_MILLIS <= 0 || System.currentTimeMillis() - loadedAt < 2 * INTERVAL_MILLIS;
+    }
+
+    private static long getEnv(String name, long fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : Long.parseLong(value.trim());
+    }
+}
@@ -1,26 +1,29 @@
 package nl.earnit.dao;
 
+import nl.earnit.AccessCache;
 import nl.earnit.dto.contracts.ContractDTO;
+import nl.earnit.dto.NotificationCountDTO;
 import nl.earnit.dto.NotificationDTO;
+import nl.earnit.dto.company.CompanyDashboardDTO;
 import nl.earnit.dto.user.UserContractDTO;
 import nl.earnit.dto.user.UserDTO;
+import nl.earnit.helpers.JsonRowDecoder;
+import nl.earnit.helpers.NotificationTemplate;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.Company;
 import nl.earnit.models.User;
 import nl.earnit.dto.user.UserResponseDTO;
-import org.postgresql.util.PGobject;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-import static nl.earnit.Constants.getName;
-
 /**
  * The companyDAO is used to access the entries in the company table of the database
  * This stores all the companies that use the application
@@ -81,6 +84,21 @@ public class CompanyDAO extends GenericDAO<User> {
         return company;
     }
 
+    /**
+     * Gets the version of a company.
+     * @param id The id of the company.
+     * @return The version or null if not found.
+     * @throws SQLException If a database error occurs.
+     */
+    public String getCompanyVersion(String id) throws SQLException {
+        String query = "SELECT version FROM \"" + tableName + "\" WHERE \"id\" = ?";
+        PreparedStatement statement = this.con.prepareStatement(query);
+        PostgresJDBCHelper.setUuid(statement, 1, id);
+
+        ResultSet res = statement.executeQuery();
+        return res.next() ? res.getString("version") : null;
+    }
+
     /**
      * creates a company entry in the database
      * @param name the name of the company
@@ -272,7 +290,8 @@ public class CompanyDAO extends GenericDAO<User> {
 
         String query = """
             SELECT u.id, u.first_name, u.last_name, u.last_name_prefix, u.type, u.email, u.kvk, u.btw, u.address, uc.user_contracts FROM "user" u
-            JOIN (select c.company_id, uc.user_id, array_agg((uc.*, c.*)%s) as user_contracts from user_contract uc
+            JOIN (select c.company_id, uc.user_id, json_agg(json_build_object('id', uc.id, 'contractId', uc.contract_id, 'userId', uc.user_id, 'hourlyWage', uc.hourly_wage, 'active', uc.active,
+                        'contract', json_build_object('id', c.id, 'role', c.role, 'description', c.description))%s) as user_contracts from user_contract uc
                     join contract c on c.id = uc.contract_id
                     group by c.company_id, uc.user_id
                 ) uc on uc.user_id = u.id AND uc.company_id = ?
@@ -294,30 +313,9 @@ public class CompanyDAO extends GenericDAO<User> {
                 res.getString("last_name_prefix"), res.getString("type"), res.getString("kvk"),res.getString("btw"), res.getString("address"));
 
         if (withUserContracts) {
-            List<UserContractDTO> userContracts = new ArrayList<>();
-            ResultSet userContractsSet = res.getArray("user_contracts").getResultSet();
-
-            while (userContractsSet.next()) {
-                String data = ((PGobject) userContractsSet.getObject("VALUE")).getValue();
-                if (data == null) continue;
-
-                data = data.substring(1, data.length() - 1);
-                String[] dataStrings = data.split(",(?=(?:[^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
-
-                UserContractDTO userContract = new UserContractDTO(dataStrings[0], dataStrings[1], dataStrings[2], Integer.parseInt(dataStrings[3]), dataStrings[4].equals("t"));
-
-                if (withUserContractsContract) {
-                    String role = dataStrings[7];
-                    if (role.startsWith("\"") && role.endsWith("\"")) role = role.substring(1, role.length() - 1);
-
-                    String description = dataStrings[8];
-                    description = description.substring(1, description.length() - 1);
-
-                    ContractDTO contract = new ContractDTO(dataStrings[5], role, description);
-                    userContract.setContract(contract);
-                }
-
-                userContracts.add(userContract);
+            List<UserContractDTO> userContracts = JsonRowDecoder.decodeList(res, "user_contracts", UserContractDTO.class);
+            if (!withUserContractsContract) {
+                userContracts.forEach(userContract -> userContract.setContract(null));
             }
 
             user.setUserContracts(userContracts);
@@ -336,60 +334,93 @@ public class CompanyDAO extends GenericDAO<User> {
         PreparedStatement statement = this.con.prepareStatement(query);
         PostgresJDBCHelper.setUuid(statement, 1, id);
         statement.executeQuery();
+        AccessCache.invalidateCompany(id);
     }
 
     public List<NotificationDTO> getNotificationsForCompany(String company_id) throws SQLException {
         if (company_id==null) {
             return null;
         }
-        List<NotificationDTO> notifications = new ArrayList<>();
-        String query = """
-            SELECT n.*, u.first_name, u.last_name_prefix, u.last_name, ww.week, c.role, u.id as user_id, cy.id as company_id, ww.id as worked_week_id, uc.id as user_contract_id, c.id as contract_id 
-            FROM "notification" n
-            JOIN "user" u ON u.id = n.user_id
-            JOIN company cy ON cy.id = n.company_id
-            LEFT JOIN worked_week ww ON ww.id = n.worked_week_id
-            LEFT JOIN user_contract uc ON uc.id = ww.contract_id 
-            LEFT JOIN contract c ON c.id = uc.contract_id 
-            WHERE n.company_id = ? AND n.type != 'CONFLICT'
-            ORDER BY n.date DESC, n.seen
-            """;
-        PreparedStatement statement = this.con.prepareStatement(query);
-        PostgresJDBCHelper.setUuid(statement, 1, company_id);
-        ResultSet res = statement.executeQuery();
-        while (res.next()) {
-            String user_name = getName(res.getString("first_name"), res.getString("last_name_prefix"),  res.getString("last_name"));
-            String week = res.getString("week");
-            String role = res.getString("role");
-
-            String title = "";
-            String description = "";
-            String type = res.getString("type");
-            switch (type) {
-                case "SUGGESTION ACCEPTED":
-                    title = "Suggestion accepted";
-                    description = user_name + " accepted your suggestion for week " + week + " for the position of " + role;
-                    break;
-                case "SUGGESTION REJECTED":
-                    title = "Suggestion rejected";
-                    description = user_name + " rejected your suggested hours for week " + week + " for the position of " + role;
-                    break;
-                case "LINK":
-                    title = "New employee";
-                    description = "New employee " + user_name;
-                    break;
-                case "CONFLICT":
-                    title = "Conflict";
-                    description = "You have a conflict in week " + week + " with " + user_name;
-                    break;
-                default:
-                    continue;
+        return getNotificationsForCompany(company_id, Keyset.unbounded()).items();
+    }
+
+    /**
+     * Gets a page of the notifications of a company, newest first.
+     *
+     * @param companyId the id of the company
+     * @param keyset    the page
+     * @return the notifications
+     * @throws SQLException the sql SQLException
+     */
+    public Keyset.Page<NotificationDTO> getNotificationsForCompany(String companyId, Keyset keyset) throws SQLException {
+        return new NotificationFeed(con, "company_id", NotificationTemplate.COMPANY_FEED).getPage(companyId, keyset);
+    }
+
+    /**
+     * Gets the version of the notifications of a company.
+     *
+     * @param companyId the id of the company
+     * @return the version
+     * @throws SQLException the sql SQLException
+     */
+    public String getNotificationsVersionForCompany(String companyId) throws SQLException {
+        return new NotificationFeed(con, "company_id", NotificationTemplate.COMPANY_FEED).getVersion(companyId);
+    }
+
+    /**
+     * Counts the unread notifications of a company, up to 100.
+     *
+     * @param companyId the id of the company
+     * @return the number of unread notifications
+     * @throws SQLException the sql SQLException
+     */
+    public NotificationCountDTO countUnreadNotificationsForCompany(String companyId) throws SQLException {
+        return new NotificationFeed(con, "company_id", NotificationTemplate.COMPANY_FEED).countUnread(companyId);
+    }
+
+    /**
+     * Gets the home page of a company: the first weeks waiting for approval with their student
+     * and contract, the approved weeks of a week with their student and total minutes, the
+     * latest notifications and the number of unread notifications.
+     * <p>
+     * The parts are read one after the other on the connection of this dao, in a single read
+     * only transaction, so they are consistent with each other.
+     *
+     * @param companyId the id of the company
+     * @param year      the year of the approved weeks
+     * @param week      the week of the approved weeks
+     * @param keyset    the page of approvals and of notifications
+     * @return the dashboard
+     * @throws SQLException the sql SQLException
+     */
+    public CompanyDashboardDTO getCompanyDashboard(String companyId, int year, int week, Keyset keyset)
+        throws SQLException {
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+        NotificationFeed feed = new NotificationFeed(con, "company_id", NotificationTemplate.COMPANY_FEED);
+
+        boolean autoCommit = con.getAutoCommit();
+        try {
+            con.setAutoCommit(false);
+            try (Statement statement = con.createStatement()) {
+                statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
             }
 
-            NotificationDTO notification = new NotificationDTO(res.getString("id"), res.getString("date"), res.getBoolean("seen"), type, title, description, res.getString("user_id"), res.getString("company_id"), res.getString("user_contract_id"), res.getString("contract_id"), res.getString("worked_week_id"), res.getInt("week"));
-            notifications.add(notification);
+            CompanyDashboardDTO dashboard = new CompanyDashboardDTO(
+                workedWeekDAO.getWorkedWeeksToApproveForCompany(companyId, false, true, false, true, false,
+                    false, "worked_week.year:asc,worked_week.week:asc", keyset).items(),
+                workedWeekDAO.getWorkedWeeksForCompany(companyId, year, week, false, false, false, true, false,
+                    true, "worked_week.year:asc,worked_week.week:asc", Keyset.unbounded()).items(),
+                feed.getPage(companyId, keyset).items(),
+                feed.countUnread(companyId));
+
+            con.commit();
+            return dashboard;
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
         }
-        return notifications;
     }
 
     /**
@@ -1,5 +1,6 @@
 package nl.earnit.dao;
 
+import nl.earnit.AccessCache;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.Company;
 import nl.earnit.models.User;
@@ -108,6 +109,7 @@ public class CompanyUserDAO extends GenericDAO<User> {
         PostgresJDBCHelper.setUuid(statement, 1, companyId);
         PostgresJDBCHelper.setUuid(statement, 2, userId);
         ResultSet res = statement.executeQuery();
+        AccessCache.invalidate(companyId, userId);
         return res.next();
     }
 }
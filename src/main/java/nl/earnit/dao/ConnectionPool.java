@@ -0,0 +1,663 @@
+package nl.earnit.dao;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of database connections.
+ * <p>
+ * Connections are borrowed with {@link #getConnection()} and handed back by calling
+ * {@link Connection#close()} on the borrowed connection. Idle connections are validated on
+ * borrow, evicted after being idle for too long and retired after their maximum lifetime.
+ * Every connection keeps a {@link StatementCache} of its prepared statements, which lives as
+ * long as the physical connection.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(ConnectionPool.class.getName());
+
+    private final DataSource dataSource;
+    private final Config config;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private int total = 0;
+    private int waiting = 0;
+    private boolean closed = false;
+
+    private final Set<Handle> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService evictor;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaks = new AtomicLong();
+    private final StatementCache.Counters statementCacheCounters = new StatementCache.Counters();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Instantiates a new connection pool.
+     *
+     * @param dataSource the data source physical connections are opened from
+     * @param config     the pool configuration
+     */
+    public ConnectionPool(DataSource dataSource, Config config) {
+        this.dataSource = dataSource;
+        this.config = config;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "earnit-connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.evictor.scheduleWithFixedDelay(this::evictAndDetectLeaks, config.evictionIntervalMillis,
+            config.evictionIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting at most the configured borrow timeout.
+     *
+     * @return the borrowed connection, closing it returns it to the pool
+     * @throws SQLException if no connection became available in time or the database could
+     *                      not be reached
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.borrowTimeoutMillis);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool has been closed");
+                    }
+
+                    candidate = idle.pollFirst();
+                    if (candidate != null) {
+                        break;
+                    }
+
+                    if (total < config.maxSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        throw new SQLException(
+                            "Timed out after %d ms waiting for a database connection".formatted(
+                                config.borrowTimeoutMillis));
+                    }
+
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiting--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    candidate = new PooledConnection(dataSource.getConnection());
+                    created.incrementAndGet();
+                } catch (SQLException | RuntimeException e) {
+                    release();
+                    throw e;
+                }
+            } else if (!isUsable(candidate)) {
+                destroy(candidate);
+                continue;
+            }
+
+            recordWait(System.nanoTime() - start);
+            borrows.incrementAndGet();
+            return candidate.borrow();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the pool metrics.
+     *
+     * @return the metrics
+     */
+    public Metrics getMetrics() {
+        lock.lock();
+        try {
+            long borrowCount = borrows.get();
+            return new Metrics(total - idle.size(), idle.size(), total, waiting, config.maxSize,
+                borrowCount, timeouts.get(), created.get(), destroyed.get(),
+                validationFailures.get(), leaks.get(), statementCacheCounters.getHits(),
+                statementCacheCounters.getMisses(), statementCacheCounters.getEvictions(),
+                borrowCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get() / borrowCount),
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the pool and every idle connection. Borrowed connections are closed when they
+     * are returned.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        evictor.shutdownNow();
+        toClose.forEach(this::destroy);
+    }
+
+    /**
+     * Checks if an idle connection can be handed out again.
+     */
+    private boolean isUsable(PooledConnection connection) {
+        long now = System.currentTimeMillis();
+        if (now - connection.createdAt >= config.maxLifetimeMillis) {
+            return false;
+        }
+
+        // Only validate connections that have been idle for a while, recently used ones are
+        // almost certainly still alive
+        if (now - connection.lastUsedAt < config.validationIntervalMillis) {
+            return true;
+        }
+
+        try {
+            if (connection.physical.isValid(config.validationTimeoutSeconds)) {
+                return true;
+            }
+        } catch (SQLException ignored) {
+        }
+
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Takes back a connection that was closed by its borrower.
+     */
+    private void giveBack(PooledConnection connection) {
+        boolean reusable = !connection.broken
+            && System.currentTimeMillis() - connection.createdAt < config.maxLifetimeMillis;
+
+        // Never hand out a connection with a half finished transaction
+        if (reusable) {
+            try {
+                if (!connection.physical.getAutoCommit()) {
+                    connection.physical.rollback();
+                    connection.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+
+        if (reusable) {
+            lock.lock();
+            try {
+                if (!closed) {
+                    connection.lastUsedAt = System.currentTimeMillis();
+                    idle.addFirst(connection);
+                    available.signal();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        destroy(connection);
+    }
+
+    /**
+     * Closes idle connections that have been idle too long or outlived their lifetime, and
+     * reports connections that have been borrowed for longer than the leak threshold.
+     */
+    private void evictAndDetectLeaks() {
+        if (config.leakDetectionThresholdMillis > 0) {
+            long borrowedBefore = System.currentTimeMillis() - config.leakDetectionThresholdMillis;
+            for (Handle handle : borrowed) {
+                if (handle.borrowedAt < borrowedBefore && !handle.reported) {
+                    handle.reported = true;
+                    leaks.incrementAndGet();
+                    LOGGER.log(Level.WARNING, "Connection borrowed by %s has not been returned for %d ms".formatted(
+                        handle.borrower, System.currentTimeMillis() - handle.borrowedAt), handle.borrowTrace);
+                }
+            }
+        }
+
+
+        List<PooledConnection> toClose = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        lock.lock();
+        try {
+            idle.removeIf(connection -> {
+                boolean expired = now - connection.lastUsedAt >= config.idleTimeoutMillis
+                    || now - connection.createdAt >= config.maxLifetimeMillis;
+                if (expired) {
+                    toClose.add(connection);
+                }
+                return expired;
+            });
+        } finally {
+            lock.unlock();
+        }
+
+        toClose.forEach(this::destroy);
+    }
+
+    /**
+     * Physically closes a connection and frees its slot in the pool.
+     */
+    private void destroy(PooledConnection connection) {
+        // The cached statements go with their connection
+        if (connection.statementCache != null) connection.statementCache.clear();
+
+        try {
+            connection.physical.close();
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Could not close pooled connection", e);
+        }
+
+        destroyed.incrementAndGet();
+        release();
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private final long createdAt = System.currentTimeMillis();
+        private long lastUsedAt = createdAt;
+        private boolean broken = false;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = config.statementCacheSize > 0
+                ? new StatementCache(physical, config.statementCacheSize, statementCacheCounters)
+                : null;
+        }
+
+        /**
+         * Creates the handle given to a borrower, closing it returns the connection.
+         */
+        private Connection borrow() {
+            Handle handle = new Handle(this);
+            borrowed.add(handle);
+
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class[] {Connection.class}, handle);
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection until the borrower closes it.
+     */
+    private class Handle implements InvocationHandler {
+        private PooledConnection connection;
+        private final long borrowedAt = System.currentTimeMillis();
+        private final String borrower = Thread.currentThread().getName();
+        private final Throwable borrowTrace = config.leakDetectionThresholdMillis > 0
+            ? new Throwable("Connection borrowed here") : null;
+        private volatile boolean reported = false;
+
+        private Handle(PooledConnection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (connection != null) {
+                        PooledConnection returned = connection;
+                        connection = null;
+                        borrowed.remove(this);
+                        giveBack(returned);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return connection == null || connection.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled" + (connection == null ? "[returned]" : connection.physical.toString());
+                }
+            }
+
+            if (connection == null) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            try {
+                if (connection.statementCache != null && method.getName().equals("prepareStatement")
+                    && args.length == 1) {
+                    return connection.statementCache.prepareStatement((String) args[0]);
+                }
+
+                return method.invoke(connection.physical, args);
+            } catch (InvocationTargetException | SQLException e) {
+                Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+
+                // Do not hand out connections the driver considers dead
+                if (cause instanceof SQLException sqlException
+                    && sqlException.getSQLState() != null
+                    && sqlException.getSQLState().startsWith("08")) {
+                    connection.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+
+    /**
+     * Configuration of a connection pool.
+     */
+    public static class Config {
+        private int maxSize = 10;
+        private long borrowTimeoutMillis = 30_000;
+        private long idleTimeoutMillis = 10 * 60_000;
+        private long maxLifetimeMillis = 30 * 60_000;
+        private long validationIntervalMillis = 5_000;
+        private int validationTimeoutSeconds = 5;
+        private long evictionIntervalMillis = 30_000;
+        private long leakDetectionThresholdMillis = 60_000;
+        private int statementCacheSize = 100;
+
+        /**
+         * Creates the configuration from the DB_POOL_* environment variables, falling back
+         * to the defaults for the ones not set.
+         *
+         * @return the config
+         */
+        public static Config fromEnvironment() {
+            Config config = new Config();
+            config.maxSize = getEnv("DB_POOL_SIZE", config.maxSize);
+            config.borrowTimeoutMillis = getEnv("DB_POOL_TIMEOUT", config.borrowTimeoutMillis);
+            config.idleTimeoutMillis = getEnv("DB_POOL_IDLE_TIMEOUT", config.idleTimeoutMillis);
+            config.maxLifetimeMillis = getEnv("DB_POOL_MAX_LIFETIME", config.maxLifetimeMillis);
+            config.leakDetectionThresholdMillis = getEnv("DB_POOL_LEAK_THRESHOLD", config.leakDetectionThresholdMillis);
+            config.statementCacheSize = getEnv("DB_STATEMENT_CACHE_SIZE", config.statementCacheSize);
+            return config;
+        }
+
+        private static int getEnv(String name, int fallback) {
+            return (int) getEnv(name, (long) fallback);
+        }
+
+        private static long getEnv(String name, long fallback) {
+            String value = System.getenv(name);
+            if (value == null || value.isBlank()) {
+                return fallback;
+            }
+
+            return Long.parseLong(value.trim());
+        }
+
+        /**
+         * Sets the maximum number of connections.
+         *
+         * @param maxSize the max size
+         * @return the config
+         */
+        public Config setMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Sets how long a borrower waits for a connection before failing.
+         *
+         * @param borrowTimeoutMillis the borrow timeout in milliseconds
+         * @return the config
+         */
+        public Config setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+            this.borrowTimeoutMillis = borrowTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets how long a connection may stay idle before it is closed.
+         *
+         * @param idleTimeoutMillis the idle timeout in milliseconds
+         * @return the config
+         */
+        public Config setIdleTimeoutMillis(long idleTimeoutMillis) {
+            this.idleTimeoutMillis = idleTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Sets how long a connection may be used before it is retired.
+         *
+         * @param maxLifetimeMillis the max lifetime in milliseconds
+         * @return the config
+         */
+        public Config setMaxLifetimeMillis(long maxLifetimeMillis) {
+            this.maxLifetimeMillis = maxLifetimeMillis;
+            return this;
+        }
+
+        /**
+         * Sets after how long of being idle a connection is validated on borrow.
+         *
+         * @param validationIntervalMillis the validation interval in milliseconds
+         * @return the config
+         */
+        public Config setValidationIntervalMillis(long validationIntervalMillis) {
+            this.validationIntervalMillis = validationIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Sets how often idle connections are checked for eviction.
+         *
+         * @param evictionIntervalMillis the eviction interval in milliseconds
+         * @return the config
+         */
+        public Config setEvictionIntervalMillis(long evictionIntervalMillis) {
+            this.evictionIntervalMillis = evictionIntervalMillis;
+            return this;
+        }
+
+        /**
+         * Sets after how long a borrowed connection that was not returned is reported as
+         * leaked, 0 disables leak detection.
+         *
+         * @param leakDetectionThresholdMillis the leak detection threshold in milliseconds
+         * @return the config
+         */
+        public Config setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+            this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+            return this;
+        }
+
+        /**
+         * Sets the number of prepared statements cached per connection, 0 disables the cache.
+         *
+         * @param statementCacheSize the statement cache size
+         * @return the config
+         */
+        public Config setStatementCacheSize(int statementCacheSize) {
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+    }
+
+    /**
+     * Snapshot of the pool metrics.
+     */
+    public static class Metrics {
+        private final int active;
+        private final int idle;
+        private final int total;
+        private final int waiting;
+        private final int maxSize;
+        private final long borrows;
+        private final long timeouts;
+        private final long created;
+        private final long destroyed;
+        private final long validationFailures;
+        private final long leaks;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+        private final long statementCacheEvictions;
+        private final long averageWaitMicros;
+        private final long maxWaitMicros;
+
+        private Metrics(int active, int idle, int total, int waiting, int maxSize, long borrows,
+                        long timeouts, long created, long destroyed, long validationFailures,
+                        long leaks, long statementCacheHits, long statementCacheMisses,
+                        long statementCacheEvictions, long averageWaitMicros, long maxWaitMicros) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.waiting = waiting;
+            this.maxSize = maxSize;
+            this.borrows = borrows;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+            this.leaks = leaks;
+            this.statementCacheHits = statementCacheHits;
+            this.statementCacheMisses = statementCacheMisses;
+            this.statementCacheEvictions = statementCacheEvictions;
+            this.averageWaitMicros = averageWaitMicros;
+            this.maxWaitMicros = maxWaitMicros;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getIdle() {
+            return idle;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getWaiting() {
+            return waiting;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getBorrows() {
+            return borrows;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        public long getCreated() {
+            return created;
+        }
+
+        public long getDestroyed() {
+            return destroyed;
+        }
+
+        public long getValidationFailures() {
+            return validationFailures;
+        }
+
+        public long getLeaks() {
+            return leaks;
+        }
+
+        public long getStatementCacheHits() {
+            return statementCacheHits;
+        }
+
+        public long getStatementCacheMisses() {
+            return statementCacheMisses;
+        }
+
+        public long getStatementCacheEvictions() {
+            return statementCacheEvictions;
+        }
+
+        public long getAverageWaitMicros() {
+            return averageWaitMicros;
+        }
+
+        public long getMaxWaitMicros() {
+            return maxWaitMicros;
+        }
+    }
+}
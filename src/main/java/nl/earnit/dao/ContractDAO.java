@@ -2,11 +2,10 @@ package nl.earnit.dao;
 
 import nl.earnit.dto.contracts.ContractDTO;
 import nl.earnit.dto.user.UserContractDTO;
-import nl.earnit.dto.user.UserResponseDTO;
+import nl.earnit.helpers.JsonRowDecoder;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.Company;
 import nl.earnit.models.User;
-import org.postgresql.util.PGobject;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -66,6 +65,32 @@ public class ContractDAO extends GenericDAO<User> {
         res.next();
         return res.getInt("count");
     }
+    /**
+     * Gets the version of the active contracts of a company, with their active user contracts
+     * and users.
+     *
+     * @param companyId the company id
+     * @return the version
+     * @throws SQLException the sql exception
+     */
+    public String getContractsVersionByCompanyId(String companyId) throws SQLException {
+        String query = """
+            SELECT COALESCE(GREATEST(MAX(cy.version), MAX(c.version), MAX(uc.version), MAX(u.version)), 0)
+                || '.' || COUNT(DISTINCT c.id) || '.' || COUNT(uc.id) AS version
+            FROM "%s" c
+            JOIN company cy ON cy.id = c.company_id
+            LEFT JOIN user_contract uc ON uc.contract_id = c.id AND uc.active IS TRUE
+            LEFT JOIN "user" u ON u.id = uc.user_id
+            WHERE c.company_id = ? and c.active = true""".formatted(tableName);
+
+        PreparedStatement statement = this.con.prepareStatement(query);
+        PostgresJDBCHelper.setUuid(statement, 1, companyId);
+
+        ResultSet res = statement.executeQuery();
+        res.next();
+        return res.getString("version");
+    }
+
     /**
      * gets all the contracts that a company has
      * @param companyId the id of the company
@@ -83,7 +108,9 @@ public class ContractDAO extends GenericDAO<User> {
                 SELECT c.id, c.role, c.description, cy.id as company_id, cy.name as company_name, cy.kvk as company_kvk, cy.address as company_address, uc.user_contracts FROM "%s" c
                 JOIN company cy ON cy.id = c.company_id
                 LEFT JOIN (select uc.contract_id,
-                            array_agg((uc.id, uc.contract_id, uc.user_id, uc.hourly_wage, u.id, u.email, u.first_name, u.last_name, u.last_name_prefix, u.type, u.kvk, u.btw, u.address)%s) as user_contracts
+                            json_agg(json_build_object('id', uc.id, 'contractId', uc.contract_id, 'userId', uc.user_id, 'hourlyWage', uc.hourly_wage, 'active', uc.active,
+                                'user', json_build_object('id', u.id, 'email', u.email, 'firstName', u.first_name, 'lastName', u.last_name, 'lastNamePrefix', u.last_name_prefix,
+                                    'type', u.type, 'kvk', u.kvk, 'btw', u.btw, 'address', u.address))%s) as user_contracts
                             from user_contract uc
                             join "user" u on u.id = uc.user_id
                             where uc.active IS TRUE
@@ -105,35 +132,9 @@ public class ContractDAO extends GenericDAO<User> {
             }
 
             if (withUserContracts) {
-                List<UserContractDTO> userContracts = new ArrayList<>();
-                Array userContractsArray = res.getArray("user_contracts");
-                if(!res.wasNull()) {
-                    ResultSet userContractsSet = userContractsArray.getResultSet();
-
-                    while (userContractsSet.next()) {
-                        String data = ((PGobject) userContractsSet.getObject("VALUE")).getValue();
-                        if (data == null) continue;
-
-                        data = data.substring(1, data.length() - 1);
-                        String[] dataStrings = data.split(",(?=(?:[^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
-
-                        UserContractDTO userContract = new UserContractDTO(dataStrings[0], dataStrings[1], dataStrings[2], Integer.parseInt(dataStrings[3]), true);
-
-                        if (withUserContractsUser) {
-                            String firstName = dataStrings[6];
-                            if (firstName.startsWith("\"") && firstName.endsWith("\"")) firstName = firstName.substring(1, firstName.length() - 1);
-
-                            String lastName = dataStrings[7];
-                            if (lastName.startsWith("\"") && lastName.endsWith("\"")) lastName = lastName.substring(1, lastName.length() - 1);
-
-                            String lastNamePrefix = dataStrings[8];
-                            if (lastNamePrefix.startsWith("\"") && lastNamePrefix.endsWith("\"")) lastNamePrefix = lastNamePrefix.substring(1, lastNamePrefix.length() - 1);
-
-                            userContract.setUser(new UserResponseDTO(dataStrings[4], dataStrings[5], firstName, lastName, lastNamePrefix, dataStrings[9], dataStrings[10], dataStrings[11], dataStrings[12]));
-                        }
-
-                        userContracts.add(userContract);
-                    }
+                List<UserContractDTO> userContracts = JsonRowDecoder.decodeList(res, "user_contracts", UserContractDTO.class);
+                if (!withUserContractsUser) {
+                    userContracts.forEach(userContract -> userContract.setUser(null));
                 }
 
                 contract.setUserContracts(userContracts);
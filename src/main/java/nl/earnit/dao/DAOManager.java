@@ -22,7 +22,37 @@ public class DAOManager {
     }
 
     /**
-     * Opens connection to database.
+     * Gets the connection pool shared by all threads, creating it on first use.
+     *
+     * @return the connection pool
+     */
+    public static ConnectionPool getConnectionPool() {
+        synchronized (DAOManager.class) {
+            if (pool == null) {
+                pool = new ConnectionPool(createDataSource(), ConnectionPool.Config.fromEnvironment());
+            }
+
+            return pool;
+        }
+    }
+
+    /**
+     * Replaces the shared connection pool, closing the previous one.
+     *
+     * @param connectionPool the connection pool to use, null to create one from the environment on next use
+     */
+    public static void setConnectionPool(ConnectionPool connectionPool) {
+        synchronized (DAOManager.class) {
+            if (pool != null && pool != connectionPool) {
+                pool.close();
+            }
+
+            pool = connectionPool;
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool for this thread.
      *
      * @throws SQLException If a database error occurs.
      */
@@ -32,21 +62,37 @@ public class DAOManager {
             return;
         }
 
-        this.con = src.getConnection();
+        this.con = TrackedConnection.track(getConnectionPool().getConnection());
     }
 
     /**
-     * Closes connection to database.
+     * Starts a unit of work on this thread, everything done through the DAOs until
+     * {@link #close()} is released together.
+     *
+     * @param name the name of the unit of work, used when reporting leaks
+     */
+    public void begin(String name) {
+        this.unitOfWork = name;
+    }
+
+    /**
+     * Ends the unit of work of this thread: closes every statement and result set still open
+     * and returns the connection to the pool.
      *
      * @throws SQLException If a database error occurs.
      */
     public void close() throws SQLException {
+        String name = this.unitOfWork;
+        this.unitOfWork = null;
+
         // Only close if connected at all
-        if (this.con == null || this.con.isClosed()) {
+        if (this.con == null) {
             return;
         }
 
-        this.con.close();
+        Connection borrowed = this.con;
+        this.con = null;
+        TrackedConnection.release(borrowed, name == null ? "its unit of work" : name);
     }
 
     /**
@@ -85,13 +131,16 @@ public class DAOManager {
 
     }
 
-    private final DataSource src;
+    private static ConnectionPool pool;
     private Connection con;
+    private String unitOfWork;
+
+    private DAOManager() {}
 
     /**
      * Create a data source to the database server.
      */
-    private DAOManager() {
+    private static DataSource createDataSource() {
         PGSimpleDataSource ds = new PGSimpleDataSource();
 
         // Get connection info from system environment variables
@@ -102,7 +151,7 @@ public class DAOManager {
         ds.setPassword(System.getenv("DB_PASS"));
         ds.setCurrentSchema(System.getenv("DB_SCHEMA"));
 
-        this.src = ds;
+        return ds;
     }
 
     /**
@@ -0,0 +1,343 @@
+package nl.earnit.dao;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.ws.rs.BadRequestException;
+import nl.earnit.exceptions.InvalidCursorException;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset pagination of a query: a page continues after the sort keys of the last row of the
+ * previous page instead of skipping rows with OFFSET.
+ * <p>
+ * The sort keys are the columns ordered by, followed by a unique column so every row has a
+ * distinct position. Cursors are opaque to clients and only valid for the order they were
+ * created with. Nulls are ordered the Postgres way: last when ascending, first when
+ * descending.
+ */
+public class Keyset {
+    /**
+     * The default number of rows in a page.
+     */
+    public static final int DEFAULT_LIMIT = 50;
+
+    /**
+     * The maximum number of rows in a page.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Keyset UNBOUNDED = new Keyset();
+
+    private final int limit;
+    private final String order;
+    private final List<String> after;
+
+    private Keyset() {
+        this.limit = -1;
+        this.order = null;
+        this.after = null;
+    }
+
+    /**
+     * Instantiates a new keyset.
+     *
+     * @param limit the maximum number of rows in a page
+     * @param after the cursor of the previous page, null for the first page
+     * @throws BadRequestException    if the limit is out of range
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    public Keyset(int limit, String after) throws BadRequestException, InvalidCursorException {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        this.limit = limit;
+
+        if (after == null || after.isEmpty()) {
+            this.order = null;
+            this.after = null;
+            return;
+        }
+
+        try {
+            Map<String, Object> cursor = MAPPER.readValue(Base64.getUrlDecoder().decode(after),
+                new TypeReference<>() {});
+            this.order = (String) cursor.get("o");
+            this.after = getValues(cursor.get("v"));
+        } catch (IOException | IllegalArgumentException | ClassCastException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+
+        if (this.order == null || this.after == null || this.after.isEmpty()) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Gets the keyset for the limit and after request parameters.
+     *
+     * @param limit the maximum number of rows in a page, null for the default
+     * @param after the cursor of the previous page, null for the first page
+     * @return the keyset, unbounded if neither is given
+     * @throws BadRequestException    if the limit is out of range
+     * @throws InvalidCursorException if the cursor is invalid
+     */
+    public static Keyset of(Integer limit, String after) throws BadRequestException, InvalidCursorException {
+        if (limit == null && after == null) return UNBOUNDED;
+
+        return new Keyset(limit == null ? DEFAULT_LIMIT : limit, after);
+    }
+
+    /**
+     * Gets the keyset returning every row in a single page.
+     *
+     * @return the keyset
+     */
+    public static Keyset unbounded() {
+        return UNBOUNDED;
+    }
+
+    /**
+     * Is unbounded boolean.
+     *
+     * @return whether every row is returned in a single page
+     */
+    public boolean isUnbounded() {
+        return limit < 0;
+    }
+
+    /**
+     * Gets the sort keys for an order: the order followed by a unique column.
+     *
+     * @param orders the columns to order by
+     * @param unique a column that is unique for every row
+     * @return the sort keys
+     */
+    public List<OrderBy.Order> getKeys(List<OrderBy.Order> orders, String unique) {
+        if (isUnbounded()) return orders;
+
+        List<OrderBy.Order> keys = new ArrayList<>();
+        for (OrderBy.Order order : orders) {
+            keys.add(order);
+
+            // Keys after a unique one do not change the order
+            if (order.column().equals(unique)) return keys;
+        }
+
+        keys.add(new OrderBy.Order(unique, false));
+        return keys;
+    }
+
+    /**
+     * Gets the columns to select, the sort keys of every row are read to create cursors.
+     *
+     * @param keys the sort keys
+     * @return the columns, starting with a comma
+     */
+    public String getSelect(List<OrderBy.Order> keys) {
+        if (isUnbounded()) return "";
+
+        StringBuilder select = new StringBuilder();
+        for (int i = 0; i < keys.size(); i++) {
+            select.append(", ").append(keys.get(i).column()).append(" as keyset_").append(i);
+        }
+
+        return select.toString();
+    }
+
+    /**
+     * Gets the condition for rows after the cursor.
+     *
+     * @param keys the sort keys
+     * @return the condition, starting with AND
+     * @throws InvalidCursorException if the cursor was created for another order
+     */
+    public String getCondition(List<OrderBy.Order> keys) throws InvalidCursorException {
+        if (after == null) return "";
+
+        return " AND (" + buildCondition(keys, new ArrayList<>()) + ")";
+    }
+
+    /**
+     * Binds the values of the cursor to the parameters of the condition.
+     *
+     * @param statement the statement
+     * @param index     the index of the first parameter of the condition
+     * @param keys      the sort keys
+     * @throws SQLException if a parameter could not be bound
+     */
+    public void bind(PreparedStatement statement, int index, List<OrderBy.Order> keys) throws SQLException {
+        if (after == null) return;
+
+        List<String> parameters = new ArrayList<>();
+        buildCondition(keys, parameters);
+
+        // Let Postgres infer the type of every value from its column
+        for (String parameter : parameters) {
+            statement.setObject(index++, parameter, Types.OTHER);
+        }
+    }
+
+    /**
+     * Gets the order by.
+     *
+     * @param keys the sort keys
+     * @return the order by
+     */
+    public String getOrderBy(List<OrderBy.Order> keys) {
+        return OrderBy.convertToOrderBySQL(OrderBy.toSQL(keys));
+    }
+
+    /**
+     * Gets the limit, one more row than fits in the page is read to know if there is a next page.
+     *
+     * @return the limit
+     */
+    public String getLimit() {
+        return isUnbounded() ? "" : " LIMIT " + (limit + 1);
+    }
+
+    /**
+     * Reads a page.
+     *
+     * @param <T>    the type of the rows
+     * @param res    the result set
+     * @param keys   the sort keys
+     * @param mapper maps a row
+     * @return the page
+     * @throws SQLException if a row could not be read
+     */
+    public <T> Page<T> read(ResultSet res, List<OrderBy.Order> keys, RowMapper<T> mapper) throws SQLException {
+        List<T> items = new ArrayList<>();
+        List<String> last = null;
+
+        while (res.next()) {
+            if (!isUnbounded() && items.size() == limit) {
+                // There is another page
+                return new Page<>(items, createCursor(keys, last));
+            }
+
+            items.add(mapper.map(res));
+
+            if (!isUnbounded()) {
+                last = new ArrayList<>(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    last.add(res.getString("keyset_" + i));
+                }
+            }
+        }
+
+        return new Page<>(items, null);
+    }
+
+    /**
+     * Builds the condition for rows after the cursor and collects its parameters. A row is
+     * after the cursor if its first key comes after the first value, or if the first keys are
+     * equal and the next key comes after the next value, etc.
+     */
+    private String buildCondition(List<OrderBy.Order> keys, List<String> parameters) throws InvalidCursorException {
+        if (after.size() != keys.size() || !order.equals(getSignature(keys))) {
+            throw new InvalidCursorException("Cursor does not match the order");
+        }
+
+        List<String> alternatives = new ArrayList<>();
+        StringBuilder equal = new StringBuilder();
+        List<String> equalParameters = new ArrayList<>();
+
+        for (int i = 0; i < keys.size(); i++) {
+            String column = keys.get(i).column();
+            String value = after.get(i);
+
+            String later;
+            if (!keys.get(i).descending()) {
+                // Ascending: nulls are last, nothing comes after a null
+                later = value == null ? null : "(%1$s > ? OR %1$s IS NULL)".formatted(column);
+            } else {
+                // Descending: nulls are first, every value comes after a null
+                later = value == null ? "%s IS NOT NULL".formatted(column) : "%s < ?".formatted(column);
+            }
+
+            if (later != null) {
+                alternatives.add("(" + equal + later + ")");
+                parameters.addAll(equalParameters);
+                if (value != null) parameters.add(value);
+            }
+
+            if (value == null) {
+                equal.append(column).append(" IS NULL AND ");
+            } else {
+                equal.append(column).append(" = ? AND ");
+                equalParameters.add(value);
+            }
+        }
+
+        return alternatives.isEmpty() ? "FALSE" : String.join(" OR ", alternatives);
+    }
+
+    private static List<String> getValues(Object values) throws InvalidCursorException {
+        if (!(values instanceof List<?> list)) return null;
+
+        // The values are compared as text, anything else was not created by a page
+        List<String> strings = new ArrayList<>();
+        for (Object value : list) {
+            if (value != null && !(value instanceof String)) throw new InvalidCursorException("Invalid cursor");
+            strings.add((String) value);
+        }
+
+        return strings;
+    }
+
+    private static String createCursor(List<OrderBy.Order> keys, List<String> values) {
+        Map<String, Object> cursor = new HashMap<>();
+        cursor.put("o", getSignature(keys));
+        cursor.put("v", values);
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(cursor));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String getSignature(List<OrderBy.Order> keys) {
+        String sql = OrderBy.toSQL(keys);
+        return Integer.toHexString((sql == null ? "" : sql).hashCode());
+    }
+
+    /**
+     * Maps a row of a result set.
+     *
+     * @param <T> the type of the row
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        /**
+         * Maps the current row.
+         *
+         * @param res the result set
+         * @return the row
+         * @throws SQLException if the row could not be read
+         */
+        T map(ResultSet res) throws SQLException;
+    }
+
+    /**
+     * A page of rows.
+     *
+     * @param <T>   the type of the rows
+     * @param items the rows
+     * @param next  the cursor of the next page, null if this is the last page
+     */
+    public record Page<T>(List<T> items, String next) {}
+}
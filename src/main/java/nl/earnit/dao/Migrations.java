@@ -0,0 +1,243 @@
+package nl.earnit.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Versioned changes to the database schema, applied on top of the base schema
+ * ({@code db-structure-v2.5.sql}).
+ * <p>
+ * Applied versions are recorded in the {@code schema_version} table. Every migration runs in
+ * its own transaction while holding an advisory lock, so instances starting at the same time
+ * apply each migration once. Migrations are never changed once released, a change to the
+ * schema is a new migration appended to {@link #MIGRATIONS}.
+ */
+public class Migrations {
+    private static final Logger LOGGER = Logger.getLogger(Migrations.class.getName());
+
+    /**
+     * The advisory lock held while migrating.
+     */
+    private static final long LOCK = 0x6561726e6974L;
+
+    /**
+     * All migrations, in the order they are applied.
+     */
+    public static final List<Migration> MIGRATIONS = List.of(
+        new Migration(1, "Index foreign keys and worked week statuses", """
+            CREATE INDEX IF NOT EXISTS "worked_worked_week_id_index" ON "worked"("worked_week_id");
+            CREATE INDEX IF NOT EXISTS "user_contract_user_id_index" ON "user_contract"("user_id");
+            CREATE INDEX IF NOT EXISTS "user_contract_contract_id_index" ON "user_contract"("contract_id");
+            CREATE INDEX IF NOT EXISTS "contract_company_id_index" ON "contract"("company_id");
+            CREATE INDEX IF NOT EXISTS "company_user_company_id_index" ON "company_user"("company_id");
+            CREATE INDEX IF NOT EXISTS "notification_user_id_index" ON "notification"("user_id");
+            CREATE INDEX IF NOT EXISTS "notification_company_id_index" ON "notification"("company_id");
+            CREATE INDEX IF NOT EXISTS "notification_worked_week_id_index" ON "notification"("worked_week_id");
+            CREATE INDEX IF NOT EXISTS "worked_week_status_index" ON "worked_week"("status");
+
+            -- Weeks waiting for approval of a company, looked up per contract
+            CREATE INDEX IF NOT EXISTS "worked_week_confirmed_index" ON "worked_week"("contract_id")
+                WHERE "status" = 'CONFIRMED';
+            -- Invoices, looked up per week
+            CREATE INDEX IF NOT EXISTS "worked_week_approved_index" ON "worked_week"("year", "week")
+                WHERE "status" = 'APPROVED';
+            -- Rejected suggestions handled by staff, looked up before a week
+            CREATE INDEX IF NOT EXISTS "worked_week_suggestion_denied_index" ON "worked_week"("year", "week")
+                WHERE "status" = 'SUGGESTION_DENIED';
+            """),
+        new Migration(2, "Total minutes per worked week", """
+            -- Kept up to date by WorkedDAO, a separate table so updating a total does not
+            -- fire the notification triggers of worked_week
+            CREATE TABLE IF NOT EXISTS "worked_week_total"(
+                "worked_week_id" UUID NOT NULL PRIMARY KEY REFERENCES "worked_week"("id") ON DELETE CASCADE,
+                "minutes" BIGINT NOT NULL DEFAULT 0
+            );
+            CREATE INDEX IF NOT EXISTS "worked_week_total_minutes_index"
+                ON "worked_week_total"("minutes", "worked_week_id");
+
+            INSERT INTO "worked_week_total" ("worked_week_id", "minutes")
+                SELECT "worked_week_id", sum("minutes") FROM "worked" GROUP BY "worked_week_id"
+                ON CONFLICT ("worked_week_id") DO NOTHING;
+            """),
+        new Migration(3, "Creation time and feed indexes of notifications", """
+            -- The date is text, notifications created before it existed get the start of that day
+            ALTER TABLE "notification" ADD COLUMN IF NOT EXISTS "created_at" TIMESTAMPTZ;
+            UPDATE "notification" SET "created_at" = CASE
+                WHEN "date" ~ '^\\d{4}-\\d{2}-\\d{2}' THEN substr("date", 1, 10)::date ELSE now() END
+                WHERE "created_at" IS NULL;
+            ALTER TABLE "notification" ALTER COLUMN "created_at" SET DEFAULT now(),
+                ALTER COLUMN "created_at" SET NOT NULL;
+
+            -- Feeds of a student, a company and staff, newest first
+            CREATE INDEX IF NOT EXISTS "notification_user_feed_index"
+                ON "notification"("user_id", "created_at" DESC, "id");
+            CREATE INDEX IF NOT EXISTS "notification_company_feed_index"
+                ON "notification"("company_id", "created_at" DESC, "id");
+            CREATE INDEX IF NOT EXISTS "notification_conflict_feed_index"
+                ON "notification"("created_at" DESC, "id") WHERE "type" = 'CONFLICT';
+
+            -- Unread counts, only a few notifications are unread
+            CREATE INDEX IF NOT EXISTS "notification_user_unread_index"
+                ON "notification"("user_id", "type") WHERE NOT "seen";
+            CREATE INDEX IF NOT EXISTS "notification_company_unread_index"
+                ON "notification"("company_id", "type") WHERE NOT "seen";
+            CREATE INDEX IF NOT EXISTS "notification_type_unread_index"
+                ON "notification"("type") WHERE NOT "seen";
+            """),
+        new Migration(4, "Row versions", """
+            -- One sequence for all tables, a row gets a new version on every change. A set of
+            -- rows changed if its highest version or its number of rows changed.
+            CREATE SEQUENCE IF NOT EXISTS "row_version";
+
+            CREATE OR REPLACE FUNCTION bump_row_version()
+              RETURNS TRIGGER AS $BODY$
+            BEGIN
+              NEW.version = nextval('row_version');
+              RETURN NEW;
+            END;
+            $BODY$ LANGUAGE plpgsql;
+
+            ALTER TABLE "user" ADD COLUMN IF NOT EXISTS "version" BIGINT NOT NULL DEFAULT nextval('row_version');
+            ALTER TABLE "company" ADD COLUMN IF NOT EXISTS "version" BIGINT NOT NULL DEFAULT nextval('row_version');
+            ALTER TABLE "contract" ADD COLUMN IF NOT EXISTS "version" BIGINT NOT NULL DEFAULT nextval('row_version');
+            ALTER TABLE "user_contract" ADD COLUMN IF NOT EXISTS "version" BIGINT NOT NULL DEFAULT nextval('row_version');
+            ALTER TABLE "worked_week" ADD COLUMN IF NOT EXISTS "version" BIGINT NOT NULL DEFAULT nextval('row_version');
+            ALTER TABLE "worked" ADD COLUMN IF NOT EXISTS "version" BIGINT NOT NULL DEFAULT nextval('row_version');
+            ALTER TABLE "notification" ADD COLUMN IF NOT EXISTS "version" BIGINT NOT NULL DEFAULT nextval('row_version');
+
+            -- Updates that change nothing, like the cascades disabling contracts, keep the version
+            DROP TRIGGER IF EXISTS "user_version" ON "user";
+            CREATE TRIGGER "user_version" BEFORE UPDATE ON "user"
+                FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_row_version();
+            DROP TRIGGER IF EXISTS "company_version" ON "company";
+            CREATE TRIGGER "company_version" BEFORE UPDATE ON "company"
+                FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_row_version();
+            DROP TRIGGER IF EXISTS "contract_version" ON "contract";
+            CREATE TRIGGER "contract_version" BEFORE UPDATE ON "contract"
+                FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_row_version();
+            DROP TRIGGER IF EXISTS "user_contract_version" ON "user_contract";
+            CREATE TRIGGER "user_contract_version" BEFORE UPDATE ON "user_contract"
+                FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_row_version();
+            DROP TRIGGER IF EXISTS "worked_week_version" ON "worked_week";
+            CREATE TRIGGER "worked_week_version" BEFORE UPDATE ON "worked_week"
+                FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_row_version();
+            DROP TRIGGER IF EXISTS "worked_version" ON "worked";
+            CREATE TRIGGER "worked_version" BEFORE UPDATE ON "worked"
+                FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_row_version();
+            DROP TRIGGER IF EXISTS "notification_version" ON "notification";
+            CREATE TRIGGER "notification_version" BEFORE UPDATE ON "notification"
+                FOR EACH ROW WHEN (OLD IS DISTINCT FROM NEW) EXECUTE FUNCTION bump_row_version();
+            """),
+        new Migration(5, "Token versions of users", """
+            -- Raised when the claims in the tokens of a user become stale, see TokenVersions
+            ALTER TABLE "user" ADD COLUMN IF NOT EXISTS "token_version" INTEGER NOT NULL DEFAULT 0;
+            CREATE INDEX IF NOT EXISTS "user_token_version_index" ON "user"("id", "token_version")
+                WHERE "token_version" > 0;
+            """)
+    );
+
+    /**
+     * Applies all migrations that have not been applied yet.
+     *
+     * @param con the connection
+     * @return the number of migrations applied
+     * @throws SQLException if a migration failed, it is rolled back
+     */
+    public static int migrate(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute("""
+                CREATE TABLE IF NOT EXISTS "schema_version"(
+                    "version" INTEGER NOT NULL PRIMARY KEY,
+                    "description" TEXT NOT NULL,
+                    "applied_at" TIMESTAMPTZ NOT NULL DEFAULT now()
+                )""");
+        }
+
+        boolean autoCommit = con.getAutoCommit();
+        int applied = 0;
+        try {
+            con.setAutoCommit(false);
+
+            for (Migration migration : MIGRATIONS) {
+                try {
+                    if (apply(con, migration)) applied++;
+                    con.commit();
+                } catch (SQLException e) {
+                    con.rollback();
+                    throw e;
+                }
+            }
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+
+        return applied;
+    }
+
+    /**
+     * Gets the version of the schema.
+     *
+     * @param con the connection
+     * @return the latest applied version, 0 if none was applied
+     * @throws SQLException if the version could not be read
+     */
+    public static int getVersion(Connection con) throws SQLException {
+        String query = "SELECT COALESCE(MAX(\"version\"), 0) as version FROM \"schema_version\"";
+
+        try (Statement statement = con.createStatement()) {
+            // Not migrated at all
+            try (ResultSet res = statement.executeQuery("SELECT to_regclass('schema_version') IS NULL as missing")) {
+                if (res.next() && res.getBoolean("missing")) return 0;
+            }
+
+            // Execute query
+            try (ResultSet res = statement.executeQuery(query)) {
+                // Return
+                return res.next() ? res.getInt("version") : 0;
+            }
+        }
+    }
+
+    private static boolean apply(Connection con, Migration migration) throws SQLException {
+        // Released at the end of the transaction
+        try (PreparedStatement lock = con.prepareStatement("SELECT pg_advisory_xact_lock(?)")) {
+            lock.setLong(1, LOCK);
+            lock.execute();
+        }
+
+        try (PreparedStatement applied = con.prepareStatement("SELECT 1 FROM \"schema_version\" WHERE \"version\" = ?")) {
+            applied.setInt(1, migration.version());
+            try (ResultSet res = applied.executeQuery()) {
+                if (res.next()) return false;
+            }
+        }
+
+        LOGGER.info("Applying migration " + migration.version() + ": " + migration.description());
+        try (Statement statement = con.createStatement()) {
+            statement.execute(migration.sql());
+        }
+
+        try (PreparedStatement record = con.prepareStatement(
+            "INSERT INTO \"schema_version\" (\"version\", \"description\") VALUES (?, ?)")) {
+            record.setInt(1, migration.version());
+            record.setString(2, migration.description());
+            record.executeUpdate();
+        }
+
+        return true;
+    }
+
+    /**
+     * A change to the schema.
+     *
+     * @param version     the version the schema is at after the migration
+     * @param description the description
+     * @param sql         the statements of the migration
+     */
+    public record Migration(int version, String description, String sql) {}
+}
@@ -0,0 +1,185 @@
+package nl.earnit.dao;
+
+import nl.earnit.dto.NotificationCountDTO;
+import nl.earnit.dto.NotificationDTO;
+import nl.earnit.helpers.NotificationTemplate;
+import nl.earnit.helpers.PostgresJDBCHelper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static nl.earnit.Constants.getName;
+
+/**
+ * The notifications of a student, a company or staff, newest first.
+ * <p>
+ * Only the notifications of a type with a template are part of the feed, so pages are never
+ * short. A page is selected from the notifications alone, using the index on the recipient and
+ * creation time, before the names it is rendered with are joined.
+ */
+class NotificationFeed {
+    /**
+     * The largest number of unread notifications that is counted.
+     */
+    static final int MAX_UNREAD = 100;
+
+    private final Connection con;
+    private final String recipient;
+    private final Map<String, NotificationTemplate> templates;
+
+    /**
+     * Instantiates a new notification feed.
+     *
+     * @param con       the connection
+     * @param recipient the column of the recipient, null for a feed of all notifications
+     * @param templates the templates of the types in the feed
+     */
+    NotificationFeed(Connection con, String recipient, Map<String, NotificationTemplate> templates) {
+        this.con = con;
+        this.recipient = recipient;
+        this.templates = templates;
+    }
+
+    /**
+     * Gets a page of the feed.
+     *
+     * @param recipientId the id of the recipient, ignored for a feed of all notifications
+     * @param keyset      the page
+     * @return the page
+     * @throws SQLException the sql SQLException
+     */
+    Keyset.Page<NotificationDTO> getPage(String recipientId, Keyset keyset) throws SQLException {
+        List<OrderBy.Order> keys = keyset.getKeys(List.of(new OrderBy.Order("n.created_at", true)), "n.id");
+
+        String query = """
+            SELECT n.id, n.date, n.seen, n.type, n.user_id, n.company_id, n.worked_week_id,
+                u.first_name, u.last_name_prefix, u.last_name, cy.name AS company_name, ww.week, c.role,
+                uc.id as user_contract_id, c.id as contract_id%1$s
+            FROM (SELECT * FROM notification n WHERE (%2$s)%3$s%4$s) n
+            JOIN "user" u ON u.id = n.user_id
+            JOIN company cy ON cy.id = n.company_id
+            LEFT JOIN worked_week ww ON ww.id = n.worked_week_id
+            LEFT JOIN user_contract uc ON uc.id = ww.contract_id
+            LEFT JOIN contract c ON c.id = uc.contract_id
+            %5$s
+            """.formatted(keyset.getSelect(keys), getCondition(), keyset.getCondition(keys),
+            keyset.getOrderBy(keys) + keyset.getLimit(), keyset.getOrderBy(keys));
+
+        PreparedStatement statement = this.con.prepareStatement(query);
+        int index = bind(statement, recipientId);
+        keyset.bind(statement, index, keys);
+
+        ResultSet res = statement.executeQuery();
+        return keyset.read(res, keys, this::getNotificationFromRow);
+    }
+
+    /**
+     * Gets the version of the feed, it changes when a notification in the feed or a name it is
+     * rendered with changes.
+     *
+     * @param recipientId the id of the recipient, ignored for a feed of all notifications
+     * @return the version
+     * @throws SQLException the sql SQLException
+     */
+    String getVersion(String recipientId) throws SQLException {
+        String query = """
+            SELECT COALESCE(GREATEST(MAX(n.version), MAX(u.version), MAX(cy.version), MAX(c.version)), 0)
+                || '.' || COUNT(*) AS version
+            FROM notification n
+            JOIN "user" u ON u.id = n.user_id
+            JOIN company cy ON cy.id = n.company_id
+            LEFT JOIN worked_week ww ON ww.id = n.worked_week_id
+            LEFT JOIN user_contract uc ON uc.id = ww.contract_id
+            LEFT JOIN contract c ON c.id = uc.contract_id
+            WHERE %s
+            """.formatted(getCondition());
+
+        PreparedStatement statement = this.con.prepareStatement(query);
+        bind(statement, recipientId);
+
+        ResultSet res = statement.executeQuery();
+        res.next();
+        return res.getString("version");
+    }
+
+    /**
+     * Counts the unread notifications in the feed, up to {@link #MAX_UNREAD}. Only the partial
+     * index of unread notifications is read.
+     *
+     * @param recipientId the id of the recipient, ignored for a feed of all notifications
+     * @return the number of unread notifications and whether there are more
+     * @throws SQLException the sql SQLException
+     */
+    NotificationCountDTO countUnread(String recipientId) throws SQLException {
+        PreparedStatement statement = this.con.prepareStatement("SELECT (" + getUnreadQuery() + ") AS count");
+        bind(statement, recipientId);
+
+        ResultSet res = statement.executeQuery();
+        res.next();
+        return toUnreadCount(res.getInt("count"));
+    }
+
+    /**
+     * Gets the query counting the unread notifications, up to one more than
+     * {@link #MAX_UNREAD}, so it can be part of a larger query. It has a parameter for the
+     * recipient, unless the feed has all notifications.
+     *
+     * @return the query
+     */
+    String getUnreadQuery() {
+        // One more than the maximum tells whether there are more
+        return "SELECT COUNT(*) FROM (SELECT 1 FROM notification n WHERE %s AND NOT n.seen LIMIT %d) n"
+            .formatted(getCondition(), MAX_UNREAD + 1);
+    }
+
+    /**
+     * Converts the result of {@link #getUnreadQuery()}.
+     *
+     * @param count the counted notifications
+     * @return the number of unread notifications and whether there are more
+     */
+    static NotificationCountDTO toUnreadCount(int count) {
+        return new NotificationCountDTO(Math.min(count, MAX_UNREAD), count > MAX_UNREAD);
+    }
+
+    private String getCondition() {
+        // The types are constants and written out, so the planner can match the partial indexes
+        String types = templates.keySet().stream()
+            .map(type -> "'" + type.replace("'", "''") + "'")
+            .collect(Collectors.joining(", "));
+
+        return (recipient == null ? "" : "n." + recipient + " = ? AND ") + "n.type IN (" + types + ")";
+    }
+
+    private int bind(PreparedStatement statement, String recipientId) throws SQLException {
+        int index = 1;
+        if (recipient != null) {
+            PostgresJDBCHelper.setUuid(statement, index++, recipientId);
+        }
+
+        return index;
+    }
+
+    private NotificationDTO getNotificationFromRow(ResultSet res) throws SQLException {
+        String type = res.getString("type");
+        NotificationTemplate template = templates.get(type);
+
+        Map<String, String> values = new HashMap<>();
+        values.put(NotificationTemplate.COMPANY, res.getString("company_name"));
+        values.put(NotificationTemplate.ROLE, res.getString("role"));
+        values.put(NotificationTemplate.USER, getName(res.getString("first_name"), res.getString("last_name_prefix"),
+            res.getString("last_name")));
+        values.put(NotificationTemplate.WEEK, res.getString("week"));
+
+        return new NotificationDTO(res.getString("id"), res.getString("date"), res.getBoolean("seen"), type,
+            template.getTitle(), template.render(values), res.getString("user_id"), res.getString("company_id"),
+            res.getString("user_contract_id"), res.getString("contract_id"), res.getString("worked_week_id"),
+            res.getInt("week"));
+    }
+}
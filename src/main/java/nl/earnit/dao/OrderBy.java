@@ -2,6 +2,8 @@ package nl.earnit.dao;
 
 import nl.earnit.exceptions.InvalidOrderByException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -72,12 +74,29 @@ public class OrderBy {
      * @throws InvalidOrderByException If query is invalid
      */
     public String getSQLOrderBy(String query, boolean convertToOrderBySql) throws InvalidOrderByException {
+        String sqlOrderBy = toSQL(getSQLOrders(query));
+
+        if (convertToOrderBySql) {
+            return convertToOrderBySQL(sqlOrderBy);
+        }
+
+        return sqlOrderBy;
+    }
+
+    /**
+     * Returns the columns to order by e.g.: week.year:desc -> w.year descending
+     *
+     * @param query to convert
+     * @return the columns to order by, columns that are not allowed are left out
+     * @throws InvalidOrderByException If query is invalid
+     */
+    public List<Order> getSQLOrders(String query) throws InvalidOrderByException {
         if (!isValid(query)){
             throw new InvalidOrderByException("Query does not match '<column>:<asc|desc>,<column>:<asc|desc>'");
         }
 
         String[] orders = query.split(",");
-        StringBuilder sqlBuilder = new StringBuilder();
+        List<Order> sqlOrders = new ArrayList<>();
         for (String order : orders) {
             if (order.length() < 1) continue;
 
@@ -87,19 +106,28 @@ public class OrderBy {
 
             if (!allowedColumns.containsKey(column)) continue;
 
-            sqlBuilder.append(allowedColumns.get(column)).append(" ").append(direction).append(",");
+            sqlOrders.add(new Order(allowedColumns.get(column), direction.equals("desc")));
         }
 
-        String sql = sqlBuilder.toString();
-        String sqlOrderBy = sql.length() == 0
-            ? null
-            : sql.substring(0, sql.length() - 1);
+        return sqlOrders;
+    }
 
-        if (convertToOrderBySql) {
-            return convertToOrderBySQL(sqlOrderBy);
+    /**
+     * Joins columns to order by e.g.: w.year descending -> w.year desc
+     *
+     * @param orders the columns to order by
+     * @return the order by, null if there are no columns
+     */
+    public static String toSQL(List<Order> orders) {
+        if (orders.isEmpty()) return null;
+
+        StringBuilder sqlBuilder = new StringBuilder();
+        for (Order order : orders) {
+            if (sqlBuilder.length() > 0) sqlBuilder.append(",");
+            sqlBuilder.append(order.column()).append(order.descending() ? " desc" : " asc");
         }
 
-        return sqlOrderBy;
+        return sqlBuilder.toString();
     }
 
     /**
@@ -111,4 +139,12 @@ public class OrderBy {
     public static String convertToOrderBySQL(String sqlOrderBy) {
         return sqlOrderBy == null ? "" : " ORDER BY " + sqlOrderBy;
     }
+
+    /**
+     * A column to order by.
+     *
+     * @param column     the sql column
+     * @param descending whether to order descending
+     */
+    public record Order(String column, boolean descending) {}
 }
@@ -0,0 +1,357 @@
+package nl.earnit.dao;
+
+import nl.earnit.helpers.Histogram;
+import nl.earnit.helpers.RequestMetrics;
+import org.postgresql.util.PGobject;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Timing of the queries executed on tracked connections, per DAO method.
+ * <p>
+ * Statements are attributed to the innermost {@link GenericDAO} method that created them.
+ * For every DAO method a latency histogram of the executions, the rows returned and the rows
+ * updated are kept. Executions slower than {@code QUERY_SLOW_MS} (default 250) are logged
+ * with the types of their bind parameters, never their values, and the most recent ones are
+ * kept for the metrics endpoint. The time spent is also added to the database phase of the
+ * current request in {@link RequestMetrics}.
+ */
+public class QueryMetrics {
+    private static final Logger LOGGER = Logger.getLogger(QueryMetrics.class.getName());
+
+    private static final int MAX_SLOW_QUERIES = 100;
+    private static final String OTHER = "other";
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private static final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private static volatile double slowThresholdMillis = getEnv("QUERY_SLOW_MS", 250);
+
+    /**
+     * Wraps a statement so its executions are timed.
+     *
+     * @param statement the statement
+     * @param sql       the sql it was prepared with, null for a plain statement
+     * @return the instrumented statement
+     */
+    static Statement instrument(Statement statement, String sql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+            : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+
+        return (Statement) Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(), new Class[] {type},
+            new StatementHandle(statement, sql, getStats(getCaller())));
+    }
+
+    /**
+     * Gets the statistics of every DAO method that executed a query.
+     *
+     * @return the statistics by DAO method, e.g. {@code WorkedWeekDAO.getWorkedWeekById}
+     */
+    public static Map<String, Stats> getStats() {
+        return new TreeMap<>(stats);
+    }
+
+    /**
+     * Gets the most recent slow queries.
+     *
+     * @return the slow queries, the most recent first
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    /**
+     * Sets the duration from which an execution is logged as slow.
+     *
+     * @param millis the threshold in milliseconds
+     */
+    public static void setSlowThresholdMillis(double millis) {
+        slowThresholdMillis = millis;
+    }
+
+    /**
+     * Removes all statistics and slow queries.
+     */
+    public static void clear() {
+        stats.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    private static Stats getStats(String query) {
+        return stats.computeIfAbsent(query, Stats::new);
+    }
+
+    private static String getCaller() {
+        return WALKER.walk(frames -> frames
+            .filter(frame -> GenericDAO.class.isAssignableFrom(frame.getDeclaringClass()))
+            .findFirst()
+            .map(frame -> frame.getDeclaringClass().getSimpleName() + "." + getMethodName(frame.getMethodName()))
+            .orElse(OTHER));
+    }
+
+    private static String getMethodName(String name) {
+        // Lambdas are named lambda$<method>$<n>
+        if (name.startsWith("lambda$")) {
+            int end = name.indexOf('$', 7);
+            return end > 7 ? name.substring(7, end) : name;
+        }
+
+        return name;
+    }
+
+    private static void recordSlowQuery(Stats query, String sql, List<String> parameters, double millis) {
+        String statement = sql == null ? "" : sql.strip().replaceAll("\\s+", " ");
+        LOGGER.warning("Slow query %s took %.1f ms with parameters %s: %s".formatted(query.getQuery(), millis,
+            parameters, statement));
+
+        synchronized (slowQueries) {
+            slowQueries.addFirst(new SlowQuery(query.getQuery(), statement, parameters, millis, System.currentTimeMillis()));
+            if (slowQueries.size() > MAX_SLOW_QUERIES) slowQueries.removeLast();
+        }
+    }
+
+    private static double getEnv(String name, double fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) return fallback;
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Ignoring invalid value for " + name + ": " + value);
+            return fallback;
+        }
+    }
+
+    /**
+     * Statistics of the queries of a DAO method.
+     */
+    public static class Stats {
+        private final String query;
+        private final Histogram latency = new Histogram(Histogram.LATENCY_MILLIS);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder updates = new LongAdder();
+
+        private Stats(String query) {
+            this.query = query;
+        }
+
+        /**
+         * Gets the DAO method.
+         *
+         * @return the DAO method
+         */
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * Gets the execution times.
+         *
+         * @return the latency in milliseconds
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Gets the number of executions that failed.
+         *
+         * @return the errors
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * Gets the number of rows read from the results.
+         *
+         * @return the rows
+         */
+        public long getRows() {
+            return rows.sum();
+        }
+
+        /**
+         * Gets the number of rows inserted, updated or deleted.
+         *
+         * @return the updated rows
+         */
+        public long getUpdates() {
+            return updates.sum();
+        }
+    }
+
+    /**
+     * An execution that took longer than the threshold.
+     *
+     * @param query      the DAO method
+     * @param sql        the sql
+     * @param parameters the types of the bind parameters
+     * @param millis     the duration in milliseconds
+     * @param at         when it finished, in epoch milliseconds
+     */
+    public record SlowQuery(String query, String sql, List<String> parameters, double millis, long at) {}
+
+    private static class StatementHandle implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Stats stats;
+        private final List<String> parameters = new ArrayList<>();
+
+        private StatementHandle(Statement statement, String sql, Stats stats) {
+            this.statement = statement;
+            this.sql = sql;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "clearParameters" -> parameters.clear();
+            }
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                setParameter(index, getShape(name, args));
+            }
+
+            if (!name.startsWith("execute") && !name.equals("getResultSet")) {
+                return call(method, args);
+            }
+
+            if (name.equals("getResultSet")) {
+                return wrap(call(method, args));
+            }
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = call(method, args);
+            } catch (Throwable e) {
+                stats.errors.increment();
+                throw e;
+            } finally {
+                long nanos = System.nanoTime() - start;
+                RequestMetrics.add(RequestMetrics.Phase.DATABASE, nanos);
+
+                double millis = nanos / 1_000_000.0;
+                stats.latency.record(millis);
+                if (millis >= slowThresholdMillis) {
+                    recordSlowQuery(stats, args != null && args.length > 0 && args[0] instanceof String executed
+                        ? executed : sql, new ArrayList<>(parameters), millis);
+                }
+            }
+
+            if (result instanceof Integer updated) {
+                stats.updates.add(Math.max(updated, 0));
+            } else if (result instanceof Long updated) {
+                stats.updates.add(Math.max(updated, 0));
+            } else if (result instanceof int[] batch) {
+                for (int updated : batch) stats.updates.add(Math.max(updated, 0));
+            }
+
+            return wrap(result);
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Object wrap(Object result) {
+            if (!(result instanceof ResultSet resultSet)) return result;
+
+            return Proxy.newProxyInstance(QueryMetrics.class.getClassLoader(), new Class[] {ResultSet.class},
+                new ResultSetHandle(resultSet, stats));
+        }
+
+        private void setParameter(int index, String shape) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, shape);
+        }
+
+        private static String getShape(String setter, Object[] args) {
+            if (setter.equals("setNull")) return "null";
+            if (!setter.equals("setObject")) return setter.substring(3).toLowerCase();
+
+            if (args[1] instanceof PGobject object) return object.getType();
+            if (args.length >= 3 && args[2] instanceof Integer sqlType) {
+                try {
+                    return JDBCType.valueOf(sqlType).getName().toLowerCase();
+                } catch (IllegalArgumentException ignored) {
+                    // Vendor specific type
+                }
+            }
+
+            return args[1] == null ? "null" : args[1].getClass().getSimpleName().toLowerCase();
+        }
+    }
+
+    private static class ResultSetHandle implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final Stats stats;
+
+        private ResultSetHandle(ResultSet resultSet, Stats stats) {
+            this.resultSet = resultSet;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+            }
+
+            Object result;
+            try {
+                result = method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                stats.rows.increment();
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package nl.earnit.dao;
+
+import org.postgresql.PGStatement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for a single physical connection, keyed by the SQL text.
+ * <p>
+ * Cached statements are prepared as named server-side statements on their first execution,
+ * so Postgres parses and plans a query only once per connection. Closing a statement handed
+ * out by the cache puts it back instead of closing it. If the same SQL is prepared again
+ * while the cached statement is still in use, an uncached statement is returned.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final int maxSize;
+    private final Counters counters;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    /**
+     * Instantiates a new statement cache.
+     *
+     * @param connection the physical connection
+     * @param maxSize    the maximum number of cached statements
+     * @param counters   the counters to record hits and misses in
+     */
+    StatementCache(Connection connection, int maxSize, Counters counters) {
+        this.connection = connection;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+
+                counters.evictions.incrementAndGet();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Prepares a statement through the cache.
+     *
+     * @param sql the sql
+     * @return the prepared statement
+     * @throws SQLException if the statement could not be prepared
+     */
+    PreparedStatement prepareStatement(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null) {
+            if (cached.inUse) {
+                counters.misses.incrementAndGet();
+                return connection.prepareStatement(sql);
+            }
+
+            counters.hits.incrementAndGet();
+            return cached.checkout();
+        }
+
+        counters.misses.incrementAndGet();
+        PreparedStatement statement = connection.prepareStatement(sql);
+
+        // Use a named server-side statement from the first execution on
+        if (statement.isWrapperFor(PGStatement.class)) {
+            statement.unwrap(PGStatement.class).setPrepareThreshold(1);
+        }
+
+        cached = new CachedStatement(statement);
+        statements.put(sql, cached);
+        return cached.checkout();
+    }
+
+    /**
+     * Closes every cached statement.
+     */
+    void clear() {
+        new ArrayList<>(statements.values()).forEach(CachedStatement::evict);
+        statements.clear();
+    }
+
+    /**
+     * A statement owned by the cache.
+     */
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse = false;
+        private boolean evicted = false;
+
+        private CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        private PreparedStatement checkout() {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(StatementCache.class.getClassLoader(),
+                new Class[] {PreparedStatement.class}, new Handle(this));
+        }
+
+        private void checkin(List<ResultSet> resultSets) {
+            for (ResultSet resultSet : resultSets) {
+                try {
+                    resultSet.close();
+                } catch (SQLException ignored) {
+                }
+            }
+
+            try {
+                statement.clearParameters();
+            } catch (SQLException e) {
+                evicted = true;
+            }
+
+            inUse = false;
+            if (evicted) {
+                evict();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            if (inUse) return;
+
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The handle given to a borrower, closing it puts the statement back in the cache.
+     */
+    private static class Handle implements InvocationHandler {
+        private CachedStatement cached;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+
+        private Handle(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (cached != null) {
+                        CachedStatement returned = cached;
+                        cached = null;
+                        returned.checkin(resultSets);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return cached == null || cached.statement.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+            }
+
+            if (cached == null) {
+                throw new SQLException("This statement has been closed.");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            // Result sets are closed when the statement goes back to the cache
+            if (result instanceof ResultSet resultSet) {
+                resultSets.add(resultSet);
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Hit and miss counters shared by the statement caches of a pool.
+     */
+    static class Counters {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        long getHits() {
+            return hits.get();
+        }
+
+        long getMisses() {
+            return misses.get();
+        }
+
+        long getEvictions() {
+            return evictions.get();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package nl.earnit.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wraps the connection used for a single unit of work and remembers every statement created
+ * on it, so they can all be released when the unit of work ends. Closing a statement also
+ * closes the result sets it produced. Statements are handed out instrumented by
+ * {@link QueryMetrics}.
+ */
+public class TrackedConnection implements InvocationHandler {
+    private static final Logger LOGGER = Logger.getLogger(TrackedConnection.class.getName());
+
+    private static final AtomicLong statementsCreated = new AtomicLong();
+    private static final AtomicLong statementsLeaked = new AtomicLong();
+
+    // Queries already reported as leaking
+    private static final int MAX_REPORTED = 1000;
+    private static final Set<String> reported = ConcurrentHashMap.newKeySet();
+
+    // Prune closed statements once this many are tracked, keeps long units of work bounded
+    private static final int PRUNE_THRESHOLD = 64;
+
+    private final Connection connection;
+    private final Map<Statement, String> statements = new IdentityHashMap<>();
+
+    private TrackedConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Wraps a connection so the statements created on it are tracked.
+     *
+     * @param connection the connection
+     * @return the tracked connection
+     */
+    public static Connection track(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(TrackedConnection.class.getClassLoader(),
+            new Class[] {Connection.class}, new TrackedConnection(connection));
+    }
+
+    /**
+     * Closes every statement (and with it every result set) still open on a tracked
+     * connection and then closes the connection itself.
+     *
+     * @param connection the tracked connection
+     * @param owner      description of the unit of work, used when logging leaks
+     * @throws SQLException if the connection could not be closed
+     */
+    public static void release(Connection connection, String owner) throws SQLException {
+        if (Proxy.isProxyClass(connection.getClass())
+            && Proxy.getInvocationHandler(connection) instanceof TrackedConnection tracked) {
+            tracked.closeStatements(owner);
+        }
+
+        connection.close();
+    }
+
+    /**
+     * Gets the number of statements created on tracked connections.
+     *
+     * @return the statements created
+     */
+    public static long getStatementsCreated() {
+        return statementsCreated.get();
+    }
+
+    /**
+     * Gets the number of statements that were still open when their unit of work ended.
+     *
+     * @return the statements leaked
+     */
+    public static long getStatementsLeaked() {
+        return statementsLeaked.get();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+        }
+
+        Object result;
+        try {
+            result = method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+
+        if (result instanceof Statement created) {
+            statementsCreated.incrementAndGet();
+            if (statements.size() >= PRUNE_THRESHOLD) {
+                statements.keySet().removeIf(TrackedConnection::isClosed);
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String query ? query : null;
+            Statement statement = QueryMetrics.instrument(created, sql);
+            statements.put(statement, sql != null ? sql : method.getName());
+            result = statement;
+        }
+
+        return result;
+    }
+
+    private void closeStatements(String owner) {
+        List<String> leaked = new ArrayList<>();
+
+        for (Map.Entry<Statement, String> entry : statements.entrySet()) {
+            if (isClosed(entry.getKey())) continue;
+
+            leaked.add(entry.getValue());
+            try {
+                entry.getKey().close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Could not close statement", e);
+            }
+        }
+        statements.clear();
+
+        if (leaked.isEmpty()) return;
+
+        statementsLeaked.addAndGet(leaked.size());
+        for (String sql : leaked) {
+            // Report every leaking query once, afterwards only count it
+            if (reported.size() < MAX_REPORTED && reported.add(sql)) {
+                LOGGER.warning("Statement outlived %s and was closed: %s".formatted(owner,
+                    sql.strip().replaceAll("\\s+", " ")));
+            }
+        }
+    }
+
+    private static boolean isClosed(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package nl.earnit.dao;
 
 import nl.earnit.dto.contracts.ContractDTO;
 import nl.earnit.dto.user.UserContractDTO;
+import nl.earnit.helpers.InvoiceCache;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.Company;
 import nl.earnit.models.User;
@@ -61,6 +62,26 @@ public class UserContractDAO extends GenericDAO<User> {
         return res.getInt("count");
     }
 
+    /**
+     * Gets the version of the active contracts of a user, with their contract and company.
+     *
+     * @param userId the user id
+     * @return the version
+     * @throws SQLException the sql exception
+     */
+    public String getUserContractsVersion(String userId) throws SQLException {
+        String query = """
+            SELECT COALESCE(GREATEST(MAX(u.version), MAX(c.version), MAX(cy.version)), 0) || '.' || COUNT(*) AS version
+            FROM "%s" u JOIN contract c ON u.contract_id = c.id JOIN company cy on cy.id = c.company_id
+            WHERE u.user_id = ? and u.active = true""".formatted(tableName);
+        PreparedStatement statement = this.con.prepareStatement(query);
+        PostgresJDBCHelper.setUuid(statement, 1, userId);
+
+        ResultSet res = statement.executeQuery();
+        res.next();
+        return res.getString("version");
+    }
+
     /**
      * get all the contracts that belong to a user
      * @param userId the user you want the id's for
@@ -177,6 +198,14 @@ public class UserContractDAO extends GenericDAO<User> {
         statement.setInt(1, hourlyWage);
         PostgresJDBCHelper.setUuid(statement, 2, id);
         statement.executeUpdate();
+
+        // The invoices of every week of the contract change
+        PreparedStatement weeks = this.con.prepareStatement("SELECT id FROM worked_week WHERE contract_id = ?");
+        PostgresJDBCHelper.setUuid(weeks, 1, id);
+        ResultSet res = weeks.executeQuery();
+        while (res.next()) {
+            InvoiceCache.getInstance().invalidate(res.getString("id"));
+        }
     }
 
     /**
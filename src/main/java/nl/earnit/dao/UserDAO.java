@@ -1,7 +1,16 @@
 package nl.earnit.dao;
 
 import jakarta.annotation.Nullable;
+import nl.earnit.AccessCache;
+import nl.earnit.AuthenticationCache;
+import nl.earnit.TokenVersions;
+import nl.earnit.dto.NotificationCountDTO;
 import nl.earnit.dto.NotificationDTO;
+import nl.earnit.dto.user.StudentDashboardDTO;
+import nl.earnit.dto.user.UserContractDTO;
+import nl.earnit.dto.workedweek.WorkedWeekDTO;
+import nl.earnit.helpers.JsonRowDecoder;
+import nl.earnit.helpers.NotificationTemplate;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.Company;
 import nl.earnit.models.User;
@@ -15,8 +24,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-
-import static nl.earnit.Constants.getName;
+import java.util.Map;
 
 /**
  * The type User dao.
@@ -63,6 +71,51 @@ public class UserDAO extends GenericDAO<User> {
         return getUser("id", id, "uuid");
     }
 
+    /**
+     * Gets the version of a user.
+     *
+     * @param id The id of the user.
+     * @return The version or null if not found.
+     * @throws SQLException If a database error occurs.
+     */
+    public String getUserVersion(String id) throws SQLException {
+        String query = "SELECT version FROM \"" + tableName + "\" WHERE id = ?";
+        PreparedStatement statement = this.con.prepareStatement(query);
+        PostgresJDBCHelper.setUuid(statement, 1, id);
+
+        ResultSet res = statement.executeQuery();
+        return res.next() ? res.getString("version") : null;
+    }
+
+    /**
+     * Gets the token versions of all users whose version was raised, see {@link TokenVersions}.
+     *
+     * @return the token versions by user id
+     * @throws SQLException If a database error occurs.
+     */
+    public Map<String, Integer> getTokenVersions() throws SQLException {
+        String query = "SELECT id, token_version FROM \"" + tableName + "\" WHERE token_version > 0";
+        PreparedStatement statement = this.con.prepareStatement(query);
+
+        ResultSet res = statement.executeQuery();
+        Map<String, Integer> versions = new HashMap<>();
+        while (res.next()) {
+            versions.put(res.getString("id"), res.getInt("token_version"));
+        }
+
+        return versions;
+    }
+
+    private int updateTokenVersions(ResultSet res) throws SQLException {
+        int updated = 0;
+        while (res.next()) {
+            TokenVersions.update(res.getString("id"), res.getInt("token_version"));
+            updated++;
+        }
+
+        return updated;
+    }
+
     /**
      * Get user with given email.
      *
@@ -77,7 +130,7 @@ public class UserDAO extends GenericDAO<User> {
     private User getUser(String colum, String value, String type) throws SQLException {
         // Create query
         String query =
-            "SELECT id, email, first_name, last_name, last_name_prefix, password, type, kvk, address, btw FROM \"" + tableName + "\" WHERE \"" + colum + "\" = ?";
+            "SELECT id, email, first_name, last_name, last_name_prefix, password, type, kvk, address, btw, token_version FROM \"" + tableName + "\" WHERE \"" + colum + "\" = ?";
         PreparedStatement statement = this.con.prepareStatement(query);
         PGobject toInsert = new PGobject();
         toInsert.setType(type);
@@ -91,8 +144,10 @@ public class UserDAO extends GenericDAO<User> {
         if(!res.next()) return null;
 
         // Return User
-        return new User(res.getString("id"), res.getString("email"), res.getString("first_name"),
+        User user = new User(res.getString("id"), res.getString("email"), res.getString("first_name"),
             res.getString("last_name"), res.getString("last_name_prefix"), res.getString("type"), res.getString("password"), res.getString("address"), res.getString("btw"), res.getString("kvk"));
+        user.setTokenVersion(res.getInt("token_version"));
+        return user;
     }
 
     /**
@@ -188,8 +243,8 @@ public class UserDAO extends GenericDAO<User> {
      * @throws SQLException the sql SQLException
      */
     public User updateUser(UserResponseDTO user) throws SQLException {
-        // Create query
-        String query = "UPDATE \"" + tableName + "\" SET email = ?, first_name = ?, last_name = ?, last_name_prefix = ?, active = ?, kvk = ?, btw = ?, address = ? WHERE \"id\" = ? RETURNING id";
+        // Create query, disabling the user makes the claims of its tokens stale
+        String query = "UPDATE \"" + tableName + "\" SET email = ?, first_name = ?, last_name = ?, last_name_prefix = ?, active = ?, kvk = ?, btw = ?, address = ?, token_version = token_version + CASE WHEN active AND NOT ? THEN 1 ELSE 0 END WHERE \"id\" = ? RETURNING id, token_version";
 
         PreparedStatement statement = this.con.prepareStatement(query);
         statement.setString(1, user.getEmail().toLowerCase());
@@ -200,13 +255,16 @@ public class UserDAO extends GenericDAO<User> {
         statement.setString(6, user.getKvk());
         statement.setString(7, user.getBtw());
         statement.setString(8, user.getAddress());
-        PostgresJDBCHelper.setUuid(statement, 9, user.getId());
+        statement.setBoolean(9, user.getActive());
+        PostgresJDBCHelper.setUuid(statement, 10, user.getId());
 
         // Execute query
         ResultSet res = statement.executeQuery();
+        AuthenticationCache.invalidateUser(user.getId());
 
         // None found
         if(!res.next()) return null;
+        TokenVersions.update(res.getString("id"), res.getInt("token_version"));
 
         // Return user
         return getUserById(res.getString("id"));
@@ -219,10 +277,12 @@ public class UserDAO extends GenericDAO<User> {
      * @throws SQLException the sql SQLException
      */
     public void disableUserById(String id) throws SQLException {
-        String query = "UPDATE \"" + tableName + "\" SET active = false WHERE id = ? returning id";
+        String query = "UPDATE \"" + tableName + "\" SET active = false, token_version = token_version + 1 WHERE id = ? returning id, token_version";
         PreparedStatement statement = this.con.prepareStatement(query);
         PostgresJDBCHelper.setUuid(statement, 1, id);
-        statement.executeQuery();
+        updateTokenVersions(statement.executeQuery());
+        AuthenticationCache.invalidateUser(id);
+        AccessCache.invalidateUser(id);
     }
 
     /**
@@ -236,6 +296,7 @@ public class UserDAO extends GenericDAO<User> {
         PreparedStatement statement = this.con.prepareStatement(query);
         PostgresJDBCHelper.setUuid(statement, 1, id);
         statement.executeQuery();
+        AuthenticationCache.invalidateUser(id);
     }
 
     /**
@@ -266,17 +327,20 @@ public class UserDAO extends GenericDAO<User> {
      */
     public boolean updateUserType(UserResponseDTO userResponseDTO) throws SQLException {
         // Create query
-        String query = "UPDATE \"" + tableName + "\" SET type = ? WHERE \"id\" = ? RETURNING id";
+        // Tokens claiming the previous type are stale
+        String query = "UPDATE \"" + tableName + "\" SET type = ?, token_version = token_version + 1 WHERE \"id\" = ? RETURNING id, token_version";
 
         PreparedStatement statement = this.con.prepareStatement(query);
         statement.setString(1, userResponseDTO.getType());
         PostgresJDBCHelper.setUuid(statement, 2, userResponseDTO.getId());
 
         // Execute query
-        ResultSet res = statement.executeQuery();
+        boolean updated = updateTokenVersions(statement.executeQuery()) > 0;
+        AuthenticationCache.invalidateUser(userResponseDTO.getId());
+        AccessCache.invalidateUser(userResponseDTO.getId());
 
         // None found
-        return res.next();
+        return updated;
     }
 
     /**
@@ -305,111 +369,152 @@ public class UserDAO extends GenericDAO<User> {
         if (user_id==null) {
             return null;
         }
-        List<NotificationDTO> notifications = new ArrayList<>();
-        String query = """
-            SELECT n.*, u.first_name, u.last_name_prefix, u.last_name, c.role, cy.name AS company_name, ww.week, u.id as user_id, cy.id as company_id, ww.id as worked_week_id, uc.id as user_contract_id, c.id as contract_id 
-            FROM "notification" n
-            JOIN "user" u ON u.id = n.user_id
-            JOIN company cy ON cy.id = n.company_id
-            LEFT JOIN worked_week ww ON ww.id = n.worked_week_id
-            LEFT JOIN user_contract uc ON uc.id = ww.contract_id 
-            LEFT JOIN contract c ON c.id = uc.contract_id 
-            WHERE u.id = ? AND n.type != 'SUGGESTION REJECTED' AND n.type != 'SUGGESTION ACCEPTED' AND n.type != 'CONFLICT'
-            ORDER BY n.date DESC, n.seen
-            """;
-        PreparedStatement statement = this.con.prepareStatement(query);
-        PostgresJDBCHelper.setUuid(statement, 1, user_id);
-        ResultSet res = statement.executeQuery();
-        while (res.next()) {
-            String name = getName(res.getString("first_name"), res.getString("last_name_prefix"),  res.getString("last_name"));
+        return getNotificationsForUser(user_id, Keyset.unbounded()).items();
+    }
 
-            String type = res.getString("type");
-            String title = convertToTitle(type);
-            String description = convertToDescription(type, res.getString("company_name"), res.getString("role"), name, res.getString("week"));
+    /**
+     * Gets a page of the notifications of a student, newest first.
+     *
+     * @param userId the id of the user
+     * @param keyset the page
+     * @return the notifications
+     * @throws SQLException the sql SQLException
+     */
+    public Keyset.Page<NotificationDTO> getNotificationsForUser(String userId, Keyset keyset) throws SQLException {
+        return new NotificationFeed(con, "user_id", NotificationTemplate.STUDENT_FEED).getPage(userId, keyset);
+    }
 
-            if (title == null) continue;
+    /**
+     * Gets the version of the notifications of a student.
+     *
+     * @param userId the id of the user
+     * @return the version
+     * @throws SQLException the sql SQLException
+     */
+    public String getNotificationsVersionForUser(String userId) throws SQLException {
+        return new NotificationFeed(con, "user_id", NotificationTemplate.STUDENT_FEED).getVersion(userId);
+    }
 
-            NotificationDTO notification = new NotificationDTO(res.getString("id"), res.getString("date"), res.getBoolean("seen"), type, title, description, res.getString("user_id"), res.getString("company_id"), res.getString("user_contract_id"), res.getString("contract_id"), res.getString("worked_week_id"), res.getInt("week"));
-            notifications.add(notification);
-        }
-        return notifications;
+    /**
+     * Counts the unread notifications of a student, up to 100.
+     *
+     * @param userId the id of the user
+     * @return the number of unread notifications
+     * @throws SQLException the sql SQLException
+     */
+    public NotificationCountDTO countUnreadNotificationsForUser(String userId) throws SQLException {
+        return new NotificationFeed(con, "user_id", NotificationTemplate.STUDENT_FEED).countUnread(userId);
     }
 
+    /**
+     * Gets the dashboard of a student in a single query: the active contracts, the weeks of
+     * those contracts in a range with their status and total minutes, and the number of unread
+     * notifications. The weeks are read per contract from the primary key of worked_week.
+     *
+     * @param userId   the id of the user
+     * @param fromYear the year of the first week
+     * @param fromWeek the first week
+     * @param toYear   the year of the last week
+     * @param toWeek   the last week
+     * @return the dashboard
+     * @throws SQLException the sql SQLException
+     */
+    public StudentDashboardDTO getStudentDashboard(String userId, int fromYear, int fromWeek, int toYear, int toWeek)
+        throws SQLException {
+        NotificationFeed feed = new NotificationFeed(con, "user_id", NotificationTemplate.STUDENT_FEED);
 
-    public List<NotificationDTO> getNotificationsForStaffUser() throws SQLException {
-        List<NotificationDTO> notifications = new ArrayList<>();
         String query = """
-            SELECT n.*, u.first_name, u.last_name_prefix, u.last_name, c.role, cy.name AS company_name, ww.week, u.id as user_id, cy.id as company_id, ww.id as worked_week_id, uc.id as user_contract_id, c.id as contract_id 
-            FROM "notification" n
-            JOIN "user" u ON u.id = n.user_id
-            JOIN company cy ON cy.id = n.company_id
-            LEFT JOIN worked_week ww ON ww.id = n.worked_week_id
-            LEFT JOIN user_contract uc ON uc.id = ww.contract_id 
-            LEFT JOIN contract c ON c.id = uc.contract_id 
-            WHERE n.type = 'CONFLICT'
-            ORDER BY n.date DESC, n.seen
-            """;
+            SELECT (SELECT json_agg(json_build_object('id', uc.id, 'contractId', uc.contract_id,
+                        'userId', uc.user_id, 'hourlyWage', uc.hourly_wage, 'active', uc.active,
+                        'contract', json_build_object('id', c.id, 'role', c.role, 'description', c.description,
+                            'company', json_build_object('id', cy.id, 'name', cy.name, 'kvk', cy.kvk,
+                                'address', cy.address))))
+                    FROM user_contract uc
+                    JOIN contract c ON c.id = uc.contract_id
+                    JOIN company cy ON cy.id = c.company_id
+                    WHERE uc.user_id = ? AND uc.active) AS contracts,
+                (SELECT json_agg(json_build_object('id', ww.id, 'contractId', ww.contract_id, 'year', ww.year,
+                        'week', ww.week, 'status', ww.status, 'totalMinutes', COALESCE(t.minutes, 0))
+                        ORDER BY ww.year, ww.week)
+                    FROM user_contract uc
+                    JOIN worked_week ww ON ww.contract_id = uc.id
+                    LEFT JOIN worked_week_total t ON t.worked_week_id = ww.id
+                    WHERE uc.user_id = ? AND uc.active
+                        AND (ww.year, ww.week) >= (?, ?) AND (ww.year, ww.week) <= (?, ?)) AS weeks,
+                (%s) AS unread
+            """.formatted(feed.getUnreadQuery());
+
         PreparedStatement statement = this.con.prepareStatement(query);
+        PostgresJDBCHelper.setUuid(statement, 1, userId);
+        PostgresJDBCHelper.setUuid(statement, 2, userId);
+        statement.setInt(3, fromYear);
+        statement.setInt(4, fromWeek);
+        statement.setInt(5, toYear);
+        statement.setInt(6, toWeek);
+        PostgresJDBCHelper.setUuid(statement, 7, userId);
+
         ResultSet res = statement.executeQuery();
-        while (res.next()) {
-            String name = getName(res.getString("first_name"), res.getString("last_name_prefix"),  res.getString("last_name"));
+        res.next();
+        return new StudentDashboardDTO(JsonRowDecoder.decodeList(res, "contracts", UserContractDTO.class),
+            JsonRowDecoder.decodeList(res, "weeks", WorkedWeekDTO.class),
+            NotificationFeed.toUnreadCount(res.getInt("unread")));
+    }
 
-            String type = res.getString("type");
-            String title = convertToTitle(type);
-            String description = convertToDescription(type, res.getString("company_name"), res.getString("role"), name, res.getString("week"));
+    public List<NotificationDTO> getNotificationsForStaffUser() throws SQLException {
+        return getNotificationsForStaffUser(Keyset.unbounded()).items();
+    }
 
-            if (title == null) continue;
+    /**
+     * Gets a page of the notifications of staff, newest first.
+     *
+     * @param keyset the page
+     * @return the notifications
+     * @throws SQLException the sql SQLException
+     */
+    public Keyset.Page<NotificationDTO> getNotificationsForStaffUser(Keyset keyset) throws SQLException {
+        return new NotificationFeed(con, null, NotificationTemplate.STAFF_FEED).getPage(null, keyset);
+    }
 
-            NotificationDTO notification = new NotificationDTO(res.getString("id"), res.getString("date"), res.getBoolean("seen"), type, title, description, res.getString("user_id"), res.getString("company_id"), res.getString("user_contract_id"), res.getString("contract_id"), res.getString("worked_week_id"), res.getInt("week"));
-            notifications.add(notification);
-        }
-        return notifications;
+    /**
+     * Counts the unread notifications of staff, up to 100.
+     *
+     * @return the number of unread notifications
+     * @throws SQLException the sql SQLException
+     */
+    public NotificationCountDTO countUnreadNotificationsForStaffUser() throws SQLException {
+        return new NotificationFeed(con, null, NotificationTemplate.STAFF_FEED).countUnread(null);
+    }
+
+    /**
+     * Gets the version of the notifications of staff.
+     *
+     * @return the version
+     * @throws SQLException the sql SQLException
+     */
+    public String getNotificationsVersionForStaffUser() throws SQLException {
+        return new NotificationFeed(con, null, NotificationTemplate.STAFF_FEED).getVersion(null);
     }
 
     public String convertToTitle(String type) {
-        String title = null;
-        switch(type) {
-            case "HOURS":
-                title = "Week not confirmed";
-                break;
-            case "APPROVED":
-                title = "Week approved";
-                break;
-            case "SUGGESTION":
-                title = "Week denied";
-                break;
-            case "CONFLICT":
-                title = "Conflict";
-                break;
-            case "LINK":
-                title = "New contract";
-            default:
-                System.out.println("No relevant notification type");
-        }
-        return title;
+        NotificationTemplate template = getStudentOrStaffTemplate(type);
+        return template == null ? null : template.getTitle();
     }
 
     public String convertToDescription(String type, String company_name, String role, String user_name, String week) {
-        String description = null;
-        switch(type) {
-            case "HOURS":
-                description = "You haven't confirmed hours for " + role + " at " + company_name + " for week " + week;
-                break;
-            case "APPROVED":
-                description = company_name + " approved your suggested hours for week " + week;
-                break;
-            case "SUGGESTION":
-                description = company_name + " has suggested new hours for week " + week;
-                break;
-            case "CONFLICT":
-                description = company_name + " and " + user_name + " have a conflict for week " + week;
-                break;
-            case "LINK":
-                description = "You have been linked to " + company_name;
-            default:
-                System.out.println("No relevant notification type");
-        }
-        return description;
+        NotificationTemplate template = getStudentOrStaffTemplate(type);
+        if (template == null) return null;
+
+        Map<String, String> values = new HashMap<>();
+        values.put(NotificationTemplate.COMPANY, company_name);
+        values.put(NotificationTemplate.ROLE, role);
+        values.put(NotificationTemplate.USER, user_name);
+        values.put(NotificationTemplate.WEEK, week);
+        return template.render(values);
+    }
+
+    private static NotificationTemplate getStudentOrStaffTemplate(String type) {
+        NotificationTemplate template = NotificationTemplate.STUDENT_FEED.get(type);
+        return template != null ? template : NotificationTemplate.STAFF_FEED.get(type);
     }
 
     public void changeNotificationToSeen(String notification_id) throws SQLException {
@@ -1,6 +1,7 @@
 package nl.earnit.dao;
 
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
+import nl.earnit.helpers.InvoiceCache;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.User;
 import nl.earnit.models.UserContract;
@@ -141,8 +142,8 @@ public class WorkedDAO extends GenericDAO<User> {
                 return false;
             }
 
-            String query = "INSERT INTO \"" + tableName + "\" (worked_week_id, day, minutes, work) " +
-                    "VALUES (?, ?, ?, ?) RETURNING id";
+            String query = withTotals("INSERT INTO \"" + tableName + "\" (worked_week_id, day, minutes, work) " +
+                    "VALUES (?, ?, ?, ?) RETURNING id, worked_week_id, minutes", "SELECT id FROM changed");
             PreparedStatement counter = this.con.prepareStatement(query);
             PostgresJDBCHelper.setUuid(counter, 1, ww.getId());
             counter.setInt(2, worked.getDay());
@@ -155,6 +156,89 @@ public class WorkedDAO extends GenericDAO<User> {
             return true;
     }
 
+    /**
+     * Adds all tasks of a worked week at once, creating the worked week when it does not exist
+     * yet. The worked week is locked while the tasks are added, so it can not be confirmed in
+     * between, and either all tasks are added or none are.
+     *
+     * @param entries        the tasks
+     * @param userContractId the contract they were executed under
+     * @param year           the year of execution
+     * @param week           the week of execution
+     * @return the added tasks, or null when the worked week was already confirmed
+     * @throws SQLException the sql SQLException
+     */
+    public List<Worked> addWorkedWeekTasks(List<Worked> entries, String userContractId, int year, int week) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        try {
+            con.setAutoCommit(false);
+
+            List<Worked> added = insertWorkedWeekTasks(entries, userContractId, year, week);
+            con.commit();
+            return added;
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
+
+    private List<Worked> insertWorkedWeekTasks(List<Worked> entries, String userContractId, int year, int week) throws SQLException {
+        // Create the worked week, a concurrent request may have created it already
+        PreparedStatement upsert = this.con.prepareStatement("""
+            INSERT INTO worked_week (contract_id, year, week) VALUES (?, ?, ?)
+                ON CONFLICT (contract_id, year, week) DO NOTHING""");
+        PostgresJDBCHelper.setUuid(upsert, 1, userContractId);
+        upsert.setInt(2, year);
+        upsert.setInt(3, week);
+        upsert.executeUpdate();
+
+        PreparedStatement select = this.con.prepareStatement("""
+            SELECT id, status FROM worked_week WHERE contract_id = ? AND year = ? AND week = ? FOR UPDATE""");
+        PostgresJDBCHelper.setUuid(select, 1, userContractId);
+        select.setInt(2, year);
+        select.setInt(3, week);
+        ResultSet workedWeek = select.executeQuery();
+        workedWeek.next();
+
+        if (!workedWeek.getString("status").equals("NOT_CONFIRMED")) {
+            return null;
+        }
+        String workedWeekId = workedWeek.getString("id");
+
+        List<Worked> added = new ArrayList<>();
+        if (entries.isEmpty()) return added;
+
+        List<Integer> days = new ArrayList<>();
+        List<Integer> minutes = new ArrayList<>();
+        List<String> work = new ArrayList<>();
+        for (Worked entry : entries) {
+            days.add(entry.getDay());
+            minutes.add(entry.getMinutes());
+            work.add(entry.getWork());
+        }
+
+        String query = withTotals("""
+            INSERT INTO "%s" (worked_week_id, day, minutes, work)
+                SELECT ?, t.day, t.minutes, t.work FROM unnest(?, ?, ?) AS t(day, minutes, work)
+                RETURNING id, worked_week_id, day, minutes, work""".formatted(tableName),
+            "SELECT id, worked_week_id, day, minutes, work FROM changed");
+        PreparedStatement insert = this.con.prepareStatement(query);
+        PostgresJDBCHelper.setUuid(insert, 1, workedWeekId);
+        PostgresJDBCHelper.setArray(insert, 2, "int4", days);
+        PostgresJDBCHelper.setArray(insert, 3, "int4", minutes);
+        PostgresJDBCHelper.setArray(insert, 4, "text", work);
+
+        ResultSet res = insert.executeQuery();
+        while (res.next()) {
+            added.add(new Worked(res.getString("id"), res.getString("worked_week_id"), res.getInt("day"),
+                res.getInt("minutes"), res.getString("work")));
+        }
+
+        return added;
+    }
+
     /**
      * Updates the worked week in case it was flagged and changed
      * @param worked the new amount of worked hours of a task
@@ -166,13 +250,20 @@ public class WorkedDAO extends GenericDAO<User> {
             return false;
         }
 
-        String query = "UPDATE \"" + tableName + "\" SET day = ?, minutes = ?, work = ? WHERE id = ?";
+        // The previous minutes are locked, so the change to the total is exact
+        String query = withTotals("""
+            UPDATE "%1$s" w SET day = ?, minutes = ?, work = ?
+                FROM (SELECT id, minutes FROM "%1$s" WHERE id = ? FOR UPDATE) old
+                WHERE w.id = old.id
+                RETURNING w.id, w.worked_week_id, w.minutes - old.minutes AS minutes""".formatted(tableName),
+            "SELECT id FROM changed");
         PreparedStatement statement = this.con.prepareStatement(query);
         statement.setInt(1, worked.getDay());
         statement.setInt(2, worked.getMinutes());
         statement.setString(3, worked.getWork());
         PostgresJDBCHelper.setUuid(statement, 4, worked.getId());
-        statement.executeUpdate();
+        statement.execute();
+        InvoiceCache.getInstance().invalidate(worked.getWorkedWeekId());
 
         return true;
     }
@@ -188,10 +279,11 @@ public class WorkedDAO extends GenericDAO<User> {
         if (new WorkedWeekDAO(this.con).isWorkedWeekConfirmed(workedId)) {
             return false;
         }
-        String query = "DELETE FROM \"" + tableName + "\" WHERE id = ?;";
+        String query = withTotals("DELETE FROM \"" + tableName + "\" WHERE id = ? " +
+            "RETURNING id, worked_week_id, -minutes AS minutes", "SELECT id FROM changed");
         PreparedStatement statement = this.con.prepareStatement(query);
         PostgresJDBCHelper.setUuid(statement, 1, workedId);
-        statement.executeUpdate();
+        statement.execute();
         return true;
     }
 
@@ -269,8 +361,12 @@ public class WorkedDAO extends GenericDAO<User> {
      */
     public boolean acceptCompanySuggestion(String workedWeekId) throws SQLException {
         // Create query
-        String query = """
-            UPDATE "%s" SET minutes = suggestion where worked_week_id = ? and suggestion IS NOT NULL RETURNING id""".formatted(tableName);
+        String query = withTotals("""
+            UPDATE "%1$s" w SET minutes = w.suggestion
+                FROM (SELECT id, minutes FROM "%1$s" where worked_week_id = ? and suggestion IS NOT NULL FOR UPDATE) old
+                WHERE w.id = old.id
+                RETURNING w.id, w.worked_week_id, w.minutes - old.minutes AS minutes""".formatted(tableName),
+            "SELECT id FROM changed");
         PreparedStatement statement = this.con.prepareStatement(query);
         PostgresJDBCHelper.setUuid(statement, 1, workedWeekId);
 
@@ -301,4 +397,23 @@ public class WorkedDAO extends GenericDAO<User> {
         // Return success
         return res.next();
     }
+
+    /**
+     * Wraps a statement that changes tasks, so the totals of their worked weeks
+     * ({@code worked_week_total}) are updated in the same statement. The changes have to return
+     * the worked week of every task as {@code worked_week_id} and how much its minutes changed as
+     * {@code minutes}, the result can select from them as {@code changed}.
+     *
+     * @param changes the insert, update or delete
+     * @param result  the select of the result
+     * @return the query
+     */
+    private static String withTotals(String changes, String result) {
+        return """
+            WITH changed AS (%s), totals AS (
+                INSERT INTO worked_week_total (worked_week_id, minutes)
+                    SELECT worked_week_id, sum(minutes) FROM changed GROUP BY worked_week_id
+                    ON CONFLICT (worked_week_id) DO UPDATE SET minutes = worked_week_total.minutes + EXCLUDED.minutes)
+            %s""".formatted(changes, result);
+    }
 }
@@ -5,9 +5,10 @@ import nl.earnit.dto.contracts.ContractDTO;
 import nl.earnit.dto.user.UserResponseDTO;
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
 import nl.earnit.exceptions.InvalidOrderByException;
+import nl.earnit.helpers.InvoiceCache;
+import nl.earnit.helpers.JsonRowDecoder;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.*;
-import org.postgresql.util.PGobject;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -16,8 +17,13 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.temporal.IsoFields;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The type Worked week dao.
@@ -28,7 +34,7 @@ public class WorkedWeekDAO extends GenericDAO<User> {
         put("worked_week.year", "ww.year");
         put("worked_week.week", "ww.week");
         put("worked_week.status", "ww.status");
-        put("worked_week.total_hours", "w.minutes");
+        put("worked_week.total_hours", "t.minutes");
 
         put("user_contract.contract_id", "uc.contract_id");
         put("user_contract.user_id", "uc.user_id");
@@ -56,6 +62,11 @@ public class WorkedWeekDAO extends GenericDAO<User> {
 
     private final static String TABLE_NAME = "worked_week";
 
+    /**
+     * The number of worked weeks whose totals are repaired in one transaction.
+     */
+    public static final int TOTALS_BATCH_SIZE = 1000;
+
     /**
      * Instantiates a new Worked week dao.
      *
@@ -218,55 +229,8 @@ public class WorkedWeekDAO extends GenericDAO<User> {
 
         if (where.isEmpty() || (userId == null && userContractId == null)) throw new IllegalArgumentException();
 
-        String query = """
-            SELECT DISTINCT ww.id as worked_week_id,
-                ww.contract_id as worked_week_contract_id,
-                ww.year as worked_week_year,
-                ww.week as worked_week_week,
-                ww.note as worked_week_note,
-                ww.status as worked_week_status,
-                ww.company_note as worked_week_company_note,
-                
-                uc.id as user_contract_id,
-                uc.contract_id as user_contract_contract_id,
-                uc.user_id as user_contract_user_id,
-                uc.hourly_wage as user_contract_hourly_wage,
-                uc.active as user_contract_active,
-                
-                u.id as user_id,
-                u.first_name as user_first_name,
-                u.last_name as user_last_name,
-                u.last_name_prefix as user_last_name_prefix,
-                u.email as user_email,
-                u.type as user_type,
-                u.kvk as user_kvk,
-                u.btw as user_btw,
-                u.address as user_address,
-                
-                c.id as contract_id,
-                c.company_id as contract_company_id,
-                c.role as contract_role,
-                c.description as contract_description,
-                
-                cy.id as company_id,
-                cy.name as company_name,
-                cy.kvk as company_kvk,
-                cy.address as company_address,
-                
-                w.hours,
-                w.minutes
-                
-                FROM "%s" ww
-                        
-                JOIN user_contract uc ON uc.id = ww.contract_id
-                JOIN "user" u ON u.id = uc.user_id
-                JOIN contract c ON c.id = uc.contract_id
-                JOIN company cy ON cy.id = c.company_id
-                
-                LEFT JOIN (select w.worked_week_id, array_agg(w.*%2$s) as hours, sum(w.minutes) as minutes FROM worked w GROUP BY w.worked_week_id) w ON w.worked_week_id = ww.id
-                
-                WHERE %3$s
-            """.formatted(tableName, orderByHours.getSQLOrderBy(order, true), String.join(" AND ", where.stream().map(x -> x + " = ?").toList()));
+        String query = getWorkedWeekQuery(String.join(" AND ", where.stream().map(x -> x + " = ?").toList()),
+            order, false, withHours, withTotalHours);
 
         PreparedStatement statement = this.con.prepareStatement(query);
 
@@ -307,56 +271,33 @@ public class WorkedWeekDAO extends GenericDAO<User> {
     public List<WorkedWeekDTO> getWorkedWeeksForCompany(String companyId, int year, int week, boolean withCompany,
                                                         boolean withContract, boolean withUserContract,
                                                         boolean withUser, boolean withHours, boolean withTotalHours, String order) throws SQLException {
-        String query = """
-            SELECT DISTINCT ww.id as worked_week_id,
-                ww.contract_id as worked_week_contract_id,
-                ww.year as worked_week_year,
-                ww.week as worked_week_week,
-                ww.note as worked_week_note,
-                ww.status as worked_week_status,
-                ww.company_note as worked_week_company_note,
-                
-                uc.id as user_contract_id,
-                uc.contract_id as user_contract_contract_id,
-                uc.user_id as user_contract_user_id,
-                uc.hourly_wage as user_contract_hourly_wage,
-                uc.active as user_contract_active,
-                
-                u.id as user_id,
-                u.first_name as user_first_name,
-                u.last_name as user_last_name,
-                u.last_name_prefix as user_last_name_prefix,
-                u.email as user_email,
-                u.type as user_type,
-                u.kvk as user_kvk,
-                u.btw as user_btw,
-                u.address as user_address,
-                
-                c.id as contract_id,
-                c.company_id as contract_company_id,
-                c.role as contract_role,
-                c.description as contract_description,
-                
-                cy.id as company_id,
-                cy.name as company_name,
-                cy.kvk as company_kvk,
-                cy.address as company_address,
-                
-                w.hours,
-                w.minutes
-                
-                FROM "%s" ww
-                        
-                JOIN user_contract uc ON uc.id = ww.contract_id
-                JOIN "user" u ON u.id = uc.user_id
-                JOIN contract c ON c.id = uc.contract_id
-                JOIN company cy ON cy.id = c.company_id
-                
-                LEFT JOIN (select w.worked_week_id, array_agg(w.*%2$s) as hours, sum(w.minutes) as minutes FROM worked w GROUP BY w.worked_week_id) w ON w.worked_week_id = ww.id
-                                
-                WHERE ww.status = 'APPROVED' AND ww.year = ? AND ww.week = ? AND cy.id = ?
-                %3$s
-            """.formatted(tableName, orderByHours.getSQLOrderBy(order, true), orderBy.getSQLOrderBy(order, true));
+        return getWorkedWeeksForCompany(companyId, year, week, withCompany, withContract, withUserContract, withUser,
+            withHours, withTotalHours, order, Keyset.unbounded()).items();
+    }
+
+    /**
+     * Gets all worked weeks the company has access to per week.
+     *
+     * @param companyId        The id of the company.
+     * @param year             the year
+     * @param week             the week
+     * @param withCompany      the with company
+     * @param withContract     the with contract
+     * @param withUserContract the with user contract
+     * @param withUser         the with user
+     * @param withHours        the with hours
+     * @param withTotalHours   the with total hours
+     * @param order            the order
+     * @param keyset           the page to get
+     * @return a page of the worked weeks for company
+     * @throws SQLException If a database error occurs.
+     */
+    public Keyset.Page<WorkedWeekDTO> getWorkedWeeksForCompany(String companyId, int year, int week, boolean withCompany,
+                                                        boolean withContract, boolean withUserContract,
+                                                        boolean withUser, boolean withHours, boolean withTotalHours, String order, Keyset keyset) throws SQLException {
+        List<OrderBy.Order> keys = getKeys(order, keyset);
+        String query = getWorkedWeekQuery("ww.status = 'APPROVED' AND ww.year = ? AND ww.week = ? AND cy.id = ?",
+            order, keys, withHours, withTotalHours, keyset);
 
         PreparedStatement statement = this.con.prepareStatement(query);
 
@@ -364,17 +305,13 @@ public class WorkedWeekDAO extends GenericDAO<User> {
         statement.setInt(2, week);
         PostgresJDBCHelper.setUuid(statement, 3, companyId);
 
+        keyset.bind(statement, 4, keys);
+
         // Execute query
         ResultSet res = statement.executeQuery();
 
         // Return
-        List<WorkedWeekDTO> workedWeeks = new ArrayList<>();
-
-        while (res.next()) {
-            workedWeeks.add(getWorkedWeekFromRow(res, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
-        }
-
-        return workedWeeks;
+        return keyset.read(res, keys, row -> getWorkedWeekFromRow(row, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
     }
 
     /**
@@ -395,73 +332,80 @@ public class WorkedWeekDAO extends GenericDAO<User> {
     public List<WorkedWeekDTO> getWorkedWeeksForCompanyForUser(String companyId, String userId, boolean withCompany,
                                                                boolean withContract, boolean withUserContract,
                                                                boolean withUser, boolean withHours, boolean withTotalHours, String order) throws SQLException {
-        String query = """
-            SELECT DISTINCT ww.id as worked_week_id,
-                ww.contract_id as worked_week_contract_id,
-                ww.year as worked_week_year,
-                ww.week as worked_week_week,
-                ww.note as worked_week_note,
-                ww.status as worked_week_status,
-                ww.company_note as worked_week_company_note,
-                
-                uc.id as user_contract_id,
-                uc.contract_id as user_contract_contract_id,
-                uc.user_id as user_contract_user_id,
-                uc.hourly_wage as user_contract_hourly_wage,
-                uc.active as user_contract_active,
-                
-                u.id as user_id,
-                u.first_name as user_first_name,
-                u.last_name as user_last_name,
-                u.last_name_prefix as user_last_name_prefix,
-                u.email as user_email,
-                u.type as user_type,
-                u.kvk as user_kvk,
-                u.btw as user_btw,
-                u.address as user_address,
-                
-                c.id as contract_id,
-                c.company_id as contract_company_id,
-                c.role as contract_role,
-                c.description as contract_description,
-                
-                cy.id as company_id,
-                cy.name as company_name,
-                cy.kvk as company_kvk,
-                cy.address as company_address,
-                
-                w.hours,
-                w.minutes
-                
-                FROM "%s" ww
-                        
-                JOIN user_contract uc ON uc.id = ww.contract_id
-                JOIN "user" u ON u.id = uc.user_id
-                JOIN contract c ON c.id = uc.contract_id
-                JOIN company cy ON cy.id = c.company_id
-                
-                LEFT JOIN (select w.worked_week_id, array_agg(w.*%2$s) as hours, sum(w.minutes) as minutes FROM worked w GROUP BY w.worked_week_id) w ON w.worked_week_id = ww.id
-                                
-                WHERE cy.id = ? AND ww.status = 'APPROVED' AND u.id = ?
-                %3$s
-            """.formatted(tableName, orderByHours.getSQLOrderBy(order, true), orderBy.getSQLOrderBy(order, true));
+        return getWorkedWeeksForCompanyForUser(companyId, userId, withCompany, withContract, withUserContract, withUser,
+            withHours, withTotalHours, order, Keyset.unbounded()).items();
+    }
+
+    /**
+     * Gets all worked weeks the company has access to per week.
+     *
+     * @param companyId        The id of the company.
+     * @param userId           the user id
+     * @param withCompany      the with company
+     * @param withContract     the with contract
+     * @param withUserContract the with user contract
+     * @param withUser         the with user
+     * @param withHours        the with hours
+     * @param withTotalHours   the with total hours
+     * @param order            the order
+     * @param keyset           the page to get
+     * @return a page of the worked weeks for company for user
+     * @throws SQLException If a database error occurs.
+     */
+    public Keyset.Page<WorkedWeekDTO> getWorkedWeeksForCompanyForUser(String companyId, String userId, boolean withCompany,
+                                                               boolean withContract, boolean withUserContract,
+                                                               boolean withUser, boolean withHours, boolean withTotalHours, String order, Keyset keyset) throws SQLException {
+        List<OrderBy.Order> keys = getKeys(order, keyset);
+        String query = getWorkedWeekQuery("cy.id = ? AND ww.status = 'APPROVED' AND u.id = ?",
+            order, keys, withHours, withTotalHours, keyset);
 
         PreparedStatement statement = this.con.prepareStatement(query);
 
         PostgresJDBCHelper.setUuid(statement, 1, companyId);
         PostgresJDBCHelper.setUuid(statement, 2, userId);
 
+        keyset.bind(statement, 3, keys);
+
         // Execute query
         ResultSet res = statement.executeQuery();
 
         // Return
-        List<WorkedWeekDTO> workedWeeks = new ArrayList<>();
+        return keyset.read(res, keys, row -> getWorkedWeekFromRow(row, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
+    }
 
-        while (res.next()) {
-            workedWeeks.add(getWorkedWeekFromRow(res, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
-        }
+    /**
+     * Gets the approved worked weeks of a user, the weeks that are invoiced.
+     *
+     * @param userId           the user id
+     * @param withCompany      the with company
+     * @param withContract     the with contract
+     * @param withUserContract the with user contract
+     * @param withUser         the with user
+     * @param withHours        the with hours
+     * @param withTotalHours   the with total hours
+     * @param order            the order
+     * @param keyset           the page to get
+     * @return a page of the approved worked weeks for user
+     * @throws SQLException If a database error occurs.
+     */
+    public Keyset.Page<WorkedWeekDTO> getApprovedWorkedWeeksForUser(String userId, boolean withCompany,
+                                                                    boolean withContract, boolean withUserContract,
+                                                                    boolean withUser, boolean withHours, boolean withTotalHours, String order, Keyset keyset) throws SQLException {
+        List<OrderBy.Order> keys = getKeys(order, keyset);
+        String query = getWorkedWeekQuery("u.id = ? AND ww.status = 'APPROVED'",
+            order, keys, withHours, withTotalHours, keyset);
 
-        return workedWeeks;
+        PreparedStatement statement = this.con.prepareStatement(query);
+
+        PostgresJDBCHelper.setUuid(statement, 1, userId);
+
+        keyset.bind(statement, 2, keys);
+
+        // Execute query
+        ResultSet res = statement.executeQuery();
+
+        // Return
+        return keyset.read(res, keys, row -> getWorkedWeekFromRow(row, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
     }
 
     /**
@@ -483,60 +427,37 @@ public class WorkedWeekDAO extends GenericDAO<User> {
                                                                boolean withUserContract,
                                                                boolean withUser, boolean withHours, boolean withTotalHours, String order)
         throws SQLException, InvalidOrderByException {
+        return getWorkedWeeksToApproveForStaff(withCompany, withContract, withUserContract, withUser, withHours,
+            withTotalHours, order, Keyset.unbounded()).items();
+    }
+
+    /**
+     * Gets all worked weeks for staff and is ready for approval.
+     *
+     * @param withCompany      the with company
+     * @param withContract     the with contract
+     * @param withUserContract the with user contract
+     * @param withUser         the with user
+     * @param withHours        the with hours
+     * @param withTotalHours   the with total hours
+     * @param order            the order
+     * @param keyset           the page to get
+     * @return a page of the worked weeks to approve for staff
+     * @throws SQLException            If a database error occurs.
+     * @throws InvalidOrderByException the invalid order by SQLException
+     */
+    public Keyset.Page<WorkedWeekDTO> getWorkedWeeksToApproveForStaff(boolean withCompany,
+                                                               boolean withContract,
+                                                               boolean withUserContract,
+                                                               boolean withUser, boolean withHours, boolean withTotalHours, String order, Keyset keyset)
+        throws SQLException, InvalidOrderByException {
 
         int currentWeek = LocalDate.now().get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
         int currentYear = LocalDate.now().get(IsoFields.WEEK_BASED_YEAR);
 
-        String query = """
-            SELECT DISTINCT ww.id as worked_week_id,
-                ww.contract_id as worked_week_contract_id,
-                ww.year as worked_week_year,
-                ww.week as worked_week_week,
-                ww.note as worked_week_note,
-                ww.status as worked_week_status,
-                ww.company_note as worked_week_company_note,
-                
-                uc.id as user_contract_id,
-                uc.contract_id as user_contract_contract_id,
-                uc.user_id as user_contract_user_id,
-                uc.hourly_wage as user_contract_hourly_wage,
-                uc.active as user_contract_active,
-                
-                u.id as user_id,
-                u.first_name as user_first_name,
-                u.last_name as user_last_name,
-                u.last_name_prefix as user_last_name_prefix,
-                u.email as user_email,
-                u.type as user_type,
-                u.kvk as user_kvk,
-                u.btw as user_btw,
-                u.address as user_address,
-                
-                c.id as contract_id,
-                c.company_id as contract_company_id,
-                c.role as contract_role,
-                c.description as contract_description,
-                
-                cy.id as company_id,
-                cy.name as company_name,
-                cy.kvk as company_kvk,
-                cy.address as company_address,
-                
-                w.hours,
-                w.minutes
-                
-                FROM "%s" ww
-                        
-                JOIN user_contract uc ON uc.id = ww.contract_id
-                JOIN "user" u ON u.id = uc.user_id
-                JOIN contract c ON c.id = uc.contract_id
-                JOIN company cy ON cy.id = c.company_id
-                
-                LEFT JOIN (select w.worked_week_id, array_agg(w.*%2$s) as hours, sum(w.minutes) as minutes FROM worked w GROUP BY w.worked_week_id) w ON w.worked_week_id = ww.id
-                                
-                WHERE ww.status = 'SUGGESTION_DENIED' AND (ww.year < ? OR (ww.year = ? AND ww.week < ?))
-                %3$s
-            """.formatted(tableName, orderByHours.getSQLOrderBy(order, true), orderBy.getSQLOrderBy(order, true));
+        List<OrderBy.Order> keys = getKeys(order, keyset);
+        String query = getWorkedWeekQuery("ww.status = 'SUGGESTION_DENIED' AND (ww.year < ? OR (ww.year = ? AND ww.week < ?))",
+            order, keys, withHours, withTotalHours, keyset);
 
         PreparedStatement statement = this.con.prepareStatement(query);
 
@@ -544,17 +465,13 @@ public class WorkedWeekDAO extends GenericDAO<User> {
         statement.setInt(2, currentYear);
         statement.setInt(3, currentWeek);
 
+        keyset.bind(statement, 4, keys);
+
         // Execute query
         ResultSet res = statement.executeQuery();
 
         // Return
-        List<WorkedWeekDTO> workedWeeks = new ArrayList<>();
-
-        while (res.next()) {
-            workedWeeks.add(getWorkedWeekFromRow(res, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
-        }
-
-        return workedWeeks;
+        return keyset.read(res, keys, row -> getWorkedWeekFromRow(row, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
     }
 
     /**
@@ -574,56 +491,7 @@ public class WorkedWeekDAO extends GenericDAO<User> {
     public WorkedWeekDTO getWorkedWeekById(String workedWeekId, boolean withCompany,
                                            boolean withContract, boolean withUserContract,
                                            boolean withUser, boolean withHours, boolean withTotalHours, String order) throws SQLException {
-        String query = """
-            SELECT DISTINCT ww.id as worked_week_id,
-                ww.contract_id as worked_week_contract_id,
-                ww.year as worked_week_year,
-                ww.week as worked_week_week,
-                ww.note as worked_week_note,
-                ww.status as worked_week_status,
-                ww.company_note as worked_week_company_note,
-                
-                uc.id as user_contract_id,
-                uc.contract_id as user_contract_contract_id,
-                uc.user_id as user_contract_user_id,
-                uc.hourly_wage as user_contract_hourly_wage,
-                uc.active as user_contract_active,
-                
-                u.id as user_id,
-                u.first_name as user_first_name,
-                u.last_name as user_last_name,
-                u.last_name_prefix as user_last_name_prefix,
-                u.email as user_email,
-                u.type as user_type,
-                u.kvk as user_kvk,
-                u.btw as user_btw,
-                u.address as user_address,
-                
-                c.id as contract_id,
-                c.company_id as contract_company_id,
-                c.role as contract_role,
-                c.description as contract_description,
-                
-                cy.id as company_id,
-                cy.name as company_name,
-                cy.kvk as company_kvk,
-                cy.address as company_address,
-                
-                w.hours,
-                w.minutes
-                
-                FROM "%s" ww
-                        
-                JOIN user_contract uc ON uc.id = ww.contract_id
-                JOIN "user" u ON u.id = uc.user_id
-                JOIN contract c ON c.id = uc.contract_id
-                JOIN company cy ON cy.id = c.company_id
-                
-                LEFT JOIN (select w.worked_week_id, array_agg(w.*%2$s) as hours, sum(w.minutes) as minutes FROM worked w GROUP BY w.worked_week_id) w ON w.worked_week_id = ww.id
-                
-                WHERE ww.id = ?
-                LIMIT 1
-            """.formatted(tableName, orderByHours.getSQLOrderBy(order, true));
+        String query = getWorkedWeekQuery("ww.id = ?", order, false, withHours, withTotalHours) + " LIMIT 1";
 
         PreparedStatement statement = this.con.prepareStatement(query);
 
@@ -661,60 +529,39 @@ public class WorkedWeekDAO extends GenericDAO<User> {
                                                                  boolean withUserContract,
                                                                  boolean withUser, boolean withHours, boolean withTotalHours, String order)
         throws SQLException, InvalidOrderByException {
+        return getWorkedWeeksToApproveForCompany(companyId, withCompany, withContract, withUserContract, withUser,
+            withHours, withTotalHours, order, Keyset.unbounded()).items();
+    }
+
+    /**
+     * Gets all worked weeks in a company and is ready for approval.
+     *
+     * @param companyId        The id of the company.
+     * @param withCompany      the with company
+     * @param withContract     the with contract
+     * @param withUserContract the with user contract
+     * @param withUser         the with user
+     * @param withHours        the with hours
+     * @param withTotalHours   the with total hours
+     * @param order            the order
+     * @param keyset           the page to get
+     * @return a page of the worked weeks to approve for company
+     * @throws SQLException            If a database error occurs.
+     * @throws InvalidOrderByException the invalid order by SQLException
+     */
+    public Keyset.Page<WorkedWeekDTO> getWorkedWeeksToApproveForCompany(String companyId,
+                                                                 boolean withCompany,
+                                                                 boolean withContract,
+                                                                 boolean withUserContract,
+                                                                 boolean withUser, boolean withHours, boolean withTotalHours, String order, Keyset keyset)
+        throws SQLException, InvalidOrderByException {
 
         int currentWeek = LocalDate.now().get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
         int currentYear = LocalDate.now().get(IsoFields.WEEK_BASED_YEAR);
 
-        String query = """
-            SELECT DISTINCT ww.id as worked_week_id,
-                ww.contract_id as worked_week_contract_id,
-                ww.year as worked_week_year,
-                ww.week as worked_week_week,
-                ww.note as worked_week_note,
-                ww.status as worked_week_status,
-                ww.company_note as worked_week_company_note,
-                
-                uc.id as user_contract_id,
-                uc.contract_id as user_contract_contract_id,
-                uc.user_id as user_contract_user_id,
-                uc.hourly_wage as user_contract_hourly_wage,
-                uc.active as user_contract_active,
-                
-                u.id as user_id,
-                u.first_name as user_first_name,
-                u.last_name as user_last_name,
-                u.last_name_prefix as user_last_name_prefix,
-                u.email as user_email,
-                u.type as user_type,
-                u.kvk as user_kvk,
-                u.btw as user_btw,
-                u.address as user_address,
-                
-                c.id as contract_id,
-                c.company_id as contract_company_id,
-                c.role as contract_role,
-                c.description as contract_description,
-                
-                cy.id as company_id,
-                cy.name as company_name,
-                cy.kvk as company_kvk,
-                cy.address as company_address,
-                
-                w.hours,
-                w.minutes
-                
-                FROM "%s" ww
-                        
-                JOIN user_contract uc ON uc.id = ww.contract_id
-                JOIN "user" u ON u.id = uc.user_id
-                JOIN contract c ON c.id = uc.contract_id
-                JOIN company cy ON cy.id = c.company_id
-                
-                LEFT JOIN (select w.worked_week_id, array_agg(w.*%2$s) as hours, sum(w.minutes) as minutes FROM worked w GROUP BY w.worked_week_id) w ON w.worked_week_id = ww.id
-                                
-                WHERE cy.id = ? AND ww.status = 'CONFIRMED' AND (ww.year < ? OR (ww.year = ? AND ww.week < ?))
-                %3$s
-            """.formatted(tableName, orderByHours.getSQLOrderBy(order, true), orderBy.getSQLOrderBy(order, true));
+        List<OrderBy.Order> keys = getKeys(order, keyset);
+        String query = getWorkedWeekQuery("cy.id = ? AND ww.status = 'CONFIRMED' AND (ww.year < ? OR (ww.year = ? AND ww.week < ?))",
+            order, keys, withHours, withTotalHours, keyset);
 
         PreparedStatement statement = this.con.prepareStatement(query);
 
@@ -723,17 +570,13 @@ public class WorkedWeekDAO extends GenericDAO<User> {
         statement.setInt(3, currentYear);
         statement.setInt(4, currentWeek);
 
+        keyset.bind(statement, 5, keys);
+
         // Execute query
         ResultSet res = statement.executeQuery();
 
         // Return
-        List<WorkedWeekDTO> workedWeeks = new ArrayList<>();
-
-        while (res.next()) {
-            workedWeeks.add(getWorkedWeekFromRow(res, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
-        }
-
-        return workedWeeks;
+        return keyset.read(res, keys, row -> getWorkedWeekFromRow(row, "worked_week_", withCompany, withContract, withUserContract, withUser, withHours, withTotalHours));
     }
 
     /**
@@ -769,6 +612,166 @@ public class WorkedWeekDAO extends GenericDAO<User> {
         return res.getInt("count") > 0;
     }
 
+    /**
+     * Selects the worked weeks a company has access to from the given worked weeks, with a
+     * single query.
+     *
+     * @param companyId     the company id
+     * @param workedWeekIds the worked week ids
+     * @return the ids of the worked weeks the company has access to
+     * @throws SQLException the sql SQLException
+     */
+    public Set<String> getWorkedWeeksWithCompanyAccess(String companyId, Collection<String> workedWeekIds)
+        throws SQLException {
+        Set<String> accessible = new HashSet<>();
+        if (workedWeekIds.isEmpty()) return accessible;
+
+        String query = """
+            SELECT ww.id FROM "%s" ww
+
+                JOIN user_contract uc ON uc.id = ww.contract_id
+                JOIN contract c ON c.id = uc.contract_id
+
+                WHERE c.company_id = ? AND ww.id = ANY(?)
+            """.formatted(tableName);
+
+        PreparedStatement statement = this.con.prepareStatement(query);
+
+        PostgresJDBCHelper.setUuid(statement, 1, companyId);
+        PostgresJDBCHelper.setArray(statement, 2, "uuid", workedWeekIds);
+
+        // Execute query
+        ResultSet res = statement.executeQuery();
+        while (res.next()) {
+            accessible.add(res.getString("id"));
+        }
+
+        return accessible;
+    }
+
+    /**
+     * Sets the status of many worked weeks with a single update, so either all of them change
+     * or none do.
+     *
+     * @param statuses the new status by worked week id
+     * @return the status by worked week id of the worked weeks that exist
+     * @throws SQLException the sql SQLException
+     */
+    public Map<String, String> setWorkedWeekStatuses(Map<String, String> statuses) throws SQLException {
+        Map<String, String> updated = new LinkedHashMap<>();
+        if (statuses.isEmpty()) return updated;
+
+        String query = """
+            UPDATE "%s" ww SET status = s.status
+                FROM unnest(?, ?) AS s(id, status)
+                WHERE ww.id = s.id RETURNING ww.id, ww.status""".formatted(tableName);
+
+        PreparedStatement statement = this.con.prepareStatement(query);
+        PostgresJDBCHelper.setArray(statement, 1, "uuid", statuses.keySet());
+        PostgresJDBCHelper.setArray(statement, 2, "text", statuses.values());
+
+        // Execute query
+        ResultSet res = statement.executeQuery();
+        while (res.next()) {
+            updated.put(res.getString("id"), res.getString("status"));
+        }
+
+        for (String workedWeekId : updated.keySet()) {
+            InvoiceCache.getInstance().invalidate(workedWeekId);
+        }
+
+        return updated;
+    }
+
+    /**
+     * Recomputes the total minutes of every worked week from its tasks and corrects the totals
+     * that drifted. The worked weeks are repaired in batches of {@link #TOTALS_BATCH_SIZE}, each
+     * in its own transaction. Only the totals of the batch are locked, so changes to tasks of
+     * those worked weeks wait until the batch is written and all other changes and reads
+     * are not blocked.
+     *
+     * @return the number of totals that were corrected
+     * @throws SQLException the sql SQLException
+     */
+    public int repairWorkedWeekTotals() throws SQLException {
+        String query = "SELECT id FROM \"" + tableName + "\" WHERE id > ? ORDER BY id LIMIT ?";
+
+        int repaired = 0;
+        String after = "00000000-0000-0000-0000-000000000000";
+        while (true) {
+            List<String> batch = new ArrayList<>();
+            try (PreparedStatement statement = this.con.prepareStatement(query)) {
+                PostgresJDBCHelper.setUuid(statement, 1, after);
+                statement.setInt(2, TOTALS_BATCH_SIZE);
+
+                try (ResultSet res = statement.executeQuery()) {
+                    while (res.next()) batch.add(res.getString("id"));
+                }
+            }
+            if (batch.isEmpty()) return repaired;
+
+            repaired += repairWorkedWeekTotals(batch);
+            if (batch.size() < TOTALS_BATCH_SIZE) return repaired;
+            after = batch.get(batch.size() - 1);
+        }
+    }
+
+    private int repairWorkedWeekTotals(List<String> workedWeekIds) throws SQLException {
+        boolean autoCommit = con.getAutoCommit();
+        try {
+            con.setAutoCommit(false);
+            Set<String> repaired = new HashSet<>();
+
+            // A missing total is created first, so it can be locked like the others
+            String create = """
+                INSERT INTO worked_week_total (worked_week_id, minutes)
+                    SELECT DISTINCT worked_week_id, 0 FROM worked WHERE worked_week_id = ANY (?)
+                    ON CONFLICT (worked_week_id) DO NOTHING
+                    RETURNING worked_week_id""";
+            try (PreparedStatement statement = this.con.prepareStatement(create)) {
+                PostgresJDBCHelper.setArray(statement, 1, "uuid", workedWeekIds);
+                try (ResultSet res = statement.executeQuery()) {
+                    while (res.next()) repaired.add(res.getString("worked_week_id"));
+                }
+            }
+
+            // Changes to tasks update the totals as well, so changes to the tasks of these
+            // worked weeks wait until the recomputed totals are written. The tasks are summed
+            // in a later statement, which sees the changes committed while waiting for the lock.
+            String lock = """
+                SELECT worked_week_id FROM worked_week_total WHERE worked_week_id = ANY (?)
+                    ORDER BY worked_week_id FOR UPDATE""";
+            try (PreparedStatement statement = this.con.prepareStatement(lock)) {
+                PostgresJDBCHelper.setArray(statement, 1, "uuid", workedWeekIds);
+                statement.executeQuery().close();
+            }
+
+            String repair = """
+                WITH actual AS (
+                    SELECT t.worked_week_id, coalesce(sum(w.minutes), 0) as minutes FROM worked_week_total t
+                        LEFT JOIN worked w ON w.worked_week_id = t.worked_week_id
+                        WHERE t.worked_week_id = ANY (?)
+                        GROUP BY t.worked_week_id
+                )
+                UPDATE worked_week_total t SET minutes = a.minutes FROM actual a
+                    WHERE t.worked_week_id = a.worked_week_id AND t.minutes IS DISTINCT FROM a.minutes
+                    RETURNING t.worked_week_id""";
+            try (PreparedStatement statement = this.con.prepareStatement(repair)) {
+                PostgresJDBCHelper.setArray(statement, 1, "uuid", workedWeekIds);
+                try (ResultSet res = statement.executeQuery()) {
+                    while (res.next()) repaired.add(res.getString("worked_week_id"));
+                }
+            }
+
+            con.commit();
+            return repaired.size();
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+    }
 
     /**
      * Update worked week dto.
@@ -829,6 +832,7 @@ public class WorkedWeekDAO extends GenericDAO<User> {
 
         // Execute query
         ResultSet res = statement.executeQuery();
+        InvoiceCache.getInstance().invalidate(workedWeekId);
 
         // None found
         if (!res.next()) {
@@ -839,26 +843,104 @@ public class WorkedWeekDAO extends GenericDAO<User> {
         return getWorkedWeekById(res.getString("id"), withCompany, withContract, withUserContract, withUser, withHours, withTotalHours, order);
     }
 
-    private WorkedWeekDTO getWorkedWeekFromRow(ResultSet res, String prefix, boolean withCompany, boolean withContract, boolean withUserContract, boolean withUser, boolean withHours, boolean withTotalHours) throws SQLException {
-        List<Worked> hours = new ArrayList<>();
+    /**
+     * Creates the query for worked weeks together with their user contract, user, contract
+     * and company.
+     * <p>
+     * The worked rows are aggregated per selected week with a lateral join, so only the rows
+     * of the weeks that match are read. When neither the hours nor the total hours are needed
+     * the worked table is not touched at all.
+     *
+     * @param where          the where clause selecting the worked weeks
+     * @param order          the order
+     * @param withOrder      whether to order the worked weeks
+     * @param withHours      the with hours
+     * @param withTotalHours the with total hours
+     * @return the query
+     * @throws InvalidOrderByException if the order is invalid
+     */
+    private String getWorkedWeekQuery(String where, String order, boolean withOrder,
+                                      boolean withHours, boolean withTotalHours)
+        throws InvalidOrderByException {
+        return getWorkedWeekQuery(where, order, withOrder ? orderBy.getSQLOrders(order) : List.of(),
+            withHours, withTotalHours, Keyset.unbounded());
+    }
 
-        if (withHours) {
-            ResultSet hoursSet = res.getArray("hours").getResultSet();
+    private String getWorkedWeekQuery(String where, String order, List<OrderBy.Order> keys,
+                                      boolean withHours, boolean withTotalHours, Keyset keyset)
+        throws InvalidOrderByException {
+        String hoursOrderBy = orderByHours.getSQLOrderBy(order, true);
+        String weeksOrderBy = keyset.getOrderBy(keys) + keyset.getLimit();
+
+        // Ordering by total hours needs the totals as well, weeks without tasks have none
+        boolean withTotals = withTotalHours
+            || keys.stream().anyMatch(key -> key.column().equals("t.minutes"));
+
+        // The hours are decoded from json by getWorkedWeekFromRow
+        String aggregate = withHours ? """
+            LEFT JOIN LATERAL (SELECT json_agg(json_build_object('id', w.id, 'workedWeekId', w.worked_week_id,
+                'day', w.day, 'minutes', w.minutes, 'work', w.work, 'suggestion', w.suggestion)%s) as hours
+                FROM worked w WHERE w.worked_week_id = ww.id) w ON true
+            """.formatted(hoursOrderBy) : "";
+        if (withTotals) {
+            aggregate += "LEFT JOIN worked_week_total t ON t.worked_week_id = ww.id\n";
+        }
 
-            while (hoursSet.next()) {
-                String data = ((PGobject) hoursSet.getObject("VALUE")).getValue();
-                if (data == null) continue;
+        return """
+            SELECT ww.id as worked_week_id,
+                ww.contract_id as worked_week_contract_id,
+                ww.year as worked_week_year,
+                ww.week as worked_week_week,
+                ww.note as worked_week_note,
+                ww.status as worked_week_status,
+                ww.company_note as worked_week_company_note,
+                
+                uc.id as user_contract_id,
+                uc.contract_id as user_contract_contract_id,
+                uc.user_id as user_contract_user_id,
+                uc.hourly_wage as user_contract_hourly_wage,
+                uc.active as user_contract_active,
+                
+                u.id as user_id,
+                u.first_name as user_first_name,
+                u.last_name as user_last_name,
+                u.last_name_prefix as user_last_name_prefix,
+                u.email as user_email,
+                u.type as user_type,
+                u.kvk as user_kvk,
+                u.btw as user_btw,
+                u.address as user_address,
+                
+                c.id as contract_id,
+                c.company_id as contract_company_id,
+                c.role as contract_role,
+                c.description as contract_description,
+                
+                cy.id as company_id,
+                cy.name as company_name,
+                cy.kvk as company_kvk,
+                cy.address as company_address%2$s
+                
+                FROM "%1$s" ww
+                        
+                JOIN user_contract uc ON uc.id = ww.contract_id
+                JOIN "user" u ON u.id = uc.user_id
+                JOIN contract c ON c.id = uc.contract_id
+                JOIN company cy ON cy.id = c.company_id
+                %3$s
+                WHERE %4$s
+                %5$s
+            """.formatted(tableName, (withHours ? ", w.hours" : "") + (withTotals ? ", t.minutes" : "") + keyset.getSelect(keys),
+            aggregate, keyset.getCondition(keys).isEmpty() ? where : "(" + where + ")" + keyset.getCondition(keys),
+            weeksOrderBy);
+    }
 
-                data = data.substring(1, data.length() - 1);
-                String[] dataStrings = data.split(",(?=(?:[^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
-                String note = dataStrings[4];
-                if (note.startsWith("\"") && note.endsWith("\"")) note = note.substring(1, note.length() - 1);
+    private List<OrderBy.Order> getKeys(String order, Keyset keyset) throws InvalidOrderByException {
+        return keyset.getKeys(orderBy.getSQLOrders(order), "ww.id");
+    }
 
-                Worked worked = new Worked(dataStrings[0], dataStrings[1], Integer.parseInt(dataStrings[2]), Integer.parseInt(dataStrings[3]), note);
-                worked.setSuggestion(dataStrings.length > 5 && dataStrings[5].trim().length() > 0 ? Integer.parseInt(dataStrings[5]) : null);
-                hours.add(worked);
-            }
-        }
+    private WorkedWeekDTO getWorkedWeekFromRow(ResultSet res, String prefix, boolean withCompany, boolean withContract, boolean withUserContract, boolean withUser, boolean withHours, boolean withTotalHours) throws SQLException {
+        List<Worked> hours = withHours ? JsonRowDecoder.decodeList(res, "hours", Worked.class) : null;
 
         WorkedWeekDTO dto = new WorkedWeekDTO(res.getString(prefix + "id"),
             res.getString(prefix + "contract_id"),
@@ -882,7 +964,7 @@ public class WorkedWeekDAO extends GenericDAO<User> {
             withContract ? new ContractDTO(res.getString("contract_id"),
                 res.getString("contract_role"),
                 res.getString("contract_description")) : null,
-            withHours ? hours : null,
+            hours,
             withTotalHours ? res.getInt("minutes") : null
         );
 
@@ -1024,6 +1106,58 @@ public class WorkedWeekDAO extends GenericDAO<User> {
         return res.getString("id");
     }
 
+    /**
+     * Gets the version of a worked week, it changes when the week, its tasks or its contract,
+     * user or company change.
+     *
+     * @param workedWeekId the worked week id
+     * @return the version, null if the worked week does not exist
+     * @throws SQLException the sql SQLException
+     */
+    public String getWorkedWeekVersion(String workedWeekId) throws SQLException {
+        PreparedStatement statement = this.con.prepareStatement(getWorkedWeekVersionQuery("ww.id = ?"));
+        PostgresJDBCHelper.setUuid(statement, 1, workedWeekId);
+
+        ResultSet res = statement.executeQuery();
+        return res.next() ? res.getString("version") : null;
+    }
+
+    /**
+     * Gets the version of a worked week by date.
+     *
+     * @param userContractId the user contract id
+     * @param year           the year
+     * @param week           the week
+     * @return the version, null if the worked week does not exist
+     * @throws SQLException the sql SQLException
+     */
+    public String getWorkedWeekVersionByDate(String userContractId, int year, int week) throws SQLException {
+        PreparedStatement statement = this.con.prepareStatement(
+            getWorkedWeekVersionQuery("ww.contract_id = ? AND ww.year = ? AND ww.week = ?"));
+        PostgresJDBCHelper.setUuid(statement, 1, userContractId);
+        statement.setInt(2, year);
+        statement.setInt(3, week);
+
+        ResultSet res = statement.executeQuery();
+        return res.next() ? res.getString("version") : null;
+    }
+
+    private String getWorkedWeekVersionQuery(String where) {
+        // Deleted tasks lower the count
+        return """
+            SELECT GREATEST(ww.version, uc.version, u.version, c.version, cy.version, w.version)
+                || '.' || w.count AS version
+            FROM "%s" ww
+            JOIN user_contract uc ON uc.id = ww.contract_id
+            JOIN "user" u ON u.id = uc.user_id
+            JOIN contract c ON c.id = uc.contract_id
+            JOIN company cy ON cy.id = c.company_id
+            LEFT JOIN LATERAL (SELECT MAX(w.version) AS version, COUNT(*) AS count
+                FROM worked w WHERE w.worked_week_id = ww.id) w ON true
+            WHERE %s
+            """.formatted(tableName, where);
+    }
+
     /**
      * Is worked week suggested boolean.
      *
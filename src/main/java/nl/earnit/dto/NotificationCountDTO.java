@@ -0,0 +1,64 @@
+package nl.earnit.dto;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The number of unread notifications, shown on the notification bell.
+ */
+@XmlRootElement
+public class NotificationCountDTO {
+    private int unread;
+    private boolean more;
+
+    /**
+     * Instantiates a new Notification count dto.
+     */
+    public NotificationCountDTO() {}
+
+    /**
+     * Instantiates a new Notification count dto.
+     *
+     * @param unread the number of unread notifications
+     * @param more   whether there are more unread notifications than counted
+     */
+    public NotificationCountDTO(int unread, boolean more) {
+        this.unread = unread;
+        this.more = more;
+    }
+
+    /**
+     * Gets the number of unread notifications.
+     *
+     * @return the unread notifications
+     */
+    public int getUnread() {
+        return unread;
+    }
+
+    /**
+     * Sets the number of unread notifications.
+     *
+     * @param unread the unread notifications
+     */
+    public void setUnread(int unread) {
+        this.unread = unread;
+    }
+
+    /**
+     * Whether there are more unread notifications than counted.
+     *
+     * @return the boolean
+     */
+    public boolean isMore() {
+        return more;
+    }
+
+    /**
+     * Sets whether there are more unread notifications than counted.
+     *
+     * @param more the more
+     */
+    public void setMore(boolean more) {
+        this.more = more;
+    }
+}
@@ -0,0 +1,112 @@
+package nl.earnit.dto.company;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+import nl.earnit.dto.NotificationCountDTO;
+import nl.earnit.dto.NotificationDTO;
+import nl.earnit.dto.workedweek.WorkedWeekDTO;
+
+import java.util.List;
+
+/**
+ * Everything the home page of a company shows, loaded at once.
+ */
+@XmlRootElement
+public class CompanyDashboardDTO {
+    private List<WorkedWeekDTO> approvals;
+    private List<WorkedWeekDTO> weeks;
+    private List<NotificationDTO> notifications;
+    private NotificationCountDTO unreadNotifications;
+
+    /**
+     * Instantiates a new Company dashboard dto.
+     */
+    public CompanyDashboardDTO() {}
+
+    /**
+     * Instantiates a new Company dashboard dto.
+     *
+     * @param approvals           the weeks waiting for approval with their student and contract
+     * @param weeks               the approved weeks of the current week with their student and total minutes
+     * @param notifications       the latest notifications
+     * @param unreadNotifications the number of unread notifications
+     */
+    public CompanyDashboardDTO(List<WorkedWeekDTO> approvals, List<WorkedWeekDTO> weeks,
+                               List<NotificationDTO> notifications, NotificationCountDTO unreadNotifications) {
+        this.approvals = approvals;
+        this.weeks = weeks;
+        this.notifications = notifications;
+        this.unreadNotifications = unreadNotifications;
+    }
+
+    /**
+     * Gets the weeks waiting for approval, oldest first.
+     *
+     * @return the approvals
+     */
+    public List<WorkedWeekDTO> getApprovals() {
+        return approvals;
+    }
+
+    /**
+     * Sets the weeks waiting for approval.
+     *
+     * @param approvals the approvals
+     */
+    public void setApprovals(List<WorkedWeekDTO> approvals) {
+        this.approvals = approvals;
+    }
+
+    /**
+     * Gets the approved weeks of the current week.
+     *
+     * @return the weeks
+     */
+    public List<WorkedWeekDTO> getWeeks() {
+        return weeks;
+    }
+
+    /**
+     * Sets the approved weeks of the current week.
+     *
+     * @param weeks the weeks
+     */
+    public void setWeeks(List<WorkedWeekDTO> weeks) {
+        this.weeks = weeks;
+    }
+
+    /**
+     * Gets the latest notifications, newest first.
+     *
+     * @return the notifications
+     */
+    public List<NotificationDTO> getNotifications() {
+        return notifications;
+    }
+
+    /**
+     * Sets the latest notifications.
+     *
+     * @param notifications the notifications
+     */
+    public void setNotifications(List<NotificationDTO> notifications) {
+        this.notifications = notifications;
+    }
+
+    /**
+     * Gets the number of unread notifications.
+     *
+     * @return the unread notifications
+     */
+    public NotificationCountDTO getUnreadNotifications() {
+        return unreadNotifications;
+    }
+
+    /**
+     * Sets the number of unread notifications.
+     *
+     * @param unreadNotifications the unread notifications
+     */
+    public void setUnreadNotifications(NotificationCountDTO unreadNotifications) {
+        this.unreadNotifications = unreadNotifications;
+    }
+}
@@ -0,0 +1,90 @@
+package nl.earnit.dto.user;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+import nl.earnit.dto.NotificationCountDTO;
+import nl.earnit.dto.workedweek.WorkedWeekDTO;
+
+import java.util.List;
+
+/**
+ * Everything the start page of a student shows, loaded at once.
+ */
+@XmlRootElement
+public class StudentDashboardDTO {
+    private List<UserContractDTO> contracts;
+    private List<WorkedWeekDTO> weeks;
+    private NotificationCountDTO unreadNotifications;
+
+    /**
+     * Instantiates a new Student dashboard dto.
+     */
+    public StudentDashboardDTO() {}
+
+    /**
+     * Instantiates a new Student dashboard dto.
+     *
+     * @param contracts           the active contracts with their company
+     * @param weeks               the weeks of the contracts with their status and total minutes
+     * @param unreadNotifications the number of unread notifications
+     */
+    public StudentDashboardDTO(List<UserContractDTO> contracts, List<WorkedWeekDTO> weeks,
+                               NotificationCountDTO unreadNotifications) {
+        this.contracts = contracts;
+        this.weeks = weeks;
+        this.unreadNotifications = unreadNotifications;
+    }
+
+    /**
+     * Gets the active contracts.
+     *
+     * @return the contracts
+     */
+    public List<UserContractDTO> getContracts() {
+        return contracts;
+    }
+
+    /**
+     * Sets the active contracts.
+     *
+     * @param contracts the contracts
+     */
+    public void setContracts(List<UserContractDTO> contracts) {
+        this.contracts = contracts;
+    }
+
+    /**
+     * Gets the weeks of the contracts, oldest first.
+     *
+     * @return the weeks
+     */
+    public List<WorkedWeekDTO> getWeeks() {
+        return weeks;
+    }
+
+    /**
+     * Sets the weeks of the contracts.
+     *
+     * @param weeks the weeks
+     */
+    public void setWeeks(List<WorkedWeekDTO> weeks) {
+        this.weeks = weeks;
+    }
+
+    /**
+     * Gets the number of unread notifications.
+     *
+     * @return the unread notifications
+     */
+    public NotificationCountDTO getUnreadNotifications() {
+        return unreadNotifications;
+    }
+
+    /**
+     * Sets the number of unread notifications.
+     *
+     * @param unreadNotifications the unread notifications
+     */
+    public void setUnreadNotifications(NotificationCountDTO unreadNotifications) {
+        this.unreadNotifications = unreadNotifications;
+    }
+}
@@ -0,0 +1,64 @@
+package nl.earnit.dto.workedweek;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * An approval action on a worked week, as part of a batch.
+ */
+@XmlRootElement
+public class WorkedWeekActionDTO {
+    private String workedWeekId;
+    private String action;
+
+    /**
+     * Instantiates a new Worked week action dto.
+     */
+    public WorkedWeekActionDTO() {}
+
+    /**
+     * Instantiates a new Worked week action dto.
+     *
+     * @param workedWeekId the worked week id
+     * @param action       the action, APPROVE or REJECT
+     */
+    public WorkedWeekActionDTO(String workedWeekId, String action) {
+        this.workedWeekId = workedWeekId;
+        this.action = action;
+    }
+
+    /**
+     * Gets worked week id.
+     *
+     * @return the worked week id
+     */
+    public String getWorkedWeekId() {
+        return workedWeekId;
+    }
+
+    /**
+     * Sets worked week id.
+     *
+     * @param workedWeekId the worked week id
+     */
+    public void setWorkedWeekId(String workedWeekId) {
+        this.workedWeekId = workedWeekId;
+    }
+
+    /**
+     * Gets action.
+     *
+     * @return the action
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Sets action.
+     *
+     * @param action the action
+     */
+    public void setAction(String action) {
+        this.action = action;
+    }
+}
@@ -0,0 +1,119 @@
+package nl.earnit.dto.workedweek;
+
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The outcome of an approval action on a worked week, as part of a batch.
+ */
+@XmlRootElement
+public class WorkedWeekActionResultDTO {
+    /**
+     * The status of the worked week was changed.
+     */
+    public static final String UPDATED = "UPDATED";
+    /**
+     * The worked week does not exist or does not belong to the company.
+     */
+    public static final String FORBIDDEN = "FORBIDDEN";
+    /**
+     * The worked week id or action is invalid, or the worked week occurs more than once.
+     */
+    public static final String INVALID = "INVALID";
+
+    private String workedWeekId;
+    private String action;
+    private String result;
+    private String status;
+
+    /**
+     * Instantiates a new Worked week action result dto.
+     */
+    public WorkedWeekActionResultDTO() {}
+
+    /**
+     * Instantiates a new Worked week action result dto.
+     *
+     * @param workedWeekId the worked week id
+     * @param action       the action
+     * @param result       the result, UPDATED, FORBIDDEN or INVALID
+     * @param status       the status of the worked week after the action, null unless updated
+     */
+    public WorkedWeekActionResultDTO(String workedWeekId, String action, String result, String status) {
+        this.workedWeekId = workedWeekId;
+        this.action = action;
+        this.result = result;
+        this.status = status;
+    }
+
+    /**
+     * Gets worked week id.
+     *
+     * @return the worked week id
+     */
+    public String getWorkedWeekId() {
+        return workedWeekId;
+    }
+
+    /**
+     * Sets worked week id.
+     *
+     * @param workedWeekId the worked week id
+     */
+    public void setWorkedWeekId(String workedWeekId) {
+        this.workedWeekId = workedWeekId;
+    }
+
+    /**
+     * Gets action.
+     *
+     * @return the action
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * Sets action.
+     *
+     * @param action the action
+     */
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    /**
+     * Gets result.
+     *
+     * @return the result
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * Sets result.
+     *
+     * @param result the result
+     */
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    /**
+     * Gets status.
+     *
+     * @return the status
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets status.
+     *
+     * @param status the status
+     */
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
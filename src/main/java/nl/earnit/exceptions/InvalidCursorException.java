@@ -0,0 +1,18 @@
+package nl.earnit.exceptions;
+
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * The type Invalid cursor exception.
+ */
+public class InvalidCursorException extends WebApplicationException {
+    /**
+     * Instantiates a new Invalid cursor exception.
+     *
+     * @param message the message
+     */
+    public InvalidCursorException(String message) {
+        super(Response.status(Response.Status.BAD_REQUEST).entity(message).type("text/plain").build());
+    }
+}
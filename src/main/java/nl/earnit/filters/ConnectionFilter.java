@@ -0,0 +1,37 @@
+package nl.earnit.filters;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import nl.earnit.AccessCache;
+import nl.earnit.dao.DAOManager;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Makes every request a unit of work: the statements, result sets and database connection
+ * used while handling a request are released once the response has been written.
+ * <p>
+ * This is a servlet filter rather than a Jersey response filter, because Jersey runs those
+ * before streamed entities such as invoices are written and the redirect filter also uses
+ * the database.
+ */
+public class ConnectionFilter implements Filter {
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+                         FilterChain filterChain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) servletRequest;
+        DAOManager.getInstance().begin(req.getMethod() + " " + req.getRequestURI());
+
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+        } finally {
+            AccessCache.endRequest();
+            try {
+                DAOManager.getInstance().close();
+            } catch (SQLException ignored) {
+                // The pool discards connections it can not take back
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package nl.earnit.filters;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.ext.Provider;
+import nl.earnit.helpers.ETagHelper;
+
+/**
+ * Makes browsers revalidate responses tagged with a version by {@link ETagHelper}. Without it
+ * a browser may reuse a response it considers fresh, with it every request is sent with
+ * {@code If-None-Match} and answered with {@code 304 Not Modified} while the version is the same.
+ */
+@Provider
+public class ETagFilter implements ContainerResponseFilter {
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (responseContext.getEntityTag() == null) return;
+        if (responseContext.getHeaders().containsKey(HttpHeaders.CACHE_CONTROL)) return;
+
+        // The responses are of a single user
+        responseContext.getHeaders().putSingle(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+    }
+}
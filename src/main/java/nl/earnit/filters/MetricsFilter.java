@@ -0,0 +1,94 @@
+package nl.earnit.filters;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import nl.earnit.helpers.RequestMetrics;
+
+import java.io.IOException;
+
+/**
+ * Records the duration, status code and response size of every api request in
+ * {@link RequestMetrics}. {@link ResourceMetricsFilter} adds which resource method handled it.
+ * <p>
+ * Like the {@link ConnectionFilter} this is a servlet filter, so streamed entities and
+ * releasing the connection are part of the measured duration.
+ */
+public class MetricsFilter implements Filter {
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+                         FilterChain filterChain) throws IOException, ServletException {
+        CountingResponse response = new CountingResponse((HttpServletResponse) servletResponse);
+        RequestMetrics.Timing timing = RequestMetrics.begin();
+
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(servletRequest, response);
+            status = response.getStatus();
+        } finally {
+            RequestMetrics.end(timing, status, response.getBytes());
+        }
+    }
+
+    private static class CountingResponse extends HttpServletResponseWrapper {
+        private CountingOutputStream outputStream;
+
+        private CountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CountingOutputStream(super.getOutputStream());
+            }
+
+            return outputStream;
+        }
+
+        private long getBytes() {
+            return outputStream == null ? 0 : outputStream.bytes;
+        }
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream outputStream;
+        private long bytes;
+
+        private CountingOutputStream(ServletOutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+            bytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            outputStream.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return outputStream.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            outputStream.setWriteListener(writeListener);
+        }
+    }
+}
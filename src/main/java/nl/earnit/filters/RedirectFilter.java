@@ -15,6 +15,9 @@ import java.util.Optional;
 
 /**
  * The type Redirect filter.
+ * <p>
+ * Pages are routed by the type of the user claimed in the token, which needs no database work.
+ * Only tokens without the claim or with stale claims have their user looked up.
  */
 public class RedirectFilter implements Filter {
     @Override
@@ -38,11 +41,11 @@ public class RedirectFilter implements Filter {
             return;
         }
         //validates the JSON Web token (JWT)
-        User user = validateJWT(req);
+        String type = getUserType(req);
 
         // Do not redirect login and signup page
         if (req.getServletPath().startsWith("/login") || req.getServletPath().startsWith("/signup")) {
-            if (user == null) {
+            if (type == null) {
                 filterChain.doFilter(servletRequest, servletResponse);
                 return;
             }
@@ -57,13 +60,13 @@ public class RedirectFilter implements Filter {
         }
 
 
-        if (user == null) {
+        if (type == null) {
             redirectLogin(servletResponse);
             return;
         }
 
         // Redirect for user
-        String path = switch (user.getType()) {
+        String path = switch (type) {
             case "COMPANY" -> "/company";
             case "ADMINISTRATOR" -> "/staff";
             default -> "/student";
@@ -79,7 +82,7 @@ public class RedirectFilter implements Filter {
         filterChain.doFilter(servletRequest, servletResponse);
     }
 
-    private User validateJWT(HttpServletRequest req) {
+    private String getUserType(HttpServletRequest req) {
         // If no session token redirect to log in
         if (req.getCookies() == null) {
             return null;
@@ -93,9 +96,15 @@ public class RedirectFilter implements Filter {
             return null;
         }
 
-        // Validate jwt
+        // Validate jwt, from the claims if they are current
         String token = tokenCookie.get().getValue();
-        return Auth.validateJWT(token);
+        String type = Auth.getUserType(token);
+        if (type != null) {
+            return type;
+        }
+
+        User user = Auth.validateJWT(token);
+        return user == null ? null : user.getType();
     }
 
     private void redirectLogin(ServletResponse servletResponse) throws IOException {
@@ -0,0 +1,50 @@
+package nl.earnit.filters;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import nl.earnit.helpers.RequestMetrics;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+/**
+ * Tells {@link RequestMetrics} which resource method handles a request and how long writing
+ * its response entity takes.
+ */
+@Provider
+public class ResourceMetricsFilter implements ContainerRequestFilter, WriterInterceptor {
+    /**
+     * The matched resource.
+     */
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null) return;
+
+        RequestMetrics.setResource(resourceInfo.getResourceClass().getSimpleName() + "." + method.getName());
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        long database = RequestMetrics.get(RequestMetrics.Phase.DATABASE);
+        long pdf = RequestMetrics.get(RequestMetrics.Phase.PDF);
+        long start = System.nanoTime();
+
+        try {
+            context.proceed();
+        } finally {
+            // Streamed entities query and render while being written, that time is already counted
+            long other = RequestMetrics.get(RequestMetrics.Phase.DATABASE) - database
+                + RequestMetrics.get(RequestMetrics.Phase.PDF) - pdf;
+            RequestMetrics.add(RequestMetrics.Phase.SERIALIZATION, System.nanoTime() - start - other);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package nl.earnit.filters;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import nl.earnit.helpers.StaticAssets;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the pages and static files of the web app from {@link StaticAssets}.
+ * <p>
+ * A file under {@code /static} requested with the hash of the current release is cached by
+ * browsers for a year without revalidation. Without the hash, and for pages, which differ per
+ * type of user, browsers revalidate and get {@code 304 Not Modified} while the file is the same.
+ * The gzipped content is sent to clients accepting it. This filter runs after the redirect
+ * filter, so pages are only served to users allowed to see them.
+ */
+public class StaticAssetFilter implements Filter {
+    private static final Logger LOGGER = Logger.getLogger(StaticAssetFilter.class.getName());
+
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private StaticAssets assets;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        ServletContext context = filterConfig.getServletContext();
+
+        try {
+            Map<String, byte[]> files = new HashMap<>();
+            load(context, "/", files);
+            assets = StaticAssets.build(files);
+            LOGGER.info("Prepared " + assets.size() + " static assets");
+        } catch (IOException | RuntimeException e) {
+            // The container serves the files as they are
+            LOGGER.log(Level.WARNING, "Could not prepare static assets", e);
+            assets = null;
+        }
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+                         FilterChain filterChain) throws IOException, ServletException {
+        HttpServletRequest req = (HttpServletRequest) servletRequest;
+        HttpServletResponse res = (HttpServletResponse) servletResponse;
+
+        boolean head = req.getMethod().equals("HEAD");
+        StaticAssets.Asset asset = assets == null || !(head || req.getMethod().equals("GET")) ? null :
+            assets.get(getPath(req));
+        if (asset == null) {
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
+        // Only a request for the current hash may be cached forever
+        boolean immutable = asset.isFingerprinted() && asset.getHash().equals(req.getParameter("v"));
+        res.setHeader("Cache-Control", immutable ? IMMUTABLE : asset.isFingerprinted() ? "no-cache" : "private, no-cache");
+        res.setHeader("ETag", "W/\"" + asset.getHash() + "\"");
+        if (asset.getGzip() != null) res.setHeader("Vary", "Accept-Encoding");
+
+        if (StaticAssets.matches(req.getHeader("If-None-Match"), asset.getHash())) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] content = asset.getContent();
+        if (asset.getGzip() != null && StaticAssets.acceptsGzip(req.getHeader("Accept-Encoding"))) {
+            content = asset.getGzip();
+            res.setHeader("Content-Encoding", "gzip");
+        }
+
+        String contentType = req.getServletContext().getMimeType(asset.getPath());
+        if (contentType != null) res.setContentType(contentType);
+        res.setContentLength(content.length);
+
+        if (!head) res.getOutputStream().write(content);
+    }
+
+    private static String getPath(HttpServletRequest req) {
+        String path = req.getServletPath() + (req.getPathInfo() == null ? "" : req.getPathInfo());
+
+        // The container redirects folders without a slash
+        return path.endsWith("/") ? path + "index.html" : path;
+    }
+
+    private static void load(ServletContext context, String directory, Map<String, byte[]> files) throws IOException {
+        Set<String> paths = context.getResourcePaths(directory);
+        if (paths == null) return;
+
+        for (String path : paths) {
+            if (path.startsWith("/WEB-INF/") || path.startsWith("/META-INF/")) continue;
+
+            if (path.endsWith("/")) {
+                load(context, path, files);
+                continue;
+            }
+
+            try (InputStream in = context.getResourceAsStream(path)) {
+                if (in != null) files.put(path, in.readAllBytes());
+            }
+        }
+    }
+}
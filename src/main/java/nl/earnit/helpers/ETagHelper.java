@@ -0,0 +1,53 @@
+package nl.earnit.helpers;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Conditional requests based on the versions of rows, see the row versions migration.
+ * <p>
+ * A resource first reads the version of what it returns, which only touches the version
+ * columns. When the client already has that version it gets {@code 304 Not Modified} without
+ * the full query being run, otherwise the response is tagged with the version. The tags are
+ * weak, the same version is sent as json and as xml.
+ */
+public class ETagHelper {
+    /**
+     * Creates the entity tag of a version.
+     *
+     * @param version the version
+     * @return the entity tag
+     */
+    public static EntityTag createTag(String version) {
+        return new EntityTag(version, true);
+    }
+
+    /**
+     * Checks whether the client already has a version.
+     *
+     * @param request the request
+     * @param version the version, null if there is nothing to return
+     * @return the {@code 304 Not Modified} response, null if the client does not have the version
+     */
+    public static Response evaluate(Request request, String version) {
+        if (version == null) return null;
+
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(createTag(version));
+        return notModified == null ? null : notModified.build();
+    }
+
+    /**
+     * Creates the response with an entity of a version.
+     *
+     * @param entity  the entity
+     * @param version the version of the entity, null to not tag the response
+     * @return the response
+     */
+    public static Response createTaggedResponse(Object entity, String version) {
+        Response.ResponseBuilder response = Response.ok(entity);
+        if (version != null) response.tag(createTag(version));
+
+        return response.build();
+    }
+}
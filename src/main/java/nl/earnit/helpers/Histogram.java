@@ -0,0 +1,139 @@
+package nl.earnit.helpers;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram with fixed buckets, cheap enough to record every request and query with.
+ * Recording only increments striped counters, percentiles are estimated from the buckets
+ * when read.
+ */
+public class Histogram {
+    /**
+     * Bucket bounds for latencies in milliseconds.
+     */
+    public static final double[] LATENCY_MILLIS = {0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    /**
+     * Bucket bounds for sizes in bytes.
+     */
+    public static final double[] SIZE_BYTES = {128, 1024, 8 * 1024, 64 * 1024, 512 * 1024, 4 * 1024 * 1024, 32 * 1024 * 1024};
+
+    private final double[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final DoubleAccumulator max = new DoubleAccumulator(Math::max, 0);
+
+    /**
+     * Instantiates a new histogram.
+     *
+     * @param bounds the inclusive upper bounds of the buckets in ascending order, larger values
+     *               go in an overflow bucket
+     */
+    public Histogram(double... bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value
+     */
+    public void record(double value) {
+        int bucket = 0;
+        while (bucket < bounds.length && value > bounds[bucket]) {
+            bucket++;
+        }
+
+        buckets[bucket].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Gets the upper bounds of the buckets, without the overflow bucket.
+     *
+     * @return the bounds
+     */
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Gets the number of values in every bucket, the last one is the overflow bucket.
+     *
+     * @return the counts per bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all recorded values.
+     *
+     * @return the sum
+     */
+    public double getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return the max, 0 if nothing was recorded
+     */
+    public double getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimates a percentile by interpolating within the bucket it falls in.
+     *
+     * @param percentile the percentile between 0 and 1
+     * @return the estimate, 0 if nothing was recorded
+     */
+    public double getPercentile(double percentile) {
+        long[] counts = getBucketCounts();
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) return 0;
+
+        double rank = percentile * total;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0 || seen + counts[i] < rank) {
+                seen += counts[i];
+                continue;
+            }
+
+            double lower = i == 0 ? 0 : bounds[i - 1];
+            double upper = i < bounds.length ? bounds[i] : Math.max(getMax(), lower);
+            return Math.min(lower + (upper - lower) * (rank - seen) / counts[i], getMax());
+        }
+
+        return getMax();
+    }
+}
@@ -0,0 +1,121 @@
+package nl.earnit.helpers;
+
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.Text;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An html template with {@code <name>} placeholders (written as {@code &lt;name&gt;}) in its
+ * text. The template is parsed once into a W3C document and every text containing
+ * placeholders is split into literal segments and slots.
+ * <p>
+ * Rendering clones the parsed document and fills in the slots of each text in a single pass.
+ * Values end up in the document as text, so they never need escaping and can not change the
+ * markup.
+ */
+public class HtmlTemplate {
+    private static final Pattern PLACEHOLDER = Pattern.compile("<([a-z_]+)>");
+
+    private final Document skeleton;
+    private final Map<String, Slots> texts = new HashMap<>();
+
+    /**
+     * Parses a template.
+     *
+     * @param html the html of the template
+     */
+    public HtmlTemplate(String html) {
+        this.skeleton = new W3CDom().fromJsoup(Jsoup.parse(html));
+        collect(skeleton);
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param values the values of the placeholders, missing values render empty
+     * @return a new document
+     */
+    public Document render(Map<String, String> values) {
+        Document document;
+        // Reading a DOM is not guaranteed to be thread safe
+        synchronized (skeleton) {
+            document = (Document) skeleton.cloneNode(true);
+        }
+
+        fill(document, values);
+        return document;
+    }
+
+    private void collect(Node node) {
+        if (node instanceof Text text) {
+            String data = text.getData();
+            Matcher matcher = PLACEHOLDER.matcher(data);
+
+            List<String> literals = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            int end = 0;
+            while (matcher.find()) {
+                literals.add(data.substring(end, matcher.start()));
+                names.add(matcher.group(1));
+                end = matcher.end();
+            }
+
+            if (!names.isEmpty()) {
+                literals.add(data.substring(end));
+                texts.put(data, new Slots(literals.toArray(String[]::new), names.toArray(String[]::new)));
+            }
+            return;
+        }
+
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            collect(child);
+        }
+    }
+
+    private void fill(Node node, Map<String, String> values) {
+        if (node instanceof Text text) {
+            Slots slots = texts.get(text.getData());
+            if (slots != null) {
+                text.setData(slots.render(values));
+            }
+            return;
+        }
+
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            fill(child, values);
+        }
+    }
+
+    /**
+     * The literal segments of a text with the slots in between.
+     */
+    private record Slots(String[] literals, String[] names) {
+        private String render(Map<String, String> values) {
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+
+            StringBuilder builder = new StringBuilder(length + 32 * names.length);
+            builder.append(literals[0]);
+            for (int i = 0; i < names.length; i++) {
+                String value = values.get(names[i]);
+                if (value != null) {
+                    builder.append(value);
+                }
+                builder.append(literals[i + 1]);
+            }
+
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package nl.earnit.helpers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Disk cache of rendered invoices, keyed by worked week id.
+ * <p>
+ * Every invoice is stored with the content version it was rendered from, a cached invoice is
+ * only served for the same version. The least recently used invoices are deleted once the
+ * cache holds more than {@code INVOICE_CACHE_MAX_BYTES}. Invoices already on disk are picked
+ * up again after a restart.
+ */
+public class InvoiceCache {
+    private static final Logger LOGGER = Logger.getLogger(InvoiceCache.class.getName());
+
+    private static InvoiceCache instance;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Instantiates a new invoice cache.
+     *
+     * @param directory the directory to store invoices in
+     * @param maxBytes  the maximum size of all invoices together
+     * @throws IOException if the directory could not be created or read
+     */
+    public InvoiceCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * Gets the invoice cache configured by the environment.
+     *
+     * @return the invoice cache
+     */
+    public static synchronized InvoiceCache getInstance() {
+        if (instance == null) {
+            String directory = System.getenv("INVOICE_CACHE_DIR");
+            String maxBytes = System.getenv("INVOICE_CACHE_MAX_BYTES");
+
+            try {
+                instance = new InvoiceCache(
+                    directory == null || directory.isBlank() ? Path.of(System.getProperty("java.io.tmpdir"), "earnit-invoices") : Path.of(directory),
+                    maxBytes == null || maxBytes.isBlank() ? 256L * 1024 * 1024 : Long.parseLong(maxBytes.trim()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Writes a cached invoice.
+     *
+     * @param workedWeekId the worked week id
+     * @param version      the content version of the invoice
+     * @param outputStream the output stream
+     * @return whether the invoice was cached and written
+     * @throws IOException if the invoice could not be written to the output stream
+     */
+    public boolean writeTo(String workedWeekId, String version, OutputStream outputStream) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(workedWeekId);
+            if (entry != null && !entry.version.equals(version)) {
+                remove(workedWeekId);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return false;
+        }
+
+        byte[] pdf;
+        try {
+            pdf = Files.readAllBytes(entry.path);
+        } catch (IOException e) {
+            // Deleted by someone else, render it again
+            synchronized (this) {
+                if (entries.get(workedWeekId) == entry) remove(workedWeekId);
+            }
+            misses.incrementAndGet();
+            return false;
+        }
+
+        hits.incrementAndGet();
+        outputStream.write(pdf);
+        return true;
+    }
+
+    /**
+     * Caches a rendered invoice.
+     *
+     * @param workedWeekId the worked week id
+     * @param version      the content version of the invoice
+     * @param pdf          the rendered invoice
+     */
+    public void put(String workedWeekId, String version, byte[] pdf) {
+        if (pdf.length > maxBytes) return;
+
+        Path path = directory.resolve(workedWeekId + "-" + version + ".pdf");
+        try {
+            Path temporary = Files.createTempFile(directory, workedWeekId, ".tmp");
+            Files.write(temporary, pdf);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not cache invoice", e);
+            return;
+        }
+
+        synchronized (this) {
+            Entry previous = entries.get(workedWeekId);
+            if (previous != null && !previous.path.equals(path)) {
+                remove(workedWeekId);
+            } else if (previous != null) {
+                entries.remove(workedWeekId);
+                bytes -= previous.size;
+            }
+
+            add(workedWeekId, new Entry(version, path, pdf.length));
+        }
+    }
+
+    /**
+     * Removes the cached invoice of a worked week.
+     *
+     * @param workedWeekId the worked week id
+     */
+    public synchronized void invalidate(String workedWeekId) {
+        if (workedWeekId == null) return;
+
+        remove(workedWeekId);
+    }
+
+    /**
+     * Gets the number of invoices served from the cache.
+     *
+     * @return the hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of invoices that had to be rendered.
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the size of all cached invoices together.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the number of cached invoices.
+     *
+     * @return the size
+     */
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    private void add(String workedWeekId, Entry entry) {
+        entries.put(workedWeekId, entry);
+        bytes += entry.size;
+
+        // Delete the least recently used invoices
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            bytes -= eldest.size;
+            delete(eldest.path);
+        }
+    }
+
+    private void remove(String workedWeekId) {
+        Entry entry = entries.remove(workedWeekId);
+        if (entry == null) return;
+
+        bytes -= entry.size;
+        delete(entry.path);
+    }
+
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().endsWith(".tmp")) {
+                    delete(file);
+                } else if (file.getFileName().toString().endsWith(".pdf")) {
+                    files.add(file);
+                }
+            }
+        }
+
+        // Oldest first, so the most recent invoices are evicted last
+        files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int separator = name.lastIndexOf('-');
+            if (separator < 0) continue;
+
+            String workedWeekId = name.substring(0, separator);
+            remove(workedWeekId);
+            add(workedWeekId, new Entry(name.substring(separator + 1, name.length() - 4),
+                file, Files.size(file)));
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not delete cached invoice", e);
+        }
+    }
+
+    private record Entry(String version, Path path, long size) {}
+}
@@ -7,17 +7,28 @@ import jakarta.ws.rs.core.StreamingOutput;
 import nl.earnit.Constants;
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
 import nl.earnit.resources.companies.ISOWeek;
-import org.jsoup.Jsoup;
-import org.jsoup.helper.W3CDom;
-import org.jsoup.nodes.Document;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -27,6 +38,27 @@ import static nl.earnit.Constants.getName;
  * The type Invoice pdf handler.
  */
 public class InvoicePDFHandler {
+    // Rendering is CPU bound, so all downloads share one worker per core
+    private static final int RENDER_THREADS =
+        getEnv("INVOICE_RENDER_THREADS", Runtime.getRuntime().availableProcessors());
+    private static final int RENDER_BUFFER = getEnv("INVOICE_RENDER_BUFFER", RENDER_THREADS);
+
+    // Parsed once, rendering an invoice only clones it and fills in the values
+    private static final HtmlTemplate TEMPLATE = new HtmlTemplate(Constants.INVOICE_TEMPLATE);
+
+    private static final ExecutorService RENDERER = Executors.newFixedThreadPool(RENDER_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "invoice-renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Stops the render threads, downloads still rendering fail.
+     */
+    public static void shutdown() {
+        RENDERER.shutdownNow();
+    }
+
     /**
      * Create single invoice streaming output.
      *
@@ -36,7 +68,7 @@ public class InvoicePDFHandler {
     public static StreamingOutput createSingleInvoice(InvoiceInformation invoiceInformation) {
         return output -> {
             try {
-                createInvoiceStream(output, invoiceInformation);
+                createCachedInvoiceStream(output, invoiceInformation);
             } catch (Exception e) {
                 throw new WebApplicationException("File Not Found !!");
             }
@@ -44,7 +76,9 @@ public class InvoicePDFHandler {
     }
 
     /**
-     * Create invoices streaming output.
+     * Create invoices streaming output. The invoices are rendered in parallel and written to
+     * the zip in order as soon as they are ready, with at most {@code INVOICE_RENDER_BUFFER}
+     * rendered invoices held in memory per download.
      *
      * @param invoiceInformationList the invoice information list
      * @return the streaming output
@@ -53,15 +87,31 @@ public class InvoicePDFHandler {
         return outputStream -> {
             ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(outputStream));
 
-            for (InvoiceInformation invoiceInformation : invoiceInformationList) {
-                ZipEntry zipEntry = new ZipEntry(InvoiceInformation.getInvoiceNameFromInvoiceInformation(invoiceInformation));
-                zipOut.putNextEntry(zipEntry);
-
-                ByteArrayOutputStream os = new ByteArrayOutputStream();
-                InvoicePDFHandler.createInvoiceStream(os, invoiceInformation);
+            Iterator<InvoiceInformation> pending = invoiceInformationList.iterator();
+            Deque<Future<ByteArrayOutputStream>> rendering = new ArrayDeque<>();
 
-                zipOut.write(os.toByteArray());
-                zipOut.closeEntry();
+            try {
+                // Start rendering the first invoices
+                while (rendering.size() < RENDER_BUFFER && pending.hasNext()) {
+                    rendering.add(render(pending.next()));
+                }
+
+                for (InvoiceInformation invoiceInformation : invoiceInformationList) {
+                    ByteArrayOutputStream os = await(rendering.remove());
+
+                    // Writing one invoice frees room for the next one
+                    if (pending.hasNext()) {
+                        rendering.add(render(pending.next()));
+                    }
+
+                    ZipEntry zipEntry = new ZipEntry(InvoiceInformation.getInvoiceNameFromInvoiceInformation(invoiceInformation));
+                    zipOut.putNextEntry(zipEntry);
+                    os.writeTo(zipOut);
+                    zipOut.closeEntry();
+                }
+            } finally {
+                // Stop rendering invoices nobody will receive anymore
+                rendering.forEach(future -> future.cancel(true));
             }
 
             zipOut.close();
@@ -70,6 +120,57 @@ public class InvoicePDFHandler {
         };
     }
 
+    private static Future<ByteArrayOutputStream> render(InvoiceInformation invoiceInformation) {
+        return RENDERER.submit(() -> {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            InvoicePDFHandler.createCachedInvoiceStream(os, invoiceInformation);
+            return os;
+        });
+    }
+
+    private static ByteArrayOutputStream await(Future<ByteArrayOutputStream> future) throws IOException {
+        // Rendering happens on the renderer threads, the request spends the waiting time on it
+        long start = System.nanoTime();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering invoices");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) throw cause;
+            throw new IOException("Could not render invoice", e.getCause());
+        } finally {
+            RequestMetrics.add(RequestMetrics.Phase.PDF, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Create invoice stream, served from the {@link InvoiceCache} if the worked week was
+     * rendered before with the same content.
+     *
+     * @param outputStream       the output stream
+     * @param invoiceInformation the invoice information
+     * @throws IOException the io exception
+     */
+    public static void createCachedInvoiceStream(OutputStream outputStream, InvoiceInformation invoiceInformation) throws IOException {
+        String workedWeekId = invoiceInformation.getWorkedWeekId();
+        if (workedWeekId == null) {
+            createInvoiceStream(outputStream, invoiceInformation);
+            return;
+        }
+
+        InvoiceCache cache = InvoiceCache.getInstance();
+        String version = invoiceInformation.getVersion();
+        if (cache.writeTo(workedWeekId, version, outputStream)) {
+            return;
+        }
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        createInvoiceStream(os, invoiceInformation);
+        cache.put(workedWeekId, version, os.toByteArray());
+        os.writeTo(outputStream);
+    }
+
     /**
      * Create invoice stream.
      *
@@ -78,43 +179,53 @@ public class InvoicePDFHandler {
      * @throws IOException the io exception
      */
     public static void createInvoiceStream(OutputStream outputStream, InvoiceInformation invoiceInformation) throws IOException {
-        String html = Constants.INVOICE_TEMPLATE;
-
-        html = html.replaceAll("&lt;company_name&gt;", invoiceInformation.getCompanyName());
-        html = html.replaceAll("&lt;company_address&gt;", invoiceInformation.getCompanyAddress());
-        html = html.replaceAll("&lt;company_kvk&gt;", invoiceInformation.getCompanyKVK());
+        long start = System.nanoTime();
+        try {
+            renderInvoice(outputStream, invoiceInformation);
+        } finally {
+            RequestMetrics.add(RequestMetrics.Phase.PDF, System.nanoTime() - start);
+        }
+    }
 
-        html = html.replaceAll("&lt;invoice_number&gt;", invoiceInformation.getInvoiceNumber());
-        html = html.replaceAll("&lt;date&gt;", invoiceInformation.getInvoiceDate());
+    private static void renderInvoice(OutputStream outputStream, InvoiceInformation invoiceInformation) throws IOException {
+        float salary = invoiceInformation.getHourlyWageInCents() / 100f * invoiceInformation.getMinutesWorked() / 60f;
+        float tax = 0.21f * salary;
 
-        html = html.replaceAll("&lt;student_name&gt;", invoiceInformation.getStudentName());
-        html = html.replaceAll("&lt;student_address&gt;", invoiceInformation.getStudentAddress());
-        html = html.replaceAll("&lt;student_kvk&gt;", invoiceInformation.getStudentKVK());
-        html = html.replaceAll("&lt;student_btw&gt;", invoiceInformation.getStudentBTW());
+        Map<String, String> values = new HashMap<>();
+        values.put("company_name", invoiceInformation.getCompanyName());
+        values.put("company_address", invoiceInformation.getCompanyAddress());
+        values.put("company_kvk", invoiceInformation.getCompanyKVK());
 
-        html = html.replaceAll("&lt;week_number&gt;", String.valueOf(invoiceInformation.week));
+        values.put("invoice_number", invoiceInformation.getInvoiceNumber());
+        values.put("date", invoiceInformation.getInvoiceDate());
 
-        float salary = invoiceInformation.getHourlyWageInCents() / 100f * invoiceInformation.getMinutesWorked() / 60f;
-        html = html.replaceAll("&lt;role&gt;", invoiceInformation.getRole());
-        html = html.replaceAll("&lt;value&gt;", String.valueOf(round(salary, 2)));
-        html = html.replaceAll("&lt;description&gt;", invoiceInformation.getDescription());
+        values.put("student_name", invoiceInformation.getStudentName());
+        values.put("student_address", invoiceInformation.getStudentAddress());
+        values.put("student_kvk", invoiceInformation.getStudentKVK());
+        values.put("student_btw", invoiceInformation.getStudentBTW());
 
-        float tax = 0.21f * salary;
+        values.put("week_number", String.valueOf(invoiceInformation.week));
 
-        html = html.replaceAll("&lt;tax_value&gt;", String.valueOf(round(tax, 2)));
-        html = html.replaceAll("&lt;total_value&gt;", String.valueOf(round(salary + tax, 2)))
-        ;
+        values.put("role", invoiceInformation.getRole());
+        values.put("value", String.valueOf(round(salary, 2)));
+        values.put("description", invoiceInformation.getDescription());
 
-        final Document document = Jsoup.parse(html);
+        values.put("tax_value", String.valueOf(round(tax, 2)));
+        values.put("total_value", String.valueOf(round(salary + tax, 2)));
 
         PdfRendererBuilder builder = new PdfRendererBuilder();
         builder.useFastMode();
         builder.useSVGDrawer(new BatikSVGDrawer());
-        builder.withW3cDocument(new W3CDom().fromJsoup(document), "");
+        builder.withW3cDocument(TEMPLATE.render(values), "");
         builder.toStream(outputStream);
         builder.run();
     }
 
+    private static int getEnv(String name, int fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : Math.max(1, Integer.parseInt(value.trim()));
+    }
+
     private static double round(double value, int precision) {
         int scale = (int) Math.pow(10, precision);
         return (double) Math.round(value * scale) / scale;
@@ -131,7 +242,8 @@ public class InvoicePDFHandler {
          * @return the invoice information
          */
         public static InvoiceInformation fromWorkedWeek(WorkedWeekDTO workedWeek) {
-            return new InvoiceInformation(workedWeek.getCompany().getName(),
+            return new InvoiceInformation(workedWeek.getId(),
+                workedWeek.getCompany().getName(),
                 workedWeek.getCompany().getAddress(),
                 workedWeek.getCompany().getKvk(),
                 String.format("%04d", new Random().nextInt(10000)), // This is currently just a random number.
@@ -179,6 +291,7 @@ public class InvoicePDFHandler {
             return "invoice-%s-%s-%s-%s.pdf".formatted(invoiceInformation.getYear(), invoiceInformation.getWeek(), invoiceInformation.getStudentName().replaceAll(" ", "-"), invoiceInformation.getRole());
         }
 
+        private final String workedWeekId;
         private final String companyName;
         private final String companyAddress;
         private final String companyKVK;
@@ -200,6 +313,7 @@ public class InvoicePDFHandler {
         /**
          * Instantiates a new Invoice information.
          *
+         * @param workedWeekId      the worked week id, null if the invoice should not be cached
          * @param companyName       the company name
          * @param companyAddress    the company address
          * @param companyKVK        the company kvk
@@ -216,11 +330,12 @@ public class InvoicePDFHandler {
          * @param minutesWorked     the minutes worked
          * @param hourlyWageInCents the hourly wage in cents
          */
-        public InvoiceInformation(String companyName, String companyAddress, String companyKVK,
+        public InvoiceInformation(String workedWeekId, String companyName, String companyAddress, String companyKVK,
                                   String invoiceNumber, String invoiceDate, String studentName,
                                   String studentAddress, String studentKVK, String studentBTW,
                                   String role, String description, int week, int year,
                                   int minutesWorked, int hourlyWageInCents) {
+            this.workedWeekId = workedWeekId;
             this.companyName = companyName;
             this.companyAddress = companyAddress;
             this.companyKVK = companyKVK;
@@ -238,6 +353,65 @@ public class InvoicePDFHandler {
             this.hourlyWageInCents = hourlyWageInCents;
         }
 
+        /**
+         * Instantiates a new Invoice information for an invoice that is not cached.
+         *
+         * @param companyName       the company name
+         * @param companyAddress    the company address
+         * @param companyKVK        the company kvk
+         * @param invoiceNumber     the invoice number
+         * @param invoiceDate       the invoice date
+         * @param studentName       the student name
+         * @param studentAddress    the student address
+         * @param studentKVK        the student kvk
+         * @param studentBTW        the student btw
+         * @param role              the role
+         * @param description       the description
+         * @param week              the week
+         * @param year              the year
+         * @param minutesWorked     the minutes worked
+         * @param hourlyWageInCents the hourly wage in cents
+         */
+        public InvoiceInformation(String companyName, String companyAddress, String companyKVK,
+                                  String invoiceNumber, String invoiceDate, String studentName,
+                                  String studentAddress, String studentKVK, String studentBTW,
+                                  String role, String description, int week, int year,
+                                  int minutesWorked, int hourlyWageInCents) {
+            this(null, companyName, companyAddress, companyKVK, invoiceNumber, invoiceDate,
+                studentName, studentAddress, studentKVK, studentBTW, role, description, week, year,
+                minutesWorked, hourlyWageInCents);
+        }
+
+        /**
+         * Gets the content version, which changes whenever the rendered invoice would. The
+         * invoice number is left out, a cached invoice keeps the number it was rendered with.
+         *
+         * @return the content version
+         */
+        public String getVersion() {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                String content = String.join("\0", String.valueOf(Constants.INVOICE_TEMPLATE.hashCode()),
+                    companyName, companyAddress, companyKVK, invoiceDate, studentName, studentAddress,
+                    studentKVK, studentBTW, role, description, String.valueOf(week),
+                    String.valueOf(year), String.valueOf(minutesWorked), String.valueOf(hourlyWageInCents));
+
+                return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)), 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform supports SHA-256
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Gets worked week id.
+         *
+         * @return the worked week id
+         */
+        public String getWorkedWeekId() {
+            return workedWeekId;
+        }
+
         /**
          * Gets company name.
          *
@@ -0,0 +1,60 @@
+package nl.earnit.helpers;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes child rows that are aggregated into a json array, e.g. with
+ * {@code json_agg(json_build_object('id', w.id, ...))}, straight into models. The keys of the
+ * json objects are the property names of the model.
+ */
+public class JsonRowDecoder {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    /**
+     * Decodes the json array in a column of the current row.
+     *
+     * @param <T>    the type of the rows
+     * @param res    the result set
+     * @param column the column containing the json array
+     * @param type   the type of the rows
+     * @return the decoded rows, empty if the column is null
+     * @throws SQLException if the column could not be read or does not contain valid rows
+     */
+    public static <T> List<T> decodeList(ResultSet res, String column, Class<T> type) throws SQLException {
+        return decodeList(res.getString(column), type);
+    }
+
+    /**
+     * Decodes a json array of rows.
+     *
+     * @param <T>  the type of the rows
+     * @param json the json array
+     * @param type the type of the rows
+     * @return the decoded rows, empty if the json is null
+     * @throws SQLException if the json does not contain valid rows
+     */
+    public static <T> List<T> decodeList(String json, Class<T> type) throws SQLException {
+        if (json == null) {
+            return new ArrayList<>();
+        }
+
+        try {
+            return READERS.computeIfAbsent(type, MAPPER::readerForListOf).readValue(json);
+        } catch (IOException e) {
+            throw new SQLException("Could not decode rows of " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package nl.earnit.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The title and description of a type of notification. The description has {@code <name>}
+ * placeholders, like {@link HtmlTemplate}, and is split into literal segments and slots once,
+ * so rendering a notification is a single pass without parsing.
+ * <p>
+ * The templates of the feeds are kept by type, only notifications of those types are shown in
+ * a feed.
+ */
+public class NotificationTemplate {
+    private static final Pattern PLACEHOLDER = Pattern.compile("<([a-z_]+)>");
+
+    /**
+     * The placeholder of the name of the company.
+     */
+    public static final String COMPANY = "company";
+
+    /**
+     * The placeholder of the role of the contract.
+     */
+    public static final String ROLE = "role";
+
+    /**
+     * The placeholder of the name of the student.
+     */
+    public static final String USER = "user";
+
+    /**
+     * The placeholder of the week.
+     */
+    public static final String WEEK = "week";
+
+    /**
+     * The notifications shown to students, by type.
+     */
+    public static final Map<String, NotificationTemplate> STUDENT_FEED = templates(
+        new NotificationTemplate("HOURS", "Week not confirmed",
+            "You haven't confirmed hours for <role> at <company> for week <week>"),
+        new NotificationTemplate("APPROVED", "Week approved",
+            "<company> approved your suggested hours for week <week>"),
+        new NotificationTemplate("SUGGESTION", "Week denied",
+            "<company> has suggested new hours for week <week>"),
+        new NotificationTemplate("LINK", "New contract",
+            "You have been linked to <company>"));
+
+    /**
+     * The notifications shown to staff, by type.
+     */
+    public static final Map<String, NotificationTemplate> STAFF_FEED = templates(
+        new NotificationTemplate("CONFLICT", "Conflict",
+            "<company> and <user> have a conflict for week <week>"));
+
+    /**
+     * The notifications shown to companies, by type.
+     */
+    public static final Map<String, NotificationTemplate> COMPANY_FEED = templates(
+        new NotificationTemplate("SUGGESTION ACCEPTED", "Suggestion accepted",
+            "<user> accepted your suggestion for week <week> for the position of <role>"),
+        new NotificationTemplate("SUGGESTION REJECTED", "Suggestion rejected",
+            "<user> rejected your suggested hours for week <week> for the position of <role>"),
+        new NotificationTemplate("LINK", "New employee",
+            "New employee <user>"));
+
+    private final String type;
+    private final String title;
+    private final List<String> literals = new ArrayList<>();
+    private final List<String> slots = new ArrayList<>();
+
+    /**
+     * Instantiates a new notification template.
+     *
+     * @param type        the type of the notification
+     * @param title       the title
+     * @param description the description with placeholders
+     */
+    public NotificationTemplate(String type, String title, String description) {
+        this.type = type;
+        this.title = title;
+
+        Matcher matcher = PLACEHOLDER.matcher(description);
+        int end = 0;
+        while (matcher.find()) {
+            literals.add(description.substring(end, matcher.start()));
+            slots.add(matcher.group(1));
+            end = matcher.end();
+        }
+        literals.add(description.substring(end));
+    }
+
+    /**
+     * Gets the type of the notification.
+     *
+     * @return the type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Gets the title.
+     *
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Renders the description.
+     *
+     * @param values the values of the placeholders, missing values render empty
+     * @return the description
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder description = new StringBuilder(literals.get(0));
+        for (int i = 0; i < slots.size(); i++) {
+            String value = values.get(slots.get(i));
+            if (value != null) description.append(value);
+            description.append(literals.get(i + 1));
+        }
+
+        return description.toString();
+    }
+
+    private static Map<String, NotificationTemplate> templates(NotificationTemplate... templates) {
+        Map<String, NotificationTemplate> byType = new LinkedHashMap<>();
+        for (NotificationTemplate template : templates) {
+            byType.put(template.getType(), template);
+        }
+
+        return Collections.unmodifiableMap(byType);
+    }
+}
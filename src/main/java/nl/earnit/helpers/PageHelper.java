@@ -0,0 +1,49 @@
+package nl.earnit.helpers;
+
+import jakarta.ws.rs.core.Link;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import nl.earnit.dao.Keyset;
+
+/**
+ * Creates responses for pages of a list. The body stays the list itself, the cursor of the
+ * next page is sent in the {@code X-Next-Cursor} header and as a {@code next} link.
+ */
+public class PageHelper {
+    /**
+     * The header containing the cursor of the next page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Creates the response for a page.
+     *
+     * @param page    the page
+     * @param uriInfo the uri info of the request
+     * @return the response
+     */
+    public static Response createPageResponse(Keyset.Page<?> page, UriInfo uriInfo) {
+        return createPageResponse(page, uriInfo, null);
+    }
+
+    /**
+     * Creates the response for a page, tagged with the version of the list.
+     *
+     * @param page    the page
+     * @param uriInfo the uri info of the request
+     * @param version the version of the list, null to not tag the response
+     * @return the response
+     */
+    public static Response createPageResponse(Keyset.Page<?> page, UriInfo uriInfo, String version) {
+        Response.ResponseBuilder response = Response.ok(page.items());
+        if (version != null) response.tag(ETagHelper.createTag(version));
+
+        if (page.next() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.next());
+            response.links(Link.fromUriBuilder(uriInfo.getRequestUriBuilder()
+                .replaceQueryParam("after", page.next())).rel("next").build());
+        }
+
+        return response.build();
+    }
+}
@@ -5,6 +5,7 @@ import org.postgresql.util.PGobject;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 
 /**
  * The type Postgres jdbc helper.
@@ -51,6 +52,19 @@ public class PostgresJDBCHelper {
         statement.setObject(index, toInsert);
     }
 
+    /**
+     * Sets an array, e.g. of uuids to match with {@code = ANY(?)}.
+     *
+     * @param statement the statement
+     * @param index     the index
+     * @param type      the type of the elements
+     * @param values    the values
+     * @throws SQLException the sql exception
+     */
+    public static void setArray(PreparedStatement statement, int index, String type, Collection<?> values) throws SQLException {
+        statement.setArray(index, statement.getConnection().createArrayOf(type, values.toArray()));
+    }
+
     /**
      * Sets boolean.
      *
@@ -0,0 +1,99 @@
+package nl.earnit.helpers;
+
+/**
+ * Writes metrics in the Prometheus text exposition format.
+ * <p>
+ * Labels are given as name and value pairs, e.g. {@code sample("requests", 3, "status", "200")}.
+ */
+public class PrometheusWriter {
+    /**
+     * The content type of the text format.
+     */
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final StringBuilder out = new StringBuilder();
+
+    /**
+     * Starts a metric family, write its samples directly after it.
+     *
+     * @param name the name of the family
+     * @param type the type, e.g. counter, gauge or histogram
+     * @param help the description
+     * @return this writer
+     */
+    public PrometheusWriter family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a sample.
+     *
+     * @param name   the name of the sample
+     * @param value  the value
+     * @param labels the labels as name and value pairs
+     * @return this writer
+     */
+    public PrometheusWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        if (labels.length > 0) {
+            out.append('{');
+            for (int i = 0; i + 1 < labels.length; i += 2) {
+                if (i > 0) out.append(',');
+                out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes the buckets, sum and count of a histogram.
+     *
+     * @param name      the name of the histogram family
+     * @param histogram the histogram
+     * @param scale     the factor to convert the recorded values with, e.g. 0.001 to export
+     *                  milliseconds as seconds
+     * @param labels    the labels as name and value pairs
+     * @return this writer
+     */
+    public PrometheusWriter histogram(String name, Histogram histogram, double scale, String... labels) {
+        double[] bounds = histogram.getBounds();
+        long[] counts = histogram.getBucketCounts();
+
+        String[] bucketLabels = new String[labels.length + 2];
+        System.arraycopy(labels, 0, bucketLabels, 0, labels.length);
+        bucketLabels[labels.length] = "le";
+
+        // Buckets are cumulative
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            bucketLabels[labels.length + 1] = i < bounds.length ? format(bounds[i] * scale) : "+Inf";
+            sample(name + "_bucket", cumulative, bucketLabels);
+        }
+
+        sample(name + "_sum", histogram.getSum() * scale, labels);
+        sample(name + "_count", cumulative, labels);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,226 @@
+package nl.earnit.helpers;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the requests to the api, per resource method.
+ * <p>
+ * A request is timed from {@link #begin()} to {@link #end(Timing, int, long)} on the thread
+ * handling it. Code running on that thread reports the time spent in a {@link Phase}, so
+ * slow requests can be attributed to the database, rendering invoices or writing the
+ * response. Reporting a phase outside of a request does nothing.
+ */
+public class RequestMetrics {
+    /**
+     * The resource of requests that did not match a resource method.
+     */
+    public static final String UNMATCHED = "unmatched";
+
+    private static final ThreadLocal<Timing> current = new ThreadLocal<>();
+    private static final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The parts of handling a request that are timed separately.
+     */
+    public enum Phase {
+        /**
+         * Executing queries.
+         */
+        DATABASE("db"),
+        /**
+         * Rendering invoices, or waiting for them to be rendered.
+         */
+        PDF("pdf"),
+        /**
+         * Writing the response entity, without the other phases that happen while writing.
+         */
+        SERIALIZATION("serialization");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Gets the name used in the metrics.
+         *
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Starts timing a request on the current thread.
+     *
+     * @return the timing of the request
+     */
+    public static Timing begin() {
+        inFlight.incrementAndGet();
+        Timing timing = new Timing();
+        current.set(timing);
+        return timing;
+    }
+
+    /**
+     * Ends timing a request and records it.
+     *
+     * @param timing the timing of the request
+     * @param status the status code of the response
+     * @param bytes  the size of the response body
+     */
+    public static void end(Timing timing, int status, long bytes) {
+        long duration = System.nanoTime() - timing.start;
+        current.remove();
+        inFlight.decrementAndGet();
+
+        Stats resource = stats.computeIfAbsent(timing.resource, Stats::new);
+        resource.latency.record(duration / 1_000_000.0);
+        resource.size.record(bytes);
+        resource.statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        for (Phase phase : Phase.values()) {
+            resource.phases[phase.ordinal()].add(timing.phases[phase.ordinal()]);
+        }
+    }
+
+    /**
+     * Sets the resource method handling the current request.
+     *
+     * @param resource the resource method, e.g. {@code CompanyResource.getToApprove}
+     */
+    public static void setResource(String resource) {
+        Timing timing = current.get();
+        if (timing != null) timing.resource = resource;
+    }
+
+    /**
+     * Adds time spent in a phase to the current request.
+     *
+     * @param phase the phase
+     * @param nanos the time spent in nanoseconds
+     */
+    public static void add(Phase phase, long nanos) {
+        Timing timing = current.get();
+        if (timing != null) timing.phases[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Gets the time the current request spent in a phase so far.
+     *
+     * @param phase the phase
+     * @return the time spent in nanoseconds, 0 outside of a request
+     */
+    public static long get(Phase phase) {
+        Timing timing = current.get();
+        return timing == null ? 0 : timing.phases[phase.ordinal()];
+    }
+
+    /**
+     * Gets the number of requests being handled.
+     *
+     * @return the requests in flight
+     */
+    public static int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the statistics of every resource method that handled a request.
+     *
+     * @return the statistics by resource method
+     */
+    public static Map<String, Stats> getStats() {
+        return new TreeMap<>(stats);
+    }
+
+    /**
+     * Removes all statistics.
+     */
+    public static void clear() {
+        stats.clear();
+    }
+
+    /**
+     * The timing of a single request, only used by the thread handling it.
+     */
+    public static class Timing {
+        private final long start = System.nanoTime();
+        private final long[] phases = new long[Phase.values().length];
+        private String resource = UNMATCHED;
+
+        private Timing() {}
+    }
+
+    /**
+     * Statistics of the requests handled by a resource method.
+     */
+    public static class Stats {
+        private final String resource;
+        private final Histogram latency = new Histogram(Histogram.LATENCY_MILLIS);
+        private final Histogram size = new Histogram(Histogram.SIZE_BYTES);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder[] phases = new LongAdder[Phase.values().length];
+
+        private Stats(String resource) {
+            this.resource = resource;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Gets the resource method.
+         *
+         * @return the resource method
+         */
+        public String getResource() {
+            return resource;
+        }
+
+        /**
+         * Gets the durations of the requests.
+         *
+         * @return the latency in milliseconds
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * Gets the sizes of the response bodies.
+         *
+         * @return the size in bytes
+         */
+        public Histogram getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the number of responses per status code.
+         *
+         * @return the responses by status code
+         */
+        public Map<Integer, Long> getStatuses() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return counts;
+        }
+
+        /**
+         * Gets the total time the requests spent in a phase.
+         *
+         * @param phase the phase
+         * @return the time spent in nanoseconds
+         */
+        public long getPhase(Phase phase) {
+            return phases[phase.ordinal()].sum();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package nl.earnit.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The files of the web app, prepared once per deployment to be served from memory.
+ * <p>
+ * Every file gets a hash of its content. References to files under {@code /static} in
+ * stylesheets, scripts and pages get that hash as {@code ?v=} query, so a browser can keep a
+ * file with the hash of the current release forever and fetches it again once it changes.
+ * Files are processed in the order pages reference them, so the hash of a script covers the
+ * hashes of the icons it references. Text files are gzipped in advance when that makes them
+ * smaller.
+ */
+public class StaticAssets {
+    /**
+     * The prefix of the files that are referenced with their hash.
+     */
+    public static final String STATIC_PREFIX = "/static/";
+
+    private static final Pattern REFERENCE = Pattern.compile("([\"'(])(/static/[A-Za-z0-9_./-]+)(?=[\"')])");
+    private static final List<String> TEXT_EXTENSIONS = List.of("css", "js", "html", "svg", "json", "txt");
+    private static final int HASH_LENGTH = 16;
+
+    private final Map<String, Asset> assets;
+
+    private StaticAssets(Map<String, Asset> assets) {
+        this.assets = assets;
+    }
+
+    /**
+     * Prepares files.
+     *
+     * @param files the contents of the files by path, starting with a slash
+     * @return the assets
+     */
+    public static StaticAssets build(Map<String, byte[]> files) {
+        List<String> paths = new ArrayList<>(files.keySet());
+        paths.sort(Comparator.comparingInt(StaticAssets::getRank).thenComparing(Comparator.naturalOrder()));
+
+        Map<String, Asset> assets = new HashMap<>();
+        for (String path : paths) {
+            byte[] content = files.get(path);
+            String extension = getExtension(path);
+            boolean text = TEXT_EXTENSIONS.contains(extension);
+
+            // Only references to files processed before are rewritten
+            if (text && getRank(path) > 0) content = rewrite(content, assets);
+
+            byte[] gzip = text ? gzip(content) : null;
+            if (gzip != null && gzip.length >= content.length) gzip = null;
+
+            assets.put(path, new Asset(path, content, gzip, hash(content)));
+        }
+
+        return new StaticAssets(Map.copyOf(assets));
+    }
+
+    /**
+     * Gets a file.
+     *
+     * @param path the path of the file
+     * @return the asset, null if there is no such file
+     */
+    public Asset get(String path) {
+        return assets.get(path);
+    }
+
+    /**
+     * Gets the number of files.
+     *
+     * @return the number of files
+     */
+    public int size() {
+        return assets.size();
+    }
+
+    /**
+     * Checks whether a client accepts gzipped responses.
+     *
+     * @param acceptEncoding the {@code Accept-Encoding} header, may be null
+     * @return whether gzip is accepted
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*")) continue;
+
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (!parameter.startsWith("q=")) continue;
+
+                try {
+                    refused = Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    refused = true;
+                }
+            }
+
+            if (!refused) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks whether a client already has a version of a file, the tags are compared weakly.
+     *
+     * @param ifNoneMatch the {@code If-None-Match} header, may be null
+     * @param hash        the hash of the file
+     * @return whether the client has the file
+     */
+    public static boolean matches(String ifNoneMatch, String hash) {
+        if (ifNoneMatch == null) return false;
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) return true;
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("\"" + hash + "\"")) return true;
+        }
+
+        return false;
+    }
+
+    private static byte[] rewrite(byte[] content, Map<String, Asset> assets) {
+        Matcher matcher = REFERENCE.matcher(new String(content, StandardCharsets.UTF_8));
+
+        StringBuilder rewritten = new StringBuilder();
+        while (matcher.find()) {
+            Asset asset = assets.get(matcher.group(2));
+            String reference = asset == null ? matcher.group(2) : asset.getFingerprintedPath();
+            matcher.appendReplacement(rewritten, Matcher.quoteReplacement(matcher.group(1) + reference));
+        }
+        matcher.appendTail(rewritten);
+
+        return rewritten.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest).substring(0, HASH_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int getRank(String path) {
+        // Icons before the stylesheets and scripts using them, those before the pages
+        return switch (getExtension(path)) {
+            case "css" -> 1;
+            case "js" -> 2;
+            case "html" -> 3;
+            default -> 0;
+        };
+    }
+
+    private static String getExtension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot < path.lastIndexOf('/') ? "" : path.substring(dot + 1).toLowerCase();
+    }
+
+    /**
+     * A prepared file.
+     */
+    public static class Asset {
+        private final String path;
+        private final byte[] content;
+        private final byte[] gzip;
+        private final String hash;
+
+        private Asset(String path, byte[] content, byte[] gzip, String hash) {
+            this.path = path;
+            this.content = content;
+            this.gzip = gzip;
+            this.hash = hash;
+        }
+
+        /**
+         * Gets the path.
+         *
+         * @return the path
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Gets the content, with the references rewritten.
+         *
+         * @return the content
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Gets the gzipped content.
+         *
+         * @return the gzipped content, null if gzip does not make the file smaller
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * Gets the hash of the content.
+         *
+         * @return the hash
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Checks whether the file is referenced with its hash.
+         *
+         * @return whether the file is under {@code /static}
+         */
+        public boolean isFingerprinted() {
+            return path.startsWith(STATIC_PREFIX);
+        }
+
+        /**
+         * Gets the path with the hash, for references to the file.
+         *
+         * @return the path with the hash
+         */
+        public String getFingerprintedPath() {
+            return path + "?v=" + hash;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package nl.earnit.listeners;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import nl.earnit.TokenVersions;
+import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.Migrations;
+import nl.earnit.dao.UserDAO;
+import nl.earnit.dao.WorkedWeekDAO;
+import nl.earnit.helpers.InvoicePDFHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Manages the database connection pool over the lifetime of the application and brings the
+ * schema up to date before the first request.
+ * <p>
+ * The total minutes of the worked weeks are checked against their tasks every
+ * {@code WORKED_WEEK_TOTALS_INTERVAL} milliseconds (default a day, 0 to disable) and repaired
+ * when they drifted.
+ * <p>
+ * The token versions of the users are loaded before the first request and reloaded every
+ * {@code TOKEN_VERSIONS_INTERVAL} milliseconds, see {@link TokenVersions}.
+ */
+public class DatabaseListener implements ServletContextListener {
+    private static final Logger LOGGER = Logger.getLogger(DatabaseListener.class.getName());
+
+    private static final long TOTALS_INTERVAL_MILLIS = getEnv("WORKED_WEEK_TOTALS_INTERVAL", 24 * 60 * 60_000L);
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        try (Connection con = DAOManager.getConnectionPool().getConnection()) {
+            int applied = Migrations.migrate(con);
+            LOGGER.info("Applied " + applied + " migrations, schema is at version " + Migrations.getVersion(con));
+        } catch (SQLException e) {
+            // Do not serve requests against an outdated schema
+            throw new IllegalStateException("Could not migrate the database", e);
+        }
+
+        // Until they are loaded, pages are routed by looking up the user
+        loadTokenVersions();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "earnit-database-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if (TOTALS_INTERVAL_MILLIS > 0) {
+            scheduler.scheduleWithFixedDelay(DatabaseListener::repairWorkedWeekTotals, TOTALS_INTERVAL_MILLIS,
+                TOTALS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        if (TokenVersions.getInterval() > 0) {
+            scheduler.scheduleWithFixedDelay(DatabaseListener::loadTokenVersions, TokenVersions.getInterval(),
+                TokenVersions.getInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+
+        // The render threads would keep the classes of the web app loaded after an undeploy
+        InvoicePDFHandler.shutdown();
+
+        // Close all pooled connections
+        DAOManager.setConnectionPool(null);
+    }
+
+    private static void repairWorkedWeekTotals() {
+        try (Connection con = DAOManager.getConnectionPool().getConnection()) {
+            int repaired = new WorkedWeekDAO(con).repairWorkedWeekTotals();
+            if (repaired > 0) {
+                LOGGER.warning("Repaired the total minutes of " + repaired + " worked weeks");
+            }
+        } catch (Exception e) {
+            // Try again at the next interval
+            LOGGER.log(Level.SEVERE, "Could not check the total minutes of the worked weeks", e);
+        }
+    }
+
+    private static void loadTokenVersions() {
+        try (Connection con = DAOManager.getConnectionPool().getConnection()) {
+            TokenVersions.load(new UserDAO(con).getTokenVersions());
+        } catch (Exception e) {
+            // Claims are no longer trusted once the versions are too old
+            LOGGER.log(Level.SEVERE, "Could not load the token versions", e);
+        }
+    }
+
+    private static long getEnv(String name, long fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) return fallback;
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Ignoring invalid value for " + name + ": " + value);
+            return fallback;
+        }
+    }
+}
@@ -17,6 +17,7 @@ public class User {
     private String kvk;
     private String address;
     private String btw;
+    private int tokenVersion;
 
     /**
      * Creates a user model without values.
@@ -195,6 +196,24 @@ public class User {
         this.kvk = kvk;
     }
 
+    /**
+     * Gets the token version, tokens issued with an older version have stale claims.
+     *
+     * @return the token version
+     */
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
+    /**
+     * Sets the token version.
+     *
+     * @param tokenVersion the token version
+     */
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
+
     /**
      * Gets address.
      *
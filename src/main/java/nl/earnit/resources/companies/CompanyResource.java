@@ -8,14 +8,27 @@ import nl.earnit.dto.NotificationDTO;
 import nl.earnit.dto.company.CreateNoteDTO;
 import nl.earnit.dto.company.CreateSuggestionDTO;
 import nl.earnit.dto.contracts.ContractDTO;
+import nl.earnit.dto.workedweek.WorkedWeekActionDTO;
+import nl.earnit.dto.workedweek.WorkedWeekActionResultDTO;
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
 import nl.earnit.dto.workedweek.WorkedWeekUndoApprovalDTO;
+import nl.earnit.exceptions.InvalidCursorException;
+import nl.earnit.helpers.ETagHelper;
+import nl.earnit.helpers.PageHelper;
 import nl.earnit.helpers.RequestHelper;
 import nl.earnit.models.Company;
 import nl.earnit.dto.InvalidEntryDTO;
 import nl.earnit.dto.user.UserResponseDTO;
 
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * The type Company resource.
@@ -33,6 +46,9 @@ public class CompanyResource {
     Request request;
     private final String companyId;
 
+    // Actions accepted in a single batch of approvals
+    private static final int MAX_APPROVALS = 1000;
+
     /**
      * Instantiates a new Company resource.
      *
@@ -56,8 +72,11 @@ public class CompanyResource {
         try {
             CompanyDAO companyDAO =
                 (CompanyDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY);
+            String version = companyDAO.getCompanyVersion(companyId);
+            Response notModified = ETagHelper.evaluate(request, version);
+            if (notModified != null) return notModified;
 
-            return Response.ok(companyDAO.getCompanyById(companyId)).build();
+            return ETagHelper.createTaggedResponse(companyDAO.getCompanyById(companyId), version);
         } catch (Exception e) {
             return Response.serverError().build();
         }
@@ -173,8 +192,11 @@ public class CompanyResource {
         try {
             ContractDAO contractDAO =
                 (ContractDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.CONTRACT);
+            String version = contractDAO.getContractsVersionByCompanyId(companyId);
+            Response notModified = ETagHelper.evaluate(request, version);
+            if (notModified != null) return notModified;
 
-            return Response.ok(contractDAO.getAllContractsByCompanyId(companyId,company, userContracts, userContractsUser, order)).build();
+            return ETagHelper.createTaggedResponse(contractDAO.getAllContractsByCompanyId(companyId,company, userContracts, userContractsUser, order), version);
         } catch (Exception e) {
             return Response.serverError().build();
         }
@@ -283,6 +305,8 @@ public class CompanyResource {
      * @param hours        the hours
      * @param totalHours   the total hours
      * @param order        the order
+     * @param limit        the maximum number of worked weeks, all if neither limit nor after is given
+     * @param after        the cursor of the previous page
      * @return the invoices
      */
     @GET
@@ -297,11 +321,17 @@ public class CompanyResource {
                                 @QueryParam("user") @DefaultValue("false") boolean user,
                                 @QueryParam("hours") @DefaultValue("false") boolean hours,
                                 @QueryParam("totalHours") @DefaultValue("false") boolean totalHours,
-                                @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order) {
+                                @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order,
+                                @QueryParam("limit") Integer limit,
+                                @QueryParam("after") String after) {
+        Keyset keyset = Keyset.of(limit, after);
+
         try {
             WorkedWeekDAO workedWeekDAO = (WorkedWeekDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.WORKED_WEEK);
-            List<WorkedWeekDTO> workedWeeks = workedWeekDAO.getWorkedWeeksForCompany(companyId, Integer.parseInt(year), Integer.parseInt(week), company,contract,userContract, user,hours,totalHours, order);
-            return Response.ok(workedWeeks).build();
+            Keyset.Page<WorkedWeekDTO> workedWeeks = workedWeekDAO.getWorkedWeeksForCompany(companyId, Integer.parseInt(year), Integer.parseInt(week), company,contract,userContract, user,hours,totalHours, order, keyset);
+            return PageHelper.createPageResponse(workedWeeks, uriInfo);
+        } catch (InvalidCursorException e) {
+            throw e;
         } catch (Exception e) {
             return Response.serverError().build();
         }
@@ -411,6 +441,8 @@ public class CompanyResource {
      * @param hours        the hours
      * @param totalHours   the total hours
      * @param order        the order
+     * @param limit        the maximum number of worked weeks, all if neither limit nor after is given
+     * @param after        the cursor of the previous page
      * @return the invoices
      */
     @GET
@@ -424,7 +456,11 @@ public class CompanyResource {
                                 @QueryParam("user") @DefaultValue("false") boolean user,
                                 @QueryParam("hours") @DefaultValue("false") boolean hours,
                                 @QueryParam("totalHours") @DefaultValue("false") boolean totalHours,
-                                @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order) {
+                                @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order,
+                                @QueryParam("limit") Integer limit,
+                                @QueryParam("after") String after) {
+        Keyset keyset = Keyset.of(limit, after);
+
         try {
             WorkedWeekDAO workedWeekDAO = (WorkedWeekDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.WORKED_WEEK);
             CompanyDAO companyDAO = (CompanyDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY);
@@ -432,8 +468,10 @@ public class CompanyResource {
                 return Response.status(Response.Status.FORBIDDEN).build();
             }
 
-            List<WorkedWeekDTO> workedWeeks = workedWeekDAO.getWorkedWeeksForCompanyForUser(companyId, studentId, company,contract,userContract, user,hours,totalHours, order);
-            return Response.ok(workedWeeks).build();
+            Keyset.Page<WorkedWeekDTO> workedWeeks = workedWeekDAO.getWorkedWeeksForCompanyForUser(companyId, studentId, company,contract,userContract, user,hours,totalHours, order, keyset);
+            return PageHelper.createPageResponse(workedWeeks, uriInfo);
+        } catch (InvalidCursorException e) {
+            throw e;
         } catch (Exception e) {
             return Response.serverError().build();
         }
@@ -449,6 +487,8 @@ public class CompanyResource {
      * @param hours        the hours
      * @param totalHours   the total hours
      * @param order        the order
+     * @param limit        the maximum number of worked weeks, all if neither limit nor after is given
+     * @param after        the cursor of the previous page
      * @return the to approve
      */
     @GET
@@ -461,19 +501,110 @@ public class CompanyResource {
                                  @QueryParam("user") @DefaultValue("false") boolean user,
                                  @QueryParam("hours") @DefaultValue("false") boolean hours,
                                  @QueryParam("totalHours") @DefaultValue("false") boolean totalHours,
-                                 @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order) {
+                                 @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order,
+                                 @QueryParam("limit") Integer limit,
+                                 @QueryParam("after") String after) {
+        Keyset keyset = Keyset.of(limit, after);
+
         try {
             WorkedWeekDAO workedWeekDAO = (WorkedWeekDAO) DAOManager.getInstance().getDAO(
                 DAOManager.DAO.WORKED_WEEK);
 
-            return Response.ok(
+            return PageHelper.createPageResponse(
                 workedWeekDAO.getWorkedWeeksToApproveForCompany(companyId, company, contract,
-                    userContract, user, hours, totalHours, order)).build();
+                    userContract, user, hours, totalHours, order, keyset), uriInfo);
+        } catch (InvalidCursorException e) {
+            throw e;
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * Approves or rejects many worked weeks at once. Access to all worked weeks is checked
+     * with one query and the statuses are changed with one update, the result of every action
+     * is returned in the order they were given.
+     *
+     * @param actions the actions, APPROVE or REJECT per worked week
+     * @return the results
+     */
+    @POST
+    @Path("/approves")
+    @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    public Response setApprovals(List<WorkedWeekActionDTO> actions) {
+        if (actions == null || actions.size() > MAX_APPROVALS) {
+            return Response.status(422).entity(new InvalidEntryDTO("actions")).build();
+        }
+
+        // The new status per worked week, a worked week can only be changed once per batch
+        Map<String, String> statuses = new LinkedHashMap<>();
+        Set<String> duplicates = new HashSet<>();
+        for (WorkedWeekActionDTO action : actions) {
+            String status = getApprovalStatus(action);
+            if (status == null) continue;
+
+            String workedWeekId = normalizeId(action.getWorkedWeekId());
+            if (statuses.containsKey(workedWeekId)) {
+                duplicates.add(workedWeekId);
+            }
+            statuses.put(workedWeekId, status);
+        }
+        statuses.keySet().removeAll(duplicates);
+
+        try {
+            WorkedWeekDAO workedWeekDAO = (WorkedWeekDAO) DAOManager.getInstance().getDAO(
+                DAOManager.DAO.WORKED_WEEK);
+
+            Set<String> accessible = workedWeekDAO.getWorkedWeeksWithCompanyAccess(companyId, statuses.keySet());
+            statuses.keySet().retainAll(accessible);
+            Map<String, String> updated = workedWeekDAO.setWorkedWeekStatuses(statuses);
+
+            List<WorkedWeekActionResultDTO> results = new ArrayList<>();
+            for (WorkedWeekActionDTO action : actions) {
+                String workedWeekId = getApprovalStatus(action) == null ? null : normalizeId(action.getWorkedWeekId());
+                String result;
+                if (workedWeekId == null || duplicates.contains(workedWeekId)) {
+                    result = WorkedWeekActionResultDTO.INVALID;
+                } else if (updated.containsKey(workedWeekId)) {
+                    result = WorkedWeekActionResultDTO.UPDATED;
+                } else {
+                    result = WorkedWeekActionResultDTO.FORBIDDEN;
+                }
+
+                results.add(new WorkedWeekActionResultDTO(action == null ? null : action.getWorkedWeekId(),
+                    action == null ? null : action.getAction(), result,
+                    workedWeekId == null ? null : updated.get(workedWeekId)));
+            }
+
+            return Response.ok(results).build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private static String getApprovalStatus(WorkedWeekActionDTO action) {
+        if (action == null || action.getWorkedWeekId() == null || action.getAction() == null) return null;
+
+        try {
+            RequestHelper.validateUUID(action.getWorkedWeekId());
+        } catch (BadRequestException e) {
+            return null;
+        }
+
+        // The same statuses as approving and rejecting a single worked week
+        return switch (action.getAction().toUpperCase()) {
+            case "APPROVE" -> "APPROVED";
+            case "REJECT" -> "SUGGESTED";
+            default -> null;
+        };
+    }
+
+    private static String normalizeId(String workedWeekId) {
+        // Postgres returns ids in lowercase
+        return UUID.fromString(workedWeekId).toString();
+    }
+
     /**
      * Gets approve details.
      *
@@ -721,20 +852,73 @@ public class CompanyResource {
         }
     }
 
+    /**
+     * Gets the home page of the company: the weeks waiting for approval, the approved weeks of
+     * the current week and the latest notifications, with the number of unread notifications.
+     *
+     * @param limit the maximum number of approvals and of notifications
+     * @return the dashboard
+     */
+    @GET
+    @Path("/dashboard")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    public Response getDashboard(@QueryParam("limit") @DefaultValue("" + Keyset.DEFAULT_LIMIT) int limit) {
+        Keyset keyset = Keyset.of(limit, null);
+        LocalDate now = LocalDate.now();
+
+        try {
+            CompanyDAO companyDAO = (CompanyDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY);
+            return Response.ok(companyDAO.getCompanyDashboard(companyId, now.get(IsoFields.WEEK_BASED_YEAR),
+                now.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR), keyset)).build();
+        } catch (Exception e) {
+            return Response.serverError().build();
+        }
+    }
+
+    /**
+     * Gets the notifications of the company, newest first.
+     *
+     * @param limit the maximum number of notifications, all if neither limit nor after is given
+     * @param after the cursor of the previous page
+     * @return the notifications
+     */
     @GET
     @Path("/notifications")
     @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
-    public Response getNotificationsForCompany() {
-        CompanyDAO companyDAO;
-        List<NotificationDTO> notifications;
+    public Response getNotificationsForCompany(@QueryParam("limit") Integer limit,
+                                               @QueryParam("after") String after) {
+        Keyset keyset = Keyset.of(limit, after);
+
         try {
-            companyDAO = (CompanyDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY);
-            notifications = companyDAO.getNotificationsForCompany(companyId);
+            CompanyDAO companyDAO = (CompanyDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY);
+            String version = companyDAO.getNotificationsVersionForCompany(companyId);
+            Response notModified = ETagHelper.evaluate(request, version);
+            if (notModified != null) return notModified;
+
+            Keyset.Page<NotificationDTO> notifications = companyDAO.getNotificationsForCompany(companyId, keyset);
+            return PageHelper.createPageResponse(notifications, uriInfo, version);
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (Exception e) {
+            return Response.serverError().build();
         }
-        catch (Exception e) {
+    }
+
+    /**
+     * Gets the number of unread notifications of the company.
+     *
+     * @return the number of unread notifications
+     */
+    @GET
+    @Path("/notifications/unread")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    public Response getUnreadNotificationsForCompany() {
+        try {
+            CompanyDAO companyDAO = (CompanyDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY);
+            return Response.ok(companyDAO.countUnreadNotificationsForCompany(companyId)).build();
+        } catch (Exception e) {
             return Response.serverError().build();
         }
-        return Response.ok(notifications).build();
     }
 
     @POST
@@ -0,0 +1,206 @@
+package nl.earnit.resources.metrics;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.*;
+import nl.earnit.AccessCache;
+import nl.earnit.AuthenticationCache;
+import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.QueryMetrics;
+import nl.earnit.helpers.Histogram;
+import nl.earnit.helpers.InvoiceCache;
+import nl.earnit.helpers.PrometheusWriter;
+import nl.earnit.helpers.RequestMetrics;
+import nl.earnit.helpers.RequestHelper;
+import nl.earnit.models.User;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operational metrics, only available to staff.
+ */
+@Path("/metrics")
+public class MetricsResource {
+    /**
+     * The Uri info.
+     */
+    @Context
+    UriInfo uriInfo;
+    /**
+     * The Request.
+     */
+    @Context
+    Request request;
+
+    /**
+     * Gets the connection pool metrics.
+     *
+     * @param httpHeaders the http headers
+     * @return the connection pool metrics
+     */
+    @GET
+    @Path("/pool")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getPoolMetrics(@Context HttpHeaders httpHeaders) {
+        User user = RequestHelper.validateUser(httpHeaders);
+        RequestHelper.handleAccessToStaff(user);
+
+        return Response.ok(DAOManager.getConnectionPool().getMetrics()).build();
+    }
+
+    /**
+     * Gets the authentication cache metrics.
+     *
+     * @param httpHeaders the http headers
+     * @return the authentication cache metrics
+     */
+    @GET
+    @Path("/auth")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getAuthenticationMetrics(@Context HttpHeaders httpHeaders) {
+        User user = RequestHelper.validateUser(httpHeaders);
+        RequestHelper.handleAccessToStaff(user);
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", AuthenticationCache.getSize());
+        metrics.put("hits", AuthenticationCache.getHits());
+        metrics.put("misses", AuthenticationCache.getMisses());
+        return Response.ok(metrics).build();
+    }
+
+    /**
+     * Gets the access cache metrics.
+     *
+     * @param httpHeaders the http headers
+     * @return the access cache metrics
+     */
+    @GET
+    @Path("/access")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getAccessMetrics(@Context HttpHeaders httpHeaders) {
+        User user = RequestHelper.validateUser(httpHeaders);
+        RequestHelper.handleAccessToStaff(user);
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", AccessCache.getSize());
+        metrics.put("requestHits", AccessCache.getRequestHits());
+        metrics.put("sharedHits", AccessCache.getSharedHits());
+        metrics.put("lookups", AccessCache.getLookups());
+        metrics.put("queriesSaved", AccessCache.getQueriesSaved());
+        return Response.ok(metrics).build();
+    }
+
+    /**
+     * Gets the invoice cache metrics.
+     *
+     * @param httpHeaders the http headers
+     * @return the invoice cache metrics
+     */
+    @GET
+    @Path("/invoices")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getInvoiceMetrics(@Context HttpHeaders httpHeaders) {
+        User user = RequestHelper.validateUser(httpHeaders);
+        RequestHelper.handleAccessToStaff(user);
+
+        InvoiceCache cache = InvoiceCache.getInstance();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", cache.getSize());
+        metrics.put("bytes", cache.getBytes());
+        metrics.put("hits", cache.getHits());
+        metrics.put("misses", cache.getMisses());
+        return Response.ok(metrics).build();
+    }
+
+    /**
+     * Gets the query timings per DAO method and the most recent slow queries.
+     *
+     * @param httpHeaders the http headers
+     * @return the query metrics
+     */
+    @GET
+    @Path("/queries")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getQueryMetrics(@Context HttpHeaders httpHeaders) {
+        User user = RequestHelper.validateUser(httpHeaders);
+        RequestHelper.handleAccessToStaff(user);
+
+        Map<String, Object> queries = new LinkedHashMap<>();
+        for (QueryMetrics.Stats stats : QueryMetrics.getStats().values()) {
+            Histogram latency = stats.getLatency();
+
+            Map<String, Object> query = new LinkedHashMap<>();
+            query.put("executions", latency.getCount());
+            query.put("errors", stats.getErrors());
+            query.put("rows", stats.getRows());
+            query.put("updates", stats.getUpdates());
+            query.put("totalMillis", latency.getSum());
+            query.put("p50Millis", latency.getPercentile(0.5));
+            query.put("p95Millis", latency.getPercentile(0.95));
+            query.put("p99Millis", latency.getPercentile(0.99));
+            query.put("maxMillis", latency.getMax());
+            queries.put(stats.getQuery(), query);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queries", queries);
+        metrics.put("slow", QueryMetrics.getSlowQueries());
+        return Response.ok(metrics).build();
+    }
+
+    /**
+     * Gets the request and query metrics in the Prometheus text format, for scraping with a
+     * staff token.
+     *
+     * @param httpHeaders the http headers
+     * @return the metrics
+     */
+    @GET
+    @Path("/prometheus")
+    @Produces({MediaType.TEXT_PLAIN})
+    public Response getPrometheusMetrics(@Context HttpHeaders httpHeaders) {
+        User user = RequestHelper.validateUser(httpHeaders);
+        RequestHelper.handleAccessToStaff(user);
+
+        Map<String, RequestMetrics.Stats> requests = RequestMetrics.getStats();
+        Map<String, QueryMetrics.Stats> queries = QueryMetrics.getStats();
+        PrometheusWriter writer = new PrometheusWriter();
+
+        writer.family("earnit_http_requests_in_flight", "gauge", "Api requests being handled.")
+            .sample("earnit_http_requests_in_flight", RequestMetrics.getInFlight());
+
+        writer.family("earnit_http_request_duration_seconds", "histogram", "Duration of api requests.");
+        requests.forEach((resource, stats) ->
+            writer.histogram("earnit_http_request_duration_seconds", stats.getLatency(), 0.001, "resource", resource));
+
+        writer.family("earnit_http_response_size_bytes", "histogram", "Size of api response bodies.");
+        requests.forEach((resource, stats) ->
+            writer.histogram("earnit_http_response_size_bytes", stats.getSize(), 1, "resource", resource));
+
+        writer.family("earnit_http_responses_total", "counter", "Api responses by status code.");
+        requests.forEach((resource, stats) -> stats.getStatuses().forEach((status, count) ->
+            writer.sample("earnit_http_responses_total", count, "resource", resource, "status", String.valueOf(status))));
+
+        writer.family("earnit_http_phase_seconds_total", "counter", "Time api requests spent in the database, rendering invoices and writing responses.");
+        requests.forEach((resource, stats) -> {
+            for (RequestMetrics.Phase phase : RequestMetrics.Phase.values()) {
+                writer.sample("earnit_http_phase_seconds_total", stats.getPhase(phase) / 1e9, "resource", resource,
+                    "phase", phase.getName());
+            }
+        });
+
+        writer.family("earnit_db_query_duration_seconds", "histogram", "Duration of query executions by dao method.");
+        queries.forEach((query, stats) ->
+            writer.histogram("earnit_db_query_duration_seconds", stats.getLatency(), 0.001, "query", query));
+
+        writer.family("earnit_db_query_errors_total", "counter", "Failed query executions by dao method.");
+        queries.forEach((query, stats) -> writer.sample("earnit_db_query_errors_total", stats.getErrors(), "query", query));
+
+        writer.family("earnit_db_query_rows_total", "counter", "Rows read from query results by dao method.");
+        queries.forEach((query, stats) -> writer.sample("earnit_db_query_rows_total", stats.getRows(), "query", query));
+
+        return Response.ok(writer.toString(), PrometheusWriter.CONTENT_TYPE).build();
+    }
+}
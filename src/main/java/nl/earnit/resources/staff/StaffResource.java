@@ -3,11 +3,14 @@ package nl.earnit.resources.staff;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
 import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.Keyset;
 import nl.earnit.dao.UserContractDAO;
 import nl.earnit.dao.WorkedDAO;
 import nl.earnit.dao.WorkedWeekDAO;
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
 import nl.earnit.dto.workedweek.WorkedWeekUndoSolvedDTO;
+import nl.earnit.exceptions.InvalidCursorException;
+import nl.earnit.helpers.PageHelper;
 import nl.earnit.helpers.RequestHelper;
 import nl.earnit.models.User;
 import nl.earnit.dto.company.CompanyCountsDTO;
@@ -78,6 +81,8 @@ public class StaffResource {
      * @param hours        the hours
      * @param totalHours   the total hours
      * @param order        the order
+     * @param limit        the maximum number of worked weeks, all if neither limit nor after is given
+     * @param after        the cursor of the previous page
      * @return the rejects
      */
     @GET
@@ -91,14 +96,19 @@ public class StaffResource {
                                @QueryParam("user") @DefaultValue("false") boolean user,
                                @QueryParam("hours") @DefaultValue("false") boolean hours,
                                @QueryParam("totalHours") @DefaultValue("false") boolean totalHours,
-                               @QueryParam("order") @DefaultValue("worked_week.week:asc,hours.day:asc") String order) {
+                               @QueryParam("order") @DefaultValue("worked_week.week:asc,hours.day:asc") String order,
+                               @QueryParam("limit") Integer limit,
+                               @QueryParam("after") String after) {
+        Keyset keyset = Keyset.of(limit, after);
 
         try {
             WorkedWeekDAO workedWeekDAO =
                     (WorkedWeekDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.WORKED_WEEK);
-            List<WorkedWeekDTO> rejectedWeeks = workedWeekDAO.getWorkedWeeksToApproveForStaff(company, contract, userContract , user, hours, totalHours, order);
-            return Response.ok(rejectedWeeks).build();
+            Keyset.Page<WorkedWeekDTO> rejectedWeeks = workedWeekDAO.getWorkedWeeksToApproveForStaff(company, contract, userContract , user, hours, totalHours, order, keyset);
+            return PageHelper.createPageResponse(rejectedWeeks, uriInfo);
 
+        } catch (InvalidCursorException e) {
+            throw e;
         } catch (Exception e) {
             return Response.serverError().build();
         }
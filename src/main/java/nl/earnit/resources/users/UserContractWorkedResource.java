@@ -5,9 +5,12 @@ import jakarta.ws.rs.core.*;
 import nl.earnit.dao.DAOManager;
 import nl.earnit.dao.WorkedDAO;
 import nl.earnit.dao.WorkedWeekDAO;
+import nl.earnit.dto.InvalidEntryDTO;
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
+import nl.earnit.helpers.ETagHelper;
 import nl.earnit.models.Worked;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -24,6 +27,9 @@ public class UserContractWorkedResource {
      */
     @Context
     Request request;
+    // Tasks accepted for a single week at once
+    private static final int MAX_TASKS = 100;
+
     private final String userId;
     private final String userContractId;
     private final String year;
@@ -94,8 +100,17 @@ public class UserContractWorkedResource {
                                   @QueryParam("totalHours") @DefaultValue("false") boolean totalHours,
                                   @QueryParam("order") @DefaultValue("hours.day:asc") String order) {
         WorkedWeekDTO workedWeek = null;
+        String version = null;
         try {
             WorkedWeekDAO workedWeekDAO = (WorkedWeekDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.WORKED_WEEK);
+            if (this.weekId != null) {
+                version = workedWeekDAO.getWorkedWeekVersion(weekId);
+            } else if (this.year != null && this.week != null) {
+                version = workedWeekDAO.getWorkedWeekVersionByDate(userContractId, Integer.parseInt(year), Integer.parseInt(week));
+            }
+            Response notModified = ETagHelper.evaluate(request, version);
+            if (notModified != null) return notModified;
+
             if (this.weekId != null) {
                 workedWeek = workedWeekDAO.getWorkedWeekById(weekId, company, contract, userContract, user, hours, totalHours, order);
             } else if (this.year != null && this.week != null) {
@@ -109,7 +124,7 @@ public class UserContractWorkedResource {
             return Response.status(Response.Status.NOT_FOUND).build();
         }
 
-        return Response.ok(workedWeek).build();
+        return ETagHelper.createTaggedResponse(workedWeek, version);
     }
 
     /**
@@ -156,6 +171,59 @@ public class UserContractWorkedResource {
         return Response.ok().build();
     }
 
+    /**
+     * Adds all tasks of the week at once, as long as the week is not confirmed.
+     *
+     * @param entries the tasks
+     * @return the added tasks
+     */
+    @POST
+    @Path("/tasks")
+    @Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    public Response addWorkedWeekTasks(List<Worked> entries) {
+        if (year == null || week == null) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        if (entries == null || entries.size() > MAX_TASKS) {
+            return Response.status(422).entity(new InvalidEntryDTO("entries")).build();
+        }
+        for (Worked entry : entries) {
+            if (entry == null || entry.getWork() == null) {
+                return Response.status(422).entity(new InvalidEntryDTO("work")).build();
+            }
+            if (entry.getDay() < 0 || entry.getDay() > 6) {
+                return Response.status(422).entity(new InvalidEntryDTO("day")).build();
+            }
+            if (entry.getMinutes() <= 0) {
+                return Response.status(422).entity(new InvalidEntryDTO("minutes")).build();
+            }
+        }
+
+        try {
+            int parsedYear = Integer.parseInt(year);
+            int parsedWeek = Integer.parseInt(week);
+
+            // Nothing to add, the week is not created either
+            if (entries.isEmpty()) {
+                return Response.ok(new ArrayList<Worked>()).build();
+            }
+
+            WorkedDAO workedDAO = (WorkedDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.WORKED);
+            List<Worked> added = workedDAO.addWorkedWeekTasks(entries, userContractId, parsedYear, parsedWeek);
+            if (added == null) {
+                return Response.status(Response.Status.FORBIDDEN).build();
+            }
+
+            return Response.ok(added).build();
+        } catch (NumberFormatException e) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        } catch (Exception e) {
+            return Response.serverError().build();
+        }
+    }
+
     /**
      * Delete worked week task response.
      *
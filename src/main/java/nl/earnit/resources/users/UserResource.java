@@ -4,17 +4,23 @@ import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.*;
 import nl.earnit.helpers.InvoicePDFHandler;
 import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.Keyset;
 import nl.earnit.dao.UserContractDAO;
 import nl.earnit.dao.UserDAO;
 import nl.earnit.dao.WorkedWeekDAO;
 import nl.earnit.dto.NotificationDTO;
 import nl.earnit.dto.user.UserContractDTO;
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
+import nl.earnit.exceptions.InvalidCursorException;
+import nl.earnit.helpers.ETagHelper;
+import nl.earnit.helpers.PageHelper;
 import nl.earnit.helpers.RequestHelper;
 import nl.earnit.models.User;
 import nl.earnit.dto.InvalidEntryDTO;
 import nl.earnit.dto.user.UserResponseDTO;
 
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -32,6 +38,8 @@ public class UserResource {
      */
     @Context
     Request request;
+    private static final int MAX_DASHBOARD_WEEKS = 104;
+
     private final String userId;
 
     /**
@@ -57,13 +65,18 @@ public class UserResource {
     public Response getUser() {
         UserDAO userDAO;
         User user;
+        String version;
         try {
             userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+            version = userDAO.getUserVersion(this.userId);
+            Response notModified = ETagHelper.evaluate(request, version);
+            if (notModified != null) return notModified;
+
             user = userDAO.getUserById(this.userId);
         } catch (Exception e) {
             return Response.serverError().build();
         }
-        return Response.ok(new UserResponseDTO(user)).build();
+        return ETagHelper.createTaggedResponse(new UserResponseDTO(user), version);
     }
 
     /**
@@ -189,13 +202,46 @@ public class UserResource {
     public Response getContracts() {
         UserContractDAO userContractDAO;
         List<UserContractDTO> userContracts;
+        String version;
         try {
             userContractDAO = (UserContractDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER_CONTRACT);
+            version = userContractDAO.getUserContractsVersion(this.userId);
+            Response notModified = ETagHelper.evaluate(request, version);
+            if (notModified != null) return notModified;
+
             userContracts = userContractDAO.getUserContractsByUserId(this.userId);
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
         }
-        return Response.ok(userContracts).build();
+        return ETagHelper.createTaggedResponse(userContracts, version);
+    }
+
+    /**
+     * Gets the dashboard of a student: the active contracts, the status and total minutes of
+     * the last weeks of those contracts and the number of unread notifications.
+     *
+     * @param weeks the number of weeks up to and including the current week
+     * @return the dashboard
+     */
+    @GET
+    @Path("/dashboard")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    public Response getDashboard(@QueryParam("weeks") @DefaultValue("6") int weeks) {
+        if (weeks < 1 || weeks > MAX_DASHBOARD_WEEKS) {
+            return Response.status(422).entity(new InvalidEntryDTO("weeks")).build();
+        }
+
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusWeeks(weeks - 1);
+
+        try {
+            UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+            return Response.ok(userDAO.getStudentDashboard(userId,
+                from.get(IsoFields.WEEK_BASED_YEAR), from.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR),
+                to.get(IsoFields.WEEK_BASED_YEAR), to.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR))).build();
+        } catch (Exception e) {
+            return Response.serverError().build();
+        }
     }
 
     /**
@@ -231,6 +277,8 @@ public class UserResource {
      * @param hours        the hours
      * @param totalHours   the total hours
      * @param order        the order
+     * @param limit        the maximum number of worked weeks, all if neither limit nor after is given
+     * @param after        the cursor of the previous page
      * @return the invoices
      */
     @GET
@@ -243,13 +291,18 @@ public class UserResource {
                                 @QueryParam("user") @DefaultValue("false") boolean user,
                                 @QueryParam("hours") @DefaultValue("false") boolean hours,
                                 @QueryParam("totalHours") @DefaultValue("false") boolean totalHours,
-                                @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order) {
+                                @QueryParam("order") @DefaultValue("worked_week.year:asc,worked_week.week:asc") String order,
+                                @QueryParam("limit") Integer limit,
+                                @QueryParam("after") String after) {
+        Keyset keyset = Keyset.of(limit, after);
+
         try {
             WorkedWeekDAO workedWeekDAO = (WorkedWeekDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.WORKED_WEEK);
-            List<WorkedWeekDTO> workedWeeks = workedWeekDAO.getWorkedWeeksForUser(userId, null, null, null, company, contract,userContract, user,hours,totalHours, order);
-            workedWeeks = workedWeeks.stream().filter(x -> x.getStatus().equals("APPROVED")).toList();
+            Keyset.Page<WorkedWeekDTO> workedWeeks = workedWeekDAO.getApprovedWorkedWeeksForUser(userId, company, contract,userContract, user,hours,totalHours, order, keyset);
 
-            return Response.ok(workedWeeks).build();
+            return PageHelper.createPageResponse(workedWeeks, uriInfo);
+        } catch (InvalidCursorException e) {
+            throw e;
         } catch (Exception e) {
             return Response.serverError().build();
         }
@@ -286,25 +339,63 @@ public class UserResource {
         }
     }
 
+    /**
+     * Gets the notifications of the user, newest first.
+     *
+     * @param limit the maximum number of notifications, all if neither limit nor after is given
+     * @param after the cursor of the previous page
+     * @return the notifications
+     */
     @GET
     @Path("/notifications")
     @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
-    public Response getNotifications() {
-        UserDAO userDAO;
-        List<NotificationDTO> notifications;
+    public Response getNotifications(@QueryParam("limit") Integer limit,
+                                     @QueryParam("after") String after) {
+        Keyset keyset = Keyset.of(limit, after);
+
         try {
-            userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+            UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
             User user = userDAO.getUserById(userId);
-            if (user.getType().equals("ADMINISTRATOR")) {
-                notifications = userDAO.getNotificationsForStaffUser();
+            boolean staff = user.getType().equals("ADMINISTRATOR");
+            String version = staff ? userDAO.getNotificationsVersionForStaffUser()
+                : userDAO.getNotificationsVersionForUser(userId);
+            Response notModified = ETagHelper.evaluate(request, version);
+            if (notModified != null) return notModified;
+
+            Keyset.Page<NotificationDTO> notifications;
+            if (staff) {
+                notifications = userDAO.getNotificationsForStaffUser(keyset);
             } else {
-                notifications = userDAO.getNotificationsForUser(userId);
+                notifications = userDAO.getNotificationsForUser(userId, keyset);
             }
+            return PageHelper.createPageResponse(notifications, uriInfo, version);
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (Exception e) {
+            return Response.serverError().build();
         }
-        catch (Exception e) {
+    }
+
+    /**
+     * Gets the number of unread notifications of the user.
+     *
+     * @return the number of unread notifications
+     */
+    @GET
+    @Path("/notifications/unread")
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+    public Response getUnreadNotifications() {
+        try {
+            UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+            User user = userDAO.getUserById(userId);
+            if (user.getType().equals("ADMINISTRATOR")) {
+                return Response.ok(userDAO.countUnreadNotificationsForStaffUser()).build();
+            }
+
+            return Response.ok(userDAO.countUnreadNotificationsForUser(userId)).build();
+        } catch (Exception e) {
             return Response.serverError().build();
         }
-        return Response.ok(notifications).build();
     }
 
     @POST
@@ -20,8 +20,7 @@ import java.sql.ResultSet;
 import java.util.List;
 import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class NotificationsTest {
     @RegisterExtension
@@ -101,6 +100,57 @@ public class NotificationsTest {
         assertTrue(notifications.stream().anyMatch(x -> x.getType().equals("APPROVED") && x.getUserId().equals(user.getId()) && x.getCompanyId().equals(
             company.getId())));
     }
+    @Test
+    public void testNotificationFeed() throws Exception {
+        setupNotificationsTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        // Creates a LINK notification for both
+        userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+
+        PreparedStatement insert = con.prepareStatement("""
+            INSERT INTO notification (user_id, company_id, date, created_at, type)
+            VALUES (?, ?, '2023-07-24', now() - ? * interval '1 hour', ?)""");
+        for (int i = 1; i <= 4; i++) {
+            PostgresJDBCHelper.setUuid(insert, 1, user.getId());
+            PostgresJDBCHelper.setUuid(insert, 2, company.getId());
+            insert.setInt(3, i);
+            insert.setString(4, i % 2 == 0 ? "APPROVED" : "CONFLICT");
+            insert.executeUpdate();
+        }
+
+        // Pages of the student feed, newest first, without the conflicts
+        Keyset.Page<NotificationDTO> page = userDAO.getNotificationsForUser(user.getId(), new Keyset(2, null));
+        assertEquals(2, page.items().size());
+        assertEquals("LINK", page.items().get(0).getType());
+        assertEquals("You have been linked to TestCompany", page.items().get(0).getDescription());
+        assertEquals("Week approved", page.items().get(1).getTitle());
+        assertNotNull(page.next());
+        page = userDAO.getNotificationsForUser(user.getId(), new Keyset(2, page.next()));
+        assertEquals(1, page.items().size());
+        assertEquals("APPROVED", page.items().get(0).getType());
+        assertNull(page.next());
+        assertEquals(3, userDAO.getNotificationsForUser(user.getId()).size());
+
+        // Unread counts of every feed
+        assertEquals(3, userDAO.countUnreadNotificationsForUser(user.getId()).getUnread());
+        assertEquals(2, userDAO.countUnreadNotificationsForStaffUser().getUnread());
+        assertEquals(1, companyDAO.countUnreadNotificationsForCompany(company.getId()).getUnread());
+        assertFalse(companyDAO.countUnreadNotificationsForCompany(company.getId()).isMore());
+
+        userDAO.changeNotificationToSeen(page.items().get(0).getId());
+        assertEquals(2, userDAO.countUnreadNotificationsForUser(user.getId()).getUnread());
+        assertEquals(2, userDAO.getNotificationsForStaffUser().size());
+        assertEquals("New employee John Smith", companyDAO.getNotificationsForCompany(company.getId()).get(0).getDescription());
+    }
+
     @Test
     public void testTypeToTitleDescription() throws Exception {
         setupNotificationsTest();
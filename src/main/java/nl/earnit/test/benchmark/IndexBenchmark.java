@@ -0,0 +1,120 @@
+package nl.earnit.test.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import nl.earnit.TestDB;
+import nl.earnit.dao.Migrations;
+import nl.earnit.test.load.DataGenerator;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shows the query plans of the hot lookups on a generated dataset, before and after the
+ * migrations add their indexes.
+ * <p>
+ * Run with {@code java -cp <classpath> nl.earnit.test.benchmark.IndexBenchmark [companies] [students] [years]}.
+ */
+public class IndexBenchmark {
+    private static final int ITERATIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        int companies = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int students = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+        int years = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.start();
+             Connection con = pg.getPostgresDatabase().getConnection()) {
+            TestDB.importSchema(con);
+            new DataGenerator(new DataGenerator.Config().setCompanies(companies).setStudents(students)
+                .setYears(years)).generate(con);
+
+            Map<String, String> queries = getQueries(con);
+
+            System.out.printf("%d companies, %d students, %d years of weeks per student%n", companies, students, years);
+            System.out.println("== Before migrations ==");
+            explain(con, queries);
+
+            Migrations.migrate(con);
+            analyze(con);
+
+            System.out.println("== After migrations ==");
+            explain(con, queries);
+        }
+    }
+
+    private static Map<String, String> getQueries(Connection con) throws SQLException {
+        String companyId;
+        String userId;
+        try (Statement statement = con.createStatement();
+             ResultSet res = statement.executeQuery("""
+                 SELECT c.company_id, uc.user_id FROM user_contract uc JOIN contract c ON c.id = uc.contract_id
+                 ORDER BY uc.id LIMIT 1""")) {
+            res.next();
+            companyId = res.getString("company_id");
+            userId = res.getString("user_id");
+        }
+
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("weeks to approve for company", """
+            SELECT ww.id FROM worked_week ww JOIN user_contract uc ON uc.id = ww.contract_id
+            JOIN contract c ON c.id = uc.contract_id
+            WHERE c.company_id = '%s' AND ww.status = 'CONFIRMED' AND (ww.year < 2022 OR (ww.year = 2022 AND ww.week < 40))
+            """.formatted(companyId));
+        queries.put("invoices of company for week", """
+            SELECT ww.id FROM worked_week ww JOIN user_contract uc ON uc.id = ww.contract_id
+            JOIN contract c ON c.id = uc.contract_id
+            WHERE ww.status = 'APPROVED' AND ww.year = 2022 AND ww.week = 10 AND c.company_id = '%s'
+            """.formatted(companyId));
+        queries.put("rejected suggestions for staff", """
+            SELECT ww.id FROM worked_week ww
+            WHERE ww.status = 'SUGGESTION_DENIED' AND (ww.year < 2022 OR (ww.year = 2022 AND ww.week < 40))
+            """);
+        queries.put("contracts of student", """
+            SELECT uc.id FROM user_contract uc WHERE uc.user_id = '%s'
+            """.formatted(userId));
+        queries.put("users of company", """
+            SELECT cu.user_id FROM company_user cu WHERE cu.company_id = '%s'
+            """.formatted(companyId));
+        queries.put("notifications of student", """
+            SELECT n.id FROM notification n WHERE n.user_id = '%s'
+            """.formatted(userId));
+        queries.put("notifications of company", """
+            SELECT n.id FROM notification n WHERE n.company_id = '%s'
+            """.formatted(companyId));
+
+        return queries;
+    }
+
+    private static void explain(Connection con, Map<String, String> queries) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            for (Map.Entry<String, String> query : queries.entrySet()) {
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet res = statement.executeQuery("EXPLAIN " + query.getValue())) {
+                    while (res.next()) {
+                        plan.append("    ").append(res.getString(1)).append(System.lineSeparator());
+                    }
+                }
+
+                // Warm up the cache before timing
+                statement.executeQuery(query.getValue()).close();
+                long start = System.nanoTime();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    statement.executeQuery(query.getValue()).close();
+                }
+                long micros = (System.nanoTime() - start) / ITERATIONS / 1000;
+
+                System.out.printf("%s: %,d us/op%n%s", query.getKey(), micros, plan);
+            }
+        }
+    }
+
+    private static void analyze(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package nl.earnit.test.benchmark;
+
+import nl.earnit.helpers.JsonRowDecoder;
+import nl.earnit.models.Worked;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares decoding aggregated worked rows from json with the regex split of Postgres record
+ * literals that was used before.
+ * <p>
+ * Run with {@code java -cp <classpath> nl.earnit.test.benchmark.RowDecoderBenchmark [rows] [note length]}.
+ */
+public class RowDecoderBenchmark {
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        int noteLength = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        List<String> records = new ArrayList<>();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            String id = UUID.randomUUID().toString();
+            String workedWeekId = UUID.randomUUID().toString();
+            String note = "did some work, ".repeat(noteLength / 15 + 1).substring(0, noteLength);
+
+            records.add("(%s,%s,%d,%d,\"%s\",)".formatted(id, workedWeekId, i % 7, 60 * i, note));
+            if (i > 0) json.append(",");
+            json.append("""
+                {"id" : "%s", "workedWeekId" : "%s", "day" : %d, "minutes" : %d, "work" : "%s", "suggestion" : null}"""
+                .formatted(id, workedWeekId, i % 7, 60 * i, note));
+        }
+        String jsonRows = json.append("]").toString();
+
+        System.out.printf("%d rows with notes of %d characters%n", rows, noteLength);
+        System.out.printf("regex: %,d ns/op%n", measure(() -> decodeRecords(records)));
+        System.out.printf("json:  %,d ns/op%n", measure(() -> JsonRowDecoder.decodeList(jsonRows, Worked.class)));
+    }
+
+    private static long measure(Decoder decoder) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            decoder.decode();
+        }
+
+        long start = System.nanoTime();
+        int blackhole = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            blackhole += decoder.decode().size();
+        }
+        long nanos = (System.nanoTime() - start) / ITERATIONS;
+
+        if (blackhole < 0) System.out.println(blackhole);
+        return nanos;
+    }
+
+    /**
+     * The record parsing previously done by WorkedWeekDAO.getWorkedWeekFromRow.
+     */
+    private static List<Worked> decodeRecords(List<String> records) {
+        List<Worked> hours = new ArrayList<>();
+
+        for (String data : records) {
+            data = data.substring(1, data.length() - 1);
+            String[] dataStrings = data.split(",(?=(?:[^\\\"]*\\\"[^\\\"]*\\\")*[^\\\"]*$)", -1);
+            String note = dataStrings[4];
+            if (note.startsWith("\"") && note.endsWith("\"")) note = note.substring(1, note.length() - 1);
+
+            Worked worked = new Worked(dataStrings[0], dataStrings[1], Integer.parseInt(dataStrings[2]), Integer.parseInt(dataStrings[3]), note);
+            worked.setSuggestion(dataStrings.length > 5 && dataStrings[5].trim().length() > 0 ? Integer.parseInt(dataStrings[5]) : null);
+            hours.add(worked);
+        }
+
+        return hours;
+    }
+
+    private interface Decoder {
+        List<Worked> decode() throws Exception;
+    }
+}
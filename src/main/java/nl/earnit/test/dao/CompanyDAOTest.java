@@ -5,15 +5,21 @@ import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
 import nl.earnit.Auth;
 import nl.earnit.dao.CompanyDAO;
 import nl.earnit.dao.ContractDAO;
+import nl.earnit.dao.Keyset;
 import nl.earnit.dao.UserContractDAO;
 import nl.earnit.dao.UserDAO;
+import nl.earnit.dao.WorkedDAO;
+import nl.earnit.dto.NotificationDTO;
+import nl.earnit.dto.company.CompanyDashboardDTO;
 import nl.earnit.dto.contracts.ContractDTO;
 import nl.earnit.dto.user.UserDTO;
 import nl.earnit.dto.user.UserResponseDTO;
+import nl.earnit.dto.workedweek.WorkedWeekDTO;
 import nl.earnit.helpers.PostgresJDBCHelper;
 import nl.earnit.models.Company;
 import nl.earnit.models.User;
 import nl.earnit.models.UserContract;
+import nl.earnit.models.Worked;
 import nl.earnit.TestDB;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -251,4 +257,45 @@ public class CompanyDAOTest {
         con.close();
     }
 
+    @Test
+    public void testCompanyDashboard() throws Exception {
+        setupCompanyDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        User user = new UserDAO(con).createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+            "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDTO contract = new ContractDAO(con).createContract(
+            new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContract userContract = new UserContractDAO(con).addNewUserContract(user.getId(), contract.getId(), 12);
+
+        WorkedDAO workedDAO = new WorkedDAO(con);
+        workedDAO.addWorkedWeekTask(new Worked(null, null, 1, 120, "wrote tests"), userContract.getId(), "2023", "30");
+        workedDAO.addWorkedWeekTask(new Worked(null, null, 1, 60, "fixed a bug"), userContract.getId(), "2023", "31");
+        workedDAO.addWorkedWeekTask(new Worked(null, null, 2, 30, "reviewed"), userContract.getId(), "2023", "31");
+        con.createStatement().execute("UPDATE worked_week SET status = 'CONFIRMED' WHERE week = 30");
+        con.createStatement().execute("UPDATE worked_week SET status = 'APPROVED' WHERE week = 31");
+
+        CompanyDashboardDTO dashboard = companyDAO.getCompanyDashboard(company.getId(), 2023, 31, Keyset.of(10, null));
+        assertTrue(con.getAutoCommit());
+
+        assertEquals(1, dashboard.getApprovals().size());
+        WorkedWeekDTO approval = dashboard.getApprovals().get(0);
+        assertEquals(30, approval.getWeek());
+        assertEquals(user.getId(), approval.getUser().getId());
+        assertEquals("Engineer", approval.getContract().getRole());
+
+        assertEquals(1, dashboard.getWeeks().size());
+        assertEquals(90, dashboard.getWeeks().get(0).getTotalMinutes());
+        assertEquals(user.getId(), dashboard.getWeeks().get(0).getUser().getId());
+
+        List<NotificationDTO> notifications = companyDAO.getNotificationsForCompany(company.getId(), Keyset.of(10, null)).items();
+        assertEquals(notifications.size(), dashboard.getNotifications().size());
+        assertEquals(companyDAO.countUnreadNotificationsForCompany(company.getId()).getUnread(),
+            dashboard.getUnreadNotifications().getUnread());
+
+        // Only the weeks of the given week
+        assertTrue(companyDAO.getCompanyDashboard(company.getId(), 2023, 32, Keyset.of(10, null)).getWeeks().isEmpty());
+        con.close();
+    }
 }
@@ -2,6 +2,7 @@ package nl.earnit.test.dao;
 
 import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
 import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import nl.earnit.AccessCache;
 import nl.earnit.Auth;
 import nl.earnit.dao.CompanyDAO;
 import nl.earnit.dao.CompanyUserDAO;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 
 import java.sql.Connection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -85,4 +87,42 @@ public class CompanyUserDAOTest {
     }
 
 
+
+    @Test
+    public void testCreateCompanyUserInvalidatesAccess() throws Exception {
+        setupCompanyUserDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("companyUser@example.com", "John", null, "Smith", Auth.hashPassword("test"), "COMPANY",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        CompanyUserDAO companyUserDAO = new CompanyUserDAO(con);
+
+        AtomicInteger queries = new AtomicInteger();
+        AccessCache.Lookup lookup = () -> {
+            queries.incrementAndGet();
+            return companyUserDAO.isUserWorkingForCompany(company.getId(), user.getId());
+        };
+
+        // Repeated checks are served from the cache, also after the request ended
+        assertFalse(AccessCache.getCompanyAccess(company.getId(), user.getId(), lookup));
+        assertFalse(AccessCache.getCompanyAccess(company.getId(), user.getId(), lookup));
+        AccessCache.endRequest();
+        assertFalse(AccessCache.getCompanyAccess(company.getId(), user.getId(), lookup));
+        assertEquals(queries.get(), 1);
+
+        // Joining the company invalidates the decision
+        companyUserDAO.createCompanyUser(company.getId(), user.getId());
+        assertTrue(AccessCache.getCompanyAccess(company.getId(), user.getId(), lookup));
+        assertEquals(queries.get(), 2);
+
+        // Disabling the company invalidates it as well
+        companyDAO.disableCompanyById(company.getId());
+        assertTrue(AccessCache.getCompanyAccess(company.getId(), user.getId(), lookup));
+        assertEquals(queries.get(), 3);
+
+        AccessCache.clear();
+        con.close();
+    }
 }
@@ -0,0 +1,184 @@
+package nl.earnit.test.dao;
+
+import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
+import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import nl.earnit.dao.ConnectionPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTest {
+    @RegisterExtension
+    public SingleInstancePostgresExtension pg = EmbeddedPostgresExtension.singleInstance();
+
+    private ConnectionPool createPool(ConnectionPool.Config config) {
+        return new ConnectionPool(pg.getEmbeddedPostgres().getPostgresDatabase(), config);
+    }
+
+    @Test
+    public void testReuseConnection() throws Exception {
+        try (ConnectionPool pool = createPool(new ConnectionPool.Config().setMaxSize(2))) {
+            Connection con = pool.getConnection();
+            ResultSet res = con.createStatement().executeQuery("select pg_backend_pid() as pid");
+            assertTrue(res.next());
+            int pid = res.getInt("pid");
+            con.close();
+
+            // Returned connections can not be used anymore
+            assertTrue(con.isClosed());
+            assertThrows(SQLException.class, con::createStatement);
+
+            // The same physical connection is handed out again
+            Connection again = pool.getConnection();
+            res = again.createStatement().executeQuery("select pg_backend_pid() as pid");
+            assertTrue(res.next());
+            assertEquals(pid, res.getInt("pid"));
+            again.close();
+
+            ConnectionPool.Metrics metrics = pool.getMetrics();
+            assertEquals(2, metrics.getBorrows());
+            assertEquals(1, metrics.getCreated());
+            assertEquals(0, metrics.getActive());
+            assertEquals(1, metrics.getIdle());
+        }
+    }
+
+    @Test
+    public void testBorrowTimeout() throws Exception {
+        try (ConnectionPool pool = createPool(new ConnectionPool.Config().setMaxSize(1).setBorrowTimeoutMillis(100))) {
+            Connection con = pool.getConnection();
+
+            assertThrows(SQLException.class, pool::getConnection);
+            assertEquals(1, pool.getMetrics().getTimeouts());
+            assertEquals(1, pool.getMetrics().getActive());
+
+            // Once returned it can be borrowed again
+            con.close();
+            pool.getConnection().close();
+        }
+    }
+
+    @Test
+    public void testRollbackOnReturn() throws Exception {
+        try (ConnectionPool pool = createPool(new ConnectionPool.Config().setMaxSize(1))) {
+            Connection con = pool.getConnection();
+            con.createStatement().execute("create table pool_test (id int)");
+            con.setAutoCommit(false);
+            con.createStatement().execute("insert into pool_test values (1)");
+            con.close();
+
+            // Uncommitted work is discarded when returned
+            con = pool.getConnection();
+            assertTrue(con.getAutoCommit());
+            ResultSet res = con.createStatement().executeQuery("select count(*) as count from pool_test");
+            assertTrue(res.next());
+            assertEquals(0, res.getInt("count"));
+            con.createStatement().execute("drop table pool_test");
+            con.close();
+        }
+    }
+
+    @Test
+    public void testMaxLifetime() throws Exception {
+        try (ConnectionPool pool = createPool(new ConnectionPool.Config().setMaxSize(1).setMaxLifetimeMillis(50))) {
+            pool.getConnection().close();
+            Thread.sleep(100);
+            pool.getConnection().close();
+
+            // The expired connection was replaced
+            ConnectionPool.Metrics metrics = pool.getMetrics();
+            assertEquals(2, metrics.getCreated());
+            assertEquals(1, metrics.getDestroyed());
+            assertEquals(1, metrics.getTotal());
+        }
+    }
+
+    @Test
+    public void testValidationOnBorrow() throws Exception {
+        try (ConnectionPool pool = createPool(new ConnectionPool.Config().setMaxSize(2).setValidationIntervalMillis(0))) {
+            Connection con = pool.getConnection();
+            ResultSet res = con.createStatement().executeQuery("select pg_backend_pid() as pid");
+            assertTrue(res.next());
+            int pid = res.getInt("pid");
+            con.close();
+
+            // Kill the idle connection from another session
+            Connection other = pool.getConnection();
+            Connection killer = pg.getEmbeddedPostgres().getPostgresDatabase().getConnection();
+            killer.createStatement().execute("select pg_terminate_backend(" + pid + ")");
+            killer.close();
+            other.close();
+
+            // Borrowing skips the dead connection
+            for (int i = 0; i < 2; i++) {
+                Connection alive = pool.getConnection();
+                assertTrue(alive.createStatement().executeQuery("select 1").next());
+                alive.close();
+            }
+            assertEquals(1, pool.getMetrics().getValidationFailures());
+        }
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        try (ConnectionPool pool = createPool(new ConnectionPool.Config().setMaxSize(1)
+            .setLeakDetectionThresholdMillis(50).setEvictionIntervalMillis(20))) {
+            Connection con = pool.getConnection();
+            Thread.sleep(200);
+
+            // Reported once while it is held
+            assertEquals(1, pool.getMetrics().getLeaks());
+            con.close();
+        }
+    }
+
+    @Test
+    public void testStatementCache() throws Exception {
+        try (ConnectionPool pool = createPool(new ConnectionPool.Config().setMaxSize(1).setStatementCacheSize(1))) {
+            String query = "select ?::int + 1 as value";
+
+            Connection con = pool.getConnection();
+            PreparedStatement statement = con.prepareStatement(query);
+            statement.setInt(1, 1);
+            ResultSet res = statement.executeQuery();
+            assertTrue(res.next());
+            assertEquals(2, res.getInt("value"));
+
+            // Preparing while the first one is in use gives a separate statement
+            PreparedStatement second = con.prepareStatement(query);
+            assertNotSame(statement, second);
+            second.close();
+
+            // Closing puts it back and closes its result sets
+            statement.close();
+            assertTrue(statement.isClosed());
+            assertTrue(res.isClosed());
+            con.close();
+
+            // A later borrower reuses it, prepared on the server
+            con = pool.getConnection();
+            statement = con.prepareStatement(query);
+            statement.setInt(1, 2);
+            res = statement.executeQuery();
+            assertTrue(res.next());
+            assertEquals(3, res.getInt("value"));
+
+            res = con.prepareStatement("select count(*) as count from pg_prepared_statements where statement = '" + query.replace("?", "$1") + "'").executeQuery();
+            assertTrue(res.next());
+            assertEquals(1, res.getInt("count"));
+            statement.close();
+            con.close();
+
+            ConnectionPool.Metrics metrics = pool.getMetrics();
+            assertEquals(1, metrics.getStatementCacheHits());
+            assertEquals(3, metrics.getStatementCacheMisses());
+            assertEquals(1, metrics.getStatementCacheEvictions());
+        }
+    }
+}
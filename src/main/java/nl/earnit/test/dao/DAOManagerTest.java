@@ -0,0 +1,57 @@
+package nl.earnit.test.dao;
+
+import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
+import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import nl.earnit.TestDB;
+import nl.earnit.dao.ConnectionPool;
+import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.TrackedConnection;
+import nl.earnit.dao.CompanyUserDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DAOManagerTest {
+    @RegisterExtension
+    public SingleInstancePostgresExtension pg = EmbeddedPostgresExtension.singleInstance();
+
+    private ConnectionPool pool;
+
+    public void setupDAOManagerTest() throws Exception {
+        new TestDB(pg);
+
+        pool = new ConnectionPool(pg.getEmbeddedPostgres().getPostgresDatabase(), new ConnectionPool.Config().setMaxSize(1));
+        DAOManager.setConnectionPool(pool);
+    }
+
+    @AfterEach
+    public void tearDownDAOManagerTest() {
+        DAOManager.setConnectionPool(null);
+    }
+
+    @Test
+    public void testUnitOfWork() throws Exception {
+        setupDAOManagerTest();
+
+        long leaked = TrackedConnection.getStatementsLeaked();
+
+        DAOManager.getInstance().begin("testUnitOfWork");
+        CompanyUserDAO companyUserDAO = (CompanyUserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY_USER);
+        assertEquals(0, companyUserDAO.count());
+        assertEquals(1, pool.getMetrics().getActive());
+
+        // Ending the unit of work closes the statement left open by the dao and returns the connection
+        DAOManager.getInstance().close();
+        assertEquals(leaked + 1, TrackedConnection.getStatementsLeaked());
+        assertEquals(0, pool.getMetrics().getActive());
+
+        // The next unit of work borrows again
+        companyUserDAO = (CompanyUserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.COMPANY_USER);
+        assertEquals(0, companyUserDAO.count());
+        DAOManager.getInstance().close();
+        assertEquals(2, pool.getMetrics().getBorrows());
+        assertEquals(1, pool.getMetrics().getCreated());
+    }
+}
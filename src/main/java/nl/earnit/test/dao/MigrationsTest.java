@@ -0,0 +1,50 @@
+package nl.earnit.test.dao;
+
+import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
+import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import nl.earnit.TestDB;
+import nl.earnit.dao.Migrations;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MigrationsTest {
+    @RegisterExtension
+    public SingleInstancePostgresExtension pg = EmbeddedPostgresExtension.singleInstance();
+
+    @Test
+    public void testMigrate() throws Exception {
+        Connection con = pg.getEmbeddedPostgres().getPostgresDatabase().getConnection();
+        TestDB.importSchema(con);
+        assertEquals(0, Migrations.getVersion(con));
+
+        int latest = Migrations.MIGRATIONS.get(Migrations.MIGRATIONS.size() - 1).version();
+        assertEquals(Migrations.MIGRATIONS.size(), Migrations.migrate(con));
+        assertEquals(latest, Migrations.getVersion(con));
+        assertTrue(con.getAutoCommit());
+
+        // Applied migrations are skipped
+        assertEquals(0, Migrations.migrate(con));
+        assertEquals(latest, Migrations.getVersion(con));
+
+        Set<String> indexes = new HashSet<>();
+        ResultSet res = con.createStatement().executeQuery("SELECT indexname FROM pg_indexes WHERE schemaname = 'public'");
+        while (res.next()) {
+            indexes.add(res.getString("indexname"));
+        }
+        assertTrue(indexes.containsAll(List.of("worked_worked_week_id_index", "user_contract_user_id_index",
+            "user_contract_contract_id_index", "contract_company_id_index", "company_user_company_id_index",
+            "notification_user_id_index", "notification_company_id_index", "notification_worked_week_id_index",
+            "worked_week_status_index", "worked_week_confirmed_index", "worked_week_approved_index",
+            "worked_week_suggestion_denied_index")));
+
+        con.close();
+    }
+}
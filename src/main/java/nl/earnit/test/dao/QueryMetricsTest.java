@@ -0,0 +1,98 @@
+package nl.earnit.test.dao;
+
+import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
+import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import nl.earnit.TestDB;
+import nl.earnit.dao.ConnectionPool;
+import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.QueryMetrics;
+import nl.earnit.dao.TrackedConnection;
+import nl.earnit.dao.UserDAO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryMetricsTest {
+    @RegisterExtension
+    public SingleInstancePostgresExtension pg = EmbeddedPostgresExtension.singleInstance();
+
+    public void setupQueryMetricsTest() throws Exception {
+        new TestDB(pg);
+
+        DAOManager.setConnectionPool(new ConnectionPool(pg.getEmbeddedPostgres().getPostgresDatabase(),
+            new ConnectionPool.Config().setMaxSize(1)));
+        QueryMetrics.clear();
+    }
+
+    @AfterEach
+    public void tearDownQueryMetricsTest() {
+        DAOManager.setConnectionPool(null);
+        QueryMetrics.setSlowThresholdMillis(250);
+        QueryMetrics.clear();
+    }
+
+    @Test
+    public void testQueryMetrics() throws Exception {
+        setupQueryMetricsTest();
+
+        UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+        userDAO.createUser("test@example.com", "John", null, "Smith", "password", "STUDENT", null, null, null);
+        assertNotNull(userDAO.getUserByEmail("test@example.com"));
+        assertNull(userDAO.getUserByEmail("missing@example.com"));
+        DAOManager.getInstance().close();
+
+        // Executions are attributed to the innermost dao method that prepared them, creating a
+        // user reads it back by id
+        QueryMetrics.Stats getUser = QueryMetrics.getStats().get("UserDAO.getUser");
+        assertNotNull(getUser);
+        assertEquals(3, getUser.getLatency().getCount());
+        assertEquals(2, getUser.getRows());
+        assertEquals(0, getUser.getErrors());
+        assertTrue(QueryMetrics.getStats().containsKey("UserDAO.createUser"));
+    }
+
+    @Test
+    public void testSlowQueries() throws Exception {
+        setupQueryMetricsTest();
+        QueryMetrics.setSlowThresholdMillis(0);
+
+        UserDAO userDAO = (UserDAO) DAOManager.getInstance().getDAO(DAOManager.DAO.USER);
+        assertNull(userDAO.getUserByEmail("secret@example.com"));
+        DAOManager.getInstance().close();
+
+        // Only the types of the parameters are kept, not their values
+        List<QueryMetrics.SlowQuery> slow = QueryMetrics.getSlowQueries();
+        assertEquals(1, slow.size());
+        assertEquals("UserDAO.getUser", slow.get(0).query());
+        assertEquals(List.of("text"), slow.get(0).parameters());
+        assertFalse(slow.get(0).toString().contains("secret@example.com"));
+        assertTrue(slow.get(0).sql().startsWith("SELECT id, email"));
+    }
+
+    @Test
+    public void testOtherQueries() throws Exception {
+        setupQueryMetricsTest();
+
+        // Statements created outside of a dao are grouped together and still counted
+        try (Connection con = TrackedConnection.track(pg.getEmbeddedPostgres().getPostgresDatabase().getConnection())) {
+            Statement statement = con.createStatement();
+            ResultSet res = statement.executeQuery("SELECT generate_series(1, 3)");
+            while (res.next()) {
+                assertTrue(res.getInt(1) > 0);
+            }
+            assertThrows(Exception.class, () -> statement.executeQuery("SELECT * FROM missing"));
+        }
+
+        QueryMetrics.Stats other = QueryMetrics.getStats().get("other");
+        assertEquals(2, other.getLatency().getCount());
+        assertEquals(3, other.getRows());
+        assertEquals(1, other.getErrors());
+    }
+}
@@ -3,9 +3,24 @@ package nl.earnit.test.dao;
 import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
 import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
 import nl.earnit.Auth;
+import nl.earnit.AuthenticationCache;
+import nl.earnit.TokenVersions;
+import nl.earnit.dao.CompanyDAO;
+import nl.earnit.dao.ContractDAO;
+import nl.earnit.dao.UserContractDAO;
 import nl.earnit.dao.UserDAO;
+import nl.earnit.dao.WorkedDAO;
+import nl.earnit.dto.NotificationCountDTO;
+import nl.earnit.dto.contracts.ContractDTO;
+import nl.earnit.dto.user.StudentDashboardDTO;
+import nl.earnit.dto.user.UserContractDTO;
+import nl.earnit.dto.user.UserResponseDTO;
+import nl.earnit.dto.workedweek.WorkedWeekDTO;
 import nl.earnit.helpers.PostgresJDBCHelper;
+import nl.earnit.models.Company;
 import nl.earnit.models.User;
+import nl.earnit.models.UserContract;
+import nl.earnit.models.Worked;
 import nl.earnit.TestDB;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
@@ -13,6 +28,8 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.Map;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -116,4 +133,140 @@ public class UserDAOTest {
 
         con.close();
     }
+
+    @Test
+    public void testUpdateUserTypeInvalidatesAuthentication() throws Exception {
+        setupUserDAOTest();
+
+        Connection con = db.getConnection();
+        UserDAO userDAO = new UserDAO(con);
+
+        // Create user
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+            "12345678", "NL000099998B57", "Street 2 7522AZ");
+
+        // Cache a token of the user
+        AuthenticationCache.put("token", user, System.currentTimeMillis() + 60_000);
+        AuthenticationCache.put("other", new User("00000000-0000-0000-0000-000000000000", "other@example.com",
+            "Jane", "Smith", null, "STUDENT", null, null, null, null), System.currentTimeMillis() + 60_000);
+
+        User cached = AuthenticationCache.get("token");
+        assertNotNull(cached);
+        assertEquals(cached.getId(), user.getId());
+        assertNotSame(cached, user);
+
+        // Expired tokens are not served
+        AuthenticationCache.put("expired", user, System.currentTimeMillis() - 1);
+        assertNull(AuthenticationCache.get("expired"));
+
+        // Changing the user type removes the tokens of that user only
+        UserResponseDTO update = new UserResponseDTO();
+        update.setId(user.getId());
+        update.setType("ADMINISTRATOR");
+        assertTrue(userDAO.updateUserType(update));
+
+        assertNull(AuthenticationCache.get("token"));
+        assertNotNull(AuthenticationCache.get("other"));
+
+        AuthenticationCache.clear();
+        con.close();
+    }
+
+    @Test
+    public void testTokenVersions() throws Exception {
+        setupUserDAOTest();
+
+        Connection con = db.getConnection();
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+            "12345678", "NL000099998B57", "Street 2 7522AZ");
+        assertEquals(0, user.getTokenVersion());
+
+        // No claims are trusted before the versions are loaded
+        TokenVersions.clear();
+        assertFalse(TokenVersions.isCurrent(user.getId(), 0));
+        TokenVersions.load(userDAO.getTokenVersions());
+        assertTrue(TokenVersions.isCurrent(user.getId(), 0));
+
+        // Changing the type makes the claims of older tokens stale
+        UserResponseDTO update = new UserResponseDTO();
+        update.setId(user.getId());
+        update.setType("ADMINISTRATOR");
+        assertTrue(userDAO.updateUserType(update));
+        assertEquals(1, userDAO.getUserById(user.getId()).getTokenVersion());
+        assertFalse(TokenVersions.isCurrent(user.getId(), 0));
+        assertTrue(TokenVersions.isCurrent(user.getId(), 1));
+
+        // Changes that do not disable the user keep the version
+        UserResponseDTO profile = new UserResponseDTO(userDAO.getUserById(user.getId()));
+        profile.setActive(true);
+        profile.setFirstName("Johnny");
+        userDAO.updateUser(profile);
+        assertEquals(1, userDAO.getUserById(user.getId()).getTokenVersion());
+
+        userDAO.disableUserById(user.getId());
+        assertEquals(2, userDAO.getUserById(user.getId()).getTokenVersion());
+        assertFalse(TokenVersions.isCurrent(user.getId(), 1));
+
+        // Versions raised by other instances are loaded, lower versions are ignored
+        TokenVersions.clear();
+        TokenVersions.load(userDAO.getTokenVersions());
+        assertEquals(Map.of(user.getId(), 2), userDAO.getTokenVersions());
+        assertTrue(TokenVersions.isCurrent(user.getId(), 2));
+        TokenVersions.load(Map.of(user.getId(), 1));
+        assertEquals(2, TokenVersions.get(user.getId()));
+
+        TokenVersions.clear();
+        con.close();
+    }
+
+    @Test
+    public void testStudentDashboard() throws Exception {
+        setupUserDAOTest();
+
+        Connection con = db.getConnection();
+        UserDAO userDAO = new UserDAO(con);
+        Company company = new CompanyDAO(con).createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+            "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDTO contract = new ContractDAO(con).createContract(
+            new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContract userContract = new UserContractDAO(con).addNewUserContract(user.getId(), contract.getId(), 12);
+
+        WorkedDAO workedDAO = new WorkedDAO(con);
+        workedDAO.addWorkedWeekTask(new Worked(null, null, 1, 120, "wrote tests"), userContract.getId(), "2023", "52");
+        workedDAO.addWorkedWeekTask(new Worked(null, null, 1, 60, "fixed a bug"), userContract.getId(), "2024", "1");
+        workedDAO.addWorkedWeekTask(new Worked(null, null, 2, 30, "reviewed"), userContract.getId(), "2024", "1");
+        workedDAO.addWorkedWeekTask(new Worked(null, null, 1, 45, "too late"), userContract.getId(), "2024", "3");
+
+        // Only the weeks in the range, across the end of the year
+        StudentDashboardDTO dashboard = userDAO.getStudentDashboard(user.getId(), 2023, 52, 2024, 2);
+        assertEquals(1, dashboard.getContracts().size());
+        UserContractDTO dashboardContract = dashboard.getContracts().get(0);
+        assertEquals(userContract.getId(), dashboardContract.getId());
+        assertEquals(12, dashboardContract.getHourlyWage());
+        assertEquals("Engineer", dashboardContract.getContract().getRole());
+        assertEquals("TestCompany", dashboardContract.getContract().getCompany().getName());
+
+        assertEquals(2, dashboard.getWeeks().size());
+        WorkedWeekDTO first = dashboard.getWeeks().get(0);
+        assertEquals(userContract.getId(), first.getContractId());
+        assertEquals(2023, first.getYear());
+        assertEquals(52, first.getWeek());
+        assertEquals(120, first.getTotalMinutes());
+        assertEquals("NOT_CONFIRMED", first.getStatus());
+        assertEquals(90, dashboard.getWeeks().get(1).getTotalMinutes());
+
+        NotificationCountDTO unread = userDAO.countUnreadNotificationsForUser(user.getId());
+        assertEquals(unread.getUnread(), dashboard.getUnreadNotifications().getUnread());
+        assertEquals(unread.isMore(), dashboard.getUnreadNotifications().isMore());
+
+        // Contracts that are no longer active are left out
+        con.createStatement().execute("UPDATE user_contract SET active = false");
+        dashboard = userDAO.getStudentDashboard(user.getId(), 2023, 52, 2024, 2);
+        assertTrue(dashboard.getContracts().isEmpty());
+        assertTrue(dashboard.getWeeks().isEmpty());
+
+        con.close();
+    }
 }
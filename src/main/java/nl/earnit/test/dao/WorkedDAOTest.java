@@ -71,6 +71,52 @@ public class WorkedDAOTest {
     }
 
 
+    @Test
+    public void testAddWorkedWeekTasks() throws Exception {
+        setupWorkedDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+        WorkedDAO workedDAO = new WorkedDAO(con);
+
+        // The worked week is created together with its tasks
+        List<Worked> added = workedDAO.addWorkedWeekTasks(List.of(
+            new Worked(null, null, 0, 240, "did something cool"),
+            new Worked(null, null, 1, 120, "did something else")), userContract.getId(), 2023, 30);
+        assertEquals(2, added.size());
+        String workedWeekId = workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, 30);
+        assertEquals(workedWeekId, added.get(0).getWorkedWeekId());
+        assertEquals(1, added.get(1).getDay());
+        assertEquals("did something else", added.get(1).getWork());
+
+        // An existing worked week is reused
+        added = workedDAO.addWorkedWeekTasks(List.of(new Worked(null, null, 2, 60, "more")), userContract.getId(), 2023, 30);
+        assertEquals(workedWeekId, added.get(0).getWorkedWeekId());
+        assertEquals(3, workedDAO.getWorkedWeek(userContract.getId(), 2023, 30).size());
+        assertTrue(con.getAutoCommit());
+
+        // Nothing is added to a confirmed week
+        workedWeekDAO.confirmWorkedWeek(userContract.getId(), "2023", "30");
+        assertNull(workedDAO.addWorkedWeekTasks(List.of(new Worked(null, null, 3, 60, "late")), userContract.getId(), 2023, 30));
+        assertEquals(3, workedDAO.getWorkedWeek(userContract.getId(), 2023, 30).size());
+
+        // Either all tasks are added or none are
+        assertThrows(Exception.class, () -> workedDAO.addWorkedWeekTasks(List.of(new Worked(null, null, 0, 60, "fine"),
+            new Worked(null, null, 1, 60, null)), userContract.getId(), 2023, 31));
+        assertNull(workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, 31));
+        assertTrue(con.getAutoCommit());
+
+        con.close();
+    }
+
     @Test
     public void testGetWorkedHours() throws Exception {
         setupWorkedDAOTest();
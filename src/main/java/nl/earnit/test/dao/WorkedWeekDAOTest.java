@@ -1,11 +1,14 @@
 package nl.earnit.test.dao;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
 import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
 import nl.earnit.Auth;
 import nl.earnit.dao.*;
 import nl.earnit.dto.contracts.ContractDTO;
 import nl.earnit.dto.workedweek.WorkedWeekDTO;
+import nl.earnit.exceptions.InvalidCursorException;
 import nl.earnit.models.Company;
 import nl.earnit.models.User;
 import nl.earnit.models.UserContract;
@@ -15,7 +18,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -144,6 +154,138 @@ public class WorkedWeekDAOTest {
         con.close();
     }
 
+    @Test
+    public void testGetWorkedWeekByIdWithHours() throws Exception {
+        setupWorkedWeekDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+        workedWeekDAO.addWorkedWeek(userContract.getId(), "2023", "30");
+        workedWeekDAO.addWorkedWeek(userContract.getId(), "2023", "31");
+        String workedWeekId = workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, 30);
+        String emptyWorkedWeekId = workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, 31);
+        WorkedDAO workedDAO = new WorkedDAO(con);
+        assertTrue(workedDAO.addWorkedWeekTask(new Worked(null, workedWeekId, 4, 180, "wrote tests"), userContract.getId(), "2023", "30"));
+        assertTrue(workedDAO.addWorkedWeekTask(new Worked(null, workedWeekId, 2, 240, "fixed a bug, \"quickly\""), userContract.getId(), "2023", "30"));
+
+        // Only the hours of the week itself, in order
+        WorkedWeekDTO ww = workedWeekDAO.getWorkedWeekById(workedWeekId, false, false, false, false, true, true, "hours.day:asc");
+        assertEquals(2, ww.getHours().size());
+        assertEquals(2, ww.getHours().get(0).getDay());
+        assertEquals(240, ww.getHours().get(0).getMinutes());
+        assertEquals("fixed a bug, \"quickly\"", ww.getHours().get(0).getWork());
+        assertEquals(4, ww.getHours().get(1).getDay());
+        assertEquals(420, ww.getTotalMinutes());
+
+        // A week without hours
+        ww = workedWeekDAO.getWorkedWeekById(emptyWorkedWeekId, false, false, false, false, true, true, "hours.day:asc");
+        assertTrue(ww.getHours().isEmpty());
+        assertEquals(0, ww.getTotalMinutes());
+
+        // Ordering by total hours without returning them
+        workedWeekDAO.setWorkedWeekStatus(workedWeekId, "APPROVED", false, false, false, false, false, false, "");
+        workedWeekDAO.setWorkedWeekStatus(emptyWorkedWeekId, "APPROVED", false, false, false, false, false, false, "");
+        List<WorkedWeekDTO> workedWeeks = workedWeekDAO.getWorkedWeeksForCompanyForUser(company.getId(), user.getId(), false, false, false, false, false, false, "worked_week.total_hours:asc");
+        assertEquals(2, workedWeeks.size());
+        assertEquals(workedWeekId, workedWeeks.get(0).getId());
+        assertNull(workedWeeks.get(0).getTotalMinutes());
+
+        con.close();
+    }
+
+    @Test
+    public void testWorkedWeekTotals() throws Exception {
+        setupWorkedWeekDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+        WorkedDAO workedDAO = new WorkedDAO(con);
+
+        // Every change to the tasks is reflected in the total
+        assertTrue(workedDAO.addWorkedWeekTask(new Worked(null, null, 1, 120, "wrote tests"), userContract.getId(), "2023", "30"));
+        String workedWeekId = workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, 30);
+        List<Worked> added = workedDAO.addWorkedWeekTasks(List.of(new Worked(null, null, 2, 60, "fixed a bug"),
+            new Worked(null, null, 3, 30, "reviewed")), userContract.getId(), 2023, 30);
+        assertEquals(210, workedWeekDAO.getWorkedWeekById(workedWeekId, false, false, false, false, false, true, "").getTotalMinutes());
+
+        Worked updated = added.get(0);
+        updated.setMinutes(90);
+        assertTrue(workedDAO.updateWorkedWeekTask(updated));
+        assertEquals(240, workedWeekDAO.getWorkedWeekById(workedWeekId, false, false, false, false, false, true, "").getTotalMinutes());
+
+        workedDAO.deleteWorkedWeekTask(added.get(1).getId());
+        assertEquals(210, workedWeekDAO.getWorkedWeekById(workedWeekId, false, false, false, false, false, true, "").getTotalMinutes());
+
+        con.createStatement().execute("UPDATE worked SET suggestion = 100 WHERE id = '" + updated.getId() + "'");
+        assertTrue(workedDAO.acceptCompanySuggestion(workedWeekId));
+        assertEquals(220, workedWeekDAO.getWorkedWeekById(workedWeekId, false, false, false, false, false, true, "").getTotalMinutes());
+        assertEquals(0, workedWeekDAO.repairWorkedWeekTotals());
+
+        // Drift is repaired
+        con.createStatement().execute("UPDATE worked_week_total SET minutes = 5");
+        assertEquals(1, workedWeekDAO.repairWorkedWeekTotals());
+        assertEquals(220, workedWeekDAO.getWorkedWeekById(workedWeekId, false, false, false, false, false, true, "").getTotalMinutes());
+
+        con.createStatement().execute("DELETE FROM worked_week_total");
+        assertEquals(1, workedWeekDAO.repairWorkedWeekTotals());
+        assertEquals(220, workedWeekDAO.getWorkedWeekById(workedWeekId, false, false, false, false, false, true, "").getTotalMinutes());
+        assertEquals(0, workedWeekDAO.repairWorkedWeekTotals());
+
+        con.close();
+    }
+
+    @Test
+    public void testRepairWorkedWeekTotalsInBatches() throws Exception {
+        setupWorkedWeekDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+
+        // More worked weeks than fit in one batch, with tasks inserted without their totals
+        int weeks = WorkedWeekDAO.TOTALS_BATCH_SIZE + 1;
+        con.createStatement().execute("""
+            INSERT INTO worked_week (contract_id, year, week)
+                SELECT '%s', 3000 + i / 52, i %% 52 + 1 FROM generate_series(0, %d) i;
+            INSERT INTO worked (worked_week_id, day, minutes, work)
+                SELECT id, 1, 60, 'worked' FROM worked_week WHERE contract_id = '%s';
+            """.formatted(userContract.getId(), weeks - 1, userContract.getId()));
+
+        assertEquals(weeks, workedWeekDAO.repairWorkedWeekTotals());
+        assertEquals(0, workedWeekDAO.repairWorkedWeekTotals());
+
+        con.createStatement().execute("UPDATE worked_week_total SET minutes = 5");
+        assertEquals(weeks, workedWeekDAO.repairWorkedWeekTotals());
+        ResultSet res = con.createStatement().executeQuery("SELECT count(*) as count FROM worked_week_total WHERE minutes = 60");
+        assertTrue(res.next());
+        assertEquals(weeks, res.getInt("count"));
+
+        con.close();
+    }
+
     @Test
     public void testSetWorkedWeekStatus() throws Exception {
         setupWorkedWeekDAOTest();
@@ -171,6 +313,51 @@ public class WorkedWeekDAOTest {
         assertEquals(ww.getStatus(), "APPROVED");
     }
 
+    @Test
+    public void testSetWorkedWeekStatuses() throws Exception {
+        setupWorkedWeekDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        Company other = companyDAO.createCompany("OtherCompany", "NL845839", "Finkenstraat 43, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+
+        List<String> workedWeekIds = new ArrayList<>();
+        for (int week = 30; week < 33; week++) {
+            workedWeekDAO.addWorkedWeek(userContract.getId(), "2023", String.valueOf(week));
+            workedWeekIds.add(workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, week));
+        }
+        String missing = UUID.randomUUID().toString();
+
+        // Access is checked for all worked weeks at once
+        List<String> requested = new ArrayList<>(workedWeekIds);
+        requested.add(missing);
+        assertEquals(new HashSet<>(workedWeekIds), workedWeekDAO.getWorkedWeeksWithCompanyAccess(company.getId(), requested));
+        assertTrue(workedWeekDAO.getWorkedWeeksWithCompanyAccess(other.getId(), requested).isEmpty());
+        assertTrue(workedWeekDAO.getWorkedWeeksWithCompanyAccess(company.getId(), List.of()).isEmpty());
+
+        // Worked weeks that do not exist are left out of the result
+        Map<String, String> statuses = new LinkedHashMap<>();
+        statuses.put(workedWeekIds.get(0), "APPROVED");
+        statuses.put(workedWeekIds.get(1), "SUGGESTED");
+        statuses.put(missing, "APPROVED");
+        Map<String, String> updated = workedWeekDAO.setWorkedWeekStatuses(statuses);
+        assertEquals(Map.of(workedWeekIds.get(0), "APPROVED", workedWeekIds.get(1), "SUGGESTED"), updated);
+
+        assertEquals("APPROVED", workedWeekDAO.getWorkedWeekById(workedWeekIds.get(0)).getStatus());
+        assertEquals("SUGGESTED", workedWeekDAO.getWorkedWeekById(workedWeekIds.get(1)).getStatus());
+        assertEquals("NOT_CONFIRMED", workedWeekDAO.getWorkedWeekById(workedWeekIds.get(2)).getStatus());
+
+        con.close();
+    }
+
     @Test
     public void testIsWorkedWeekSuggested() throws Exception {
         setupWorkedWeekDAOTest();
@@ -199,4 +386,136 @@ public class WorkedWeekDAOTest {
 
 
 
+
+    @Test
+    public void testKeysetPagination() throws Exception {
+        setupWorkedWeekDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+        WorkedDAO workedDAO = new WorkedDAO(con);
+
+        // Three students with four confirmed weeks each, some without a prefix or hours
+        String[] prefixes = {null, "van", null};
+        for (int i = 0; i < prefixes.length; i++) {
+            User user = userDAO.createUser("student" + i + "@example.com", "John", prefixes[i], "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+            UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+
+            for (int week = 1; week <= 4; week++) {
+                workedWeekDAO.addWorkedWeek(userContract.getId(), "2023", String.valueOf(week));
+                String workedWeekId = workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, week);
+                if (week % 2 == 0) {
+                    assertTrue(workedDAO.addWorkedWeekTask(new Worked(UUID.randomUUID().toString(), workedWeekId, 1, 60 * (i + 1), "work"),
+                        userContract.getId(), "2023", String.valueOf(week)));
+                }
+                workedWeekDAO.confirmWorkedWeek(userContract.getId(), "2023", String.valueOf(week));
+            }
+        }
+
+        String[] orders = {
+            "worked_week.year:asc,worked_week.week:asc",
+            "user.last_name_prefix:desc,worked_week.week:desc",
+            "user.last_name_prefix:asc,worked_week.week:asc",
+            "worked_week.total_hours:desc",
+            "worked_week.total_hours:asc,user.email:desc",
+            ""
+        };
+
+        for (String order : orders) {
+            // Every row exactly once, in the same order as without pages
+            List<String> expected = workedWeekDAO.getWorkedWeeksToApproveForCompany(company.getId(), false, false, false, false, false, false,
+                order.isEmpty() ? "worked_week.id:asc" : order + ",worked_week.id:asc").stream().map(WorkedWeekDTO::getId).toList();
+            assertEquals(expected.size(), 12);
+
+            List<String> paged = new ArrayList<>();
+            String after = null;
+            do {
+                Keyset.Page<WorkedWeekDTO> page = workedWeekDAO.getWorkedWeeksToApproveForCompany(company.getId(), false, false, false, false, false, false,
+                    order, new Keyset(5, after));
+                assertTrue(page.items().size() <= 5);
+                page.items().forEach(workedWeek -> paged.add(workedWeek.getId()));
+                after = page.next();
+            } while (after != null);
+
+            assertEquals(paged, expected, order);
+            assertEquals(new HashSet<>(paged).size(), 12);
+        }
+
+        // A cursor only fits the order it was created with
+        String cursor = workedWeekDAO.getWorkedWeeksToApproveForCompany(company.getId(), false, false, false, false, false, false,
+            orders[0], new Keyset(5, null)).next();
+        assertThrows(InvalidCursorException.class, () -> workedWeekDAO.getWorkedWeeksToApproveForCompany(company.getId(), false, false, false, false, false, false,
+            orders[1], new Keyset(5, cursor)));
+        assertThrows(InvalidCursorException.class, () -> new Keyset(5, "not a cursor"));
+
+        // Values that are not text are rejected before reaching a query
+        Map<String, Object> decoded = new ObjectMapper().readValue(Base64.getUrlDecoder().decode(cursor), new TypeReference<>() {});
+        for (Object values : List.of(List.of(1, 2), List.of(Map.of("a", "b")), "text")) {
+            decoded.put("v", values);
+            String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(new ObjectMapper().writeValueAsBytes(decoded));
+            assertThrows(InvalidCursorException.class, () -> new Keyset(5, tampered));
+        }
+
+        con.close();
+    }
+
+    @Test
+    public void testWorkedWeekVersion() throws Exception {
+        setupWorkedWeekDAOTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+        WorkedDAO workedDAO = new WorkedDAO(con);
+
+        assertNull(workedWeekDAO.getWorkedWeekVersionByDate(userContract.getId(), 2023, 30));
+        assertTrue(workedDAO.addWorkedWeekTask(new Worked(null, null, 1, 120, "wrote tests"), userContract.getId(), "2023", "30"));
+        String workedWeekId = workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, 30);
+        String version = workedWeekDAO.getWorkedWeekVersion(workedWeekId);
+        assertNotNull(version);
+        assertEquals(version, workedWeekDAO.getWorkedWeekVersionByDate(userContract.getId(), 2023, 30));
+
+        // Every change to the week, its tasks or what is shown with it is a new version
+        Set<String> versions = new HashSet<>();
+        versions.add(version);
+        List<Worked> added = workedDAO.addWorkedWeekTasks(List.of(new Worked(null, null, 2, 60, "fixed a bug")),
+            userContract.getId(), 2023, 30);
+        assertTrue(versions.add(workedWeekDAO.getWorkedWeekVersion(workedWeekId)));
+
+        Worked updated = added.get(0);
+        updated.setMinutes(90);
+        assertTrue(workedDAO.updateWorkedWeekTask(updated));
+        assertTrue(versions.add(workedWeekDAO.getWorkedWeekVersion(workedWeekId)));
+
+        // Without the task the week is the same as before it was added
+        workedDAO.deleteWorkedWeekTask(updated.getId());
+        assertEquals(version, workedWeekDAO.getWorkedWeekVersion(workedWeekId));
+
+        con.createStatement().execute("UPDATE worked_week SET note = 'note' WHERE id = '" + workedWeekId + "'");
+        assertTrue(versions.add(workedWeekDAO.getWorkedWeekVersion(workedWeekId)));
+
+        con.createStatement().execute("UPDATE company SET name = 'OtherCompany' WHERE id = '" + company.getId() + "'");
+        assertTrue(versions.add(workedWeekDAO.getWorkedWeekVersion(workedWeekId)));
+
+        // Updates changing nothing keep the version
+        version = workedWeekDAO.getWorkedWeekVersion(workedWeekId);
+        con.createStatement().execute("UPDATE worked_week SET note = 'note' WHERE id = '" + workedWeekId + "'");
+        con.createStatement().execute("UPDATE company SET name = 'OtherCompany' WHERE id = '" + company.getId() + "'");
+        assertEquals(version, workedWeekDAO.getWorkedWeekVersion(workedWeekId));
+
+        con.close();
+    }
 }
@@ -0,0 +1,49 @@
+package nl.earnit.test.helpers;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Response;
+import nl.earnit.helpers.ETagHelper;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ETagHelperTest {
+    private static ContainerRequest createRequest(String ifNoneMatch) {
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/api/"),
+            URI.create("http://localhost/api/users"), "GET", null, new MapPropertiesDelegate(), null);
+        if (ifNoneMatch != null) request.header("If-None-Match", ifNoneMatch);
+
+        return request;
+    }
+
+    @Test
+    public void testEvaluate() {
+        // The version the client has
+        Response notModified = ETagHelper.evaluate(createRequest("W/\"12.3\""), "12.3");
+        assertNotNull(notModified);
+        assertEquals(notModified.getStatus(), 304);
+        assertEquals(notModified.getEntityTag(), new EntityTag("12.3", true));
+
+        // Compared weakly, proxies may drop the weak marker
+        assertNotNull(ETagHelper.evaluate(createRequest("\"12.3\""), "12.3"));
+        assertNotNull(ETagHelper.evaluate(createRequest("W/\"11.2\", W/\"12.3\""), "12.3"));
+
+        // Another version, no version or nothing to return
+        assertNull(ETagHelper.evaluate(createRequest("W/\"12.3\""), "12.4"));
+        assertNull(ETagHelper.evaluate(createRequest(null), "12.3"));
+        assertNull(ETagHelper.evaluate(createRequest("W/\"12.3\""), null));
+    }
+
+    @Test
+    public void testCreateTaggedResponse() {
+        Response response = ETagHelper.createTaggedResponse("entity", "12.3");
+        assertEquals(response.getStatus(), 200);
+        assertEquals(response.getEntityTag(), new EntityTag("12.3", true));
+
+        assertNull(ETagHelper.createTaggedResponse("entity", null).getEntityTag());
+    }
+}
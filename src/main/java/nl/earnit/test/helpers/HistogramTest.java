@@ -0,0 +1,31 @@
+package nl.earnit.test.helpers;
+
+import nl.earnit.helpers.Histogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistogramTest {
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram(1, 10, 100);
+        assertEquals(0, histogram.getPercentile(0.5));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(1000);
+
+        // Bounds are inclusive, the last bucket holds everything above them
+        assertArrayEquals(new long[] {1, 9, 90, 1}, histogram.getBucketCounts());
+        assertEquals(101, histogram.getCount());
+        assertEquals(6050, histogram.getSum());
+        assertEquals(1000, histogram.getMax());
+
+        // Estimates stay within the bucket of the exact percentile
+        double median = histogram.getPercentile(0.5);
+        assertTrue(median > 10 && median <= 100, "median " + median);
+        assertEquals(1000, histogram.getPercentile(1));
+        assertTrue(histogram.getPercentile(0.001) <= 1);
+    }
+}
@@ -0,0 +1,40 @@
+package nl.earnit.test.helpers;
+
+import nl.earnit.helpers.HtmlTemplate;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HtmlTemplateTest {
+    @Test
+    public void testRender() {
+        HtmlTemplate template = new HtmlTemplate("""
+            <html><body>
+            <p class="name">&lt;name&gt;</p>
+            <p>KvK nummer: &lt;kvk&gt;, BTW nummer: &lt;btw&gt;</p>
+            <p>&lt;missing&gt;</p>
+            </body></html>
+            """);
+
+        // Values are text, even if they look like markup or replacement patterns
+        Document document = template.render(Map.of("name", "<b>$1 & \\0</b>", "kvk", "12345678",
+            "btw", "NL000099998B57"));
+
+        NodeList paragraphs = document.getElementsByTagName("p");
+        assertEquals(paragraphs.getLength(), 3);
+        assertEquals(paragraphs.item(0).getTextContent(), "<b>$1 & \\0</b>");
+        assertEquals(paragraphs.item(0).getChildNodes().getLength(), 1);
+        assertEquals(paragraphs.item(1).getTextContent(), "KvK nummer: 12345678, BTW nummer: NL000099998B57");
+        assertEquals(paragraphs.item(2).getTextContent(), "");
+
+        // Rendering again starts from the template, not from the previous document
+        Document other = template.render(Map.of("name", "John Smith"));
+        assertEquals(other.getElementsByTagName("p").item(0).getTextContent(), "John Smith");
+        assertEquals(other.getElementsByTagName("p").item(1).getTextContent(), "KvK nummer: , BTW nummer: ");
+        assertEquals(paragraphs.item(0).getTextContent(), "<b>$1 & \\0</b>");
+    }
+}
@@ -0,0 +1,71 @@
+package nl.earnit.test.helpers;
+
+import nl.earnit.helpers.InvoiceCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvoiceCacheTest {
+    private static final String WEEK_1 = "00000000-0000-0000-0000-000000000001";
+    private static final String WEEK_2 = "00000000-0000-0000-0000-000000000002";
+    private static final String WEEK_3 = "00000000-0000-0000-0000-000000000003";
+
+    @TempDir
+    Path directory;
+
+    private static String read(InvoiceCache cache, String workedWeekId, String version) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        return cache.writeTo(workedWeekId, version, output) ? output.toString() : null;
+    }
+
+    @Test
+    public void testVersionAndInvalidation() throws Exception {
+        InvoiceCache cache = new InvoiceCache(directory, 1024);
+
+        assertNull(read(cache, WEEK_1, "a"));
+        cache.put(WEEK_1, "a", "invoice".getBytes());
+        assertEquals(read(cache, WEEK_1, "a"), "invoice");
+
+        // Another version is not served and replaces the cached one
+        assertNull(read(cache, WEEK_1, "b"));
+        assertEquals(cache.getSize(), 0);
+
+        cache.put(WEEK_1, "b", "changed".getBytes());
+        assertEquals(read(cache, WEEK_1, "b"), "changed");
+
+        cache.invalidate(WEEK_1);
+        assertNull(read(cache, WEEK_1, "b"));
+        assertEquals(cache.getBytes(), 0);
+        try (var files = Files.list(directory)) {
+            assertEquals(files.count(), 0);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        InvoiceCache cache = new InvoiceCache(directory, 10);
+
+        cache.put(WEEK_1, "a", "1111".getBytes());
+        cache.put(WEEK_2, "a", "2222".getBytes());
+
+        // Using the first invoice makes the second one the least recently used
+        assertEquals(read(cache, WEEK_1, "a"), "1111");
+        cache.put(WEEK_3, "a", "3333".getBytes());
+
+        assertEquals(cache.getSize(), 2);
+        assertEquals(cache.getBytes(), 8);
+        assertNull(read(cache, WEEK_2, "a"));
+        assertEquals(read(cache, WEEK_1, "a"), "1111");
+        assertEquals(read(cache, WEEK_3, "a"), "3333");
+
+        // Invoices on disk are picked up again
+        InvoiceCache reloaded = new InvoiceCache(directory, 10);
+        assertEquals(reloaded.getSize(), 2);
+        assertEquals(read(reloaded, WEEK_3, "a"), "3333");
+    }
+}
@@ -0,0 +1,48 @@
+package nl.earnit.test.helpers;
+
+import nl.earnit.helpers.InvoicePDFHandler;
+import nl.earnit.helpers.InvoicePDFHandler.InvoiceInformation;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvoicePDFHandlerTest {
+    private static InvoiceInformation createInvoiceInformation(int week) {
+        return new InvoiceInformation("TestCompany", "Finkenstraat 42, 7544NM Amsterdam", "NL845838",
+            "0001", "01-01-2024", "John Smith", "Street 2 7522AZ", "12345678", "NL000099998B57",
+            "Developer", "Writing code", week, 2024, 60 * week, 1500);
+    }
+
+    @Test
+    public void testCreateInvoicesInOrder() throws Exception {
+        List<InvoiceInformation> invoices = new ArrayList<>();
+        for (int week = 1; week <= 6; week++) {
+            invoices.add(createInvoiceInformation(week));
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        InvoicePDFHandler.createInvoices(invoices).write(output);
+
+        // Every invoice is a pdf, in the order they were requested
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+            for (InvoiceInformation invoice : invoices) {
+                ZipEntry entry = zip.getNextEntry();
+                assertNotNull(entry);
+                assertEquals(entry.getName(), InvoiceInformation.getInvoiceNameFromInvoiceInformation(invoice));
+
+                byte[] pdf = zip.readAllBytes();
+                assertTrue(pdf.length > 0);
+                assertEquals(new String(pdf, 0, 5), "%PDF-");
+            }
+
+            assertNull(zip.getNextEntry());
+        }
+    }
+}
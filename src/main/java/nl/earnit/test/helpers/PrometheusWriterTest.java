@@ -0,0 +1,36 @@
+package nl.earnit.test.helpers;
+
+import nl.earnit.helpers.Histogram;
+import nl.earnit.helpers.PrometheusWriter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrometheusWriterTest {
+    @Test
+    public void testWriter() {
+        Histogram histogram = new Histogram(1, 10);
+        histogram.record(0.5);
+        histogram.record(5);
+        histogram.record(20);
+
+        PrometheusWriter writer = new PrometheusWriter()
+            .family("requests_total", "counter", "Requests.")
+            .sample("requests_total", 3, "resource", "Say \"hi\"\\n", "status", "200")
+            .family("duration_seconds", "histogram", "Duration.")
+            .histogram("duration_seconds", histogram, 1, "resource", "A.b");
+
+        assertEquals("""
+            # HELP requests_total Requests.
+            # TYPE requests_total counter
+            requests_total{resource="Say \\"hi\\"\\\\n",status="200"} 3
+            # HELP duration_seconds Duration.
+            # TYPE duration_seconds histogram
+            duration_seconds_bucket{resource="A.b",le="1"} 1
+            duration_seconds_bucket{resource="A.b",le="10"} 2
+            duration_seconds_bucket{resource="A.b",le="+Inf"} 3
+            duration_seconds_sum{resource="A.b"} 25.5
+            duration_seconds_count{resource="A.b"} 3
+            """, writer.toString());
+    }
+}
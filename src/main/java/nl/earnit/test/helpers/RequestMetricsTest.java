@@ -0,0 +1,46 @@
+package nl.earnit.test.helpers;
+
+import nl.earnit.helpers.RequestMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestMetricsTest {
+    @AfterEach
+    public void tearDownRequestMetricsTest() {
+        RequestMetrics.clear();
+    }
+
+    @Test
+    public void testRequestMetrics() {
+        int inFlight = RequestMetrics.getInFlight();
+
+        RequestMetrics.Timing timing = RequestMetrics.begin();
+        assertEquals(inFlight + 1, RequestMetrics.getInFlight());
+        RequestMetrics.setResource("CompanyResource.getToApprove");
+        RequestMetrics.add(RequestMetrics.Phase.DATABASE, 2_000_000);
+        RequestMetrics.add(RequestMetrics.Phase.DATABASE, 1_000_000);
+        assertEquals(3_000_000, RequestMetrics.get(RequestMetrics.Phase.DATABASE));
+        RequestMetrics.end(timing, 200, 512);
+
+        // Requests that never reach a resource method are grouped together
+        RequestMetrics.end(RequestMetrics.begin(), 404, 0);
+        assertEquals(inFlight, RequestMetrics.getInFlight());
+
+        // Outside of a request phases are not recorded
+        RequestMetrics.add(RequestMetrics.Phase.PDF, 1_000_000);
+        assertEquals(0, RequestMetrics.get(RequestMetrics.Phase.PDF));
+
+        Map<String, RequestMetrics.Stats> stats = RequestMetrics.getStats();
+        RequestMetrics.Stats resource = stats.get("CompanyResource.getToApprove");
+        assertEquals(1, resource.getLatency().getCount());
+        assertEquals(512, resource.getSize().getSum());
+        assertEquals(Map.of(200, 1L), resource.getStatuses());
+        assertEquals(3_000_000, resource.getPhase(RequestMetrics.Phase.DATABASE));
+        assertEquals(0, resource.getPhase(RequestMetrics.Phase.PDF));
+        assertEquals(Map.of(404, 1L), stats.get(RequestMetrics.UNMATCHED).getStatuses());
+    }
+}
@@ -0,0 +1,80 @@
+package nl.earnit.test.helpers;
+
+import nl.earnit.helpers.StaticAssets;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticAssetsTest {
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] content) {
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testBuild() throws IOException {
+        String script = "img.src = \"/static/icons/a.svg\";\n".repeat(50);
+        StaticAssets assets = StaticAssets.build(Map.of(
+            "/static/icons/a.svg", bytes("<svg></svg>"),
+            "/static/js/a.js", bytes(script + "img.src = `/static/icons/${name}.svg`;"),
+            "/home/index.html", bytes("<script src=\"/static/js/a.js\"></script><img src=\"/static/icons/b.svg\">")
+        ));
+        assertEquals(assets.size(), 3);
+        assertNull(assets.get("/static/icons/b.svg"));
+
+        // Pages reference the hash of scripts, scripts that of icons, unknown files stay as they are
+        StaticAssets.Asset icon = assets.get("/static/icons/a.svg");
+        StaticAssets.Asset js = assets.get("/static/js/a.js");
+        StaticAssets.Asset page = assets.get("/home/index.html");
+        assertEquals(string(page.getContent()),
+            "<script src=\"" + js.getFingerprintedPath() + "\"></script><img src=\"/static/icons/b.svg\">");
+        assertTrue(string(js.getContent()).startsWith("img.src = \"/static/icons/a.svg?v=" + icon.getHash() + "\";"));
+        assertTrue(string(js.getContent()).endsWith("`/static/icons/${name}.svg`;"));
+        assertTrue(js.isFingerprinted());
+        assertFalse(page.isFingerprinted());
+
+        // Gzipped only when smaller
+        assertNull(icon.getGzip());
+        assertNotNull(js.getGzip());
+        assertTrue(js.getGzip().length < js.getContent().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(js.getGzip()))) {
+            assertArrayEquals(in.readAllBytes(), js.getContent());
+        }
+
+        // A changed icon changes the hash of the script referencing it
+        StaticAssets changed = StaticAssets.build(Map.of(
+            "/static/icons/a.svg", bytes("<svg> </svg>"),
+            "/static/js/a.js", bytes(script + "img.src = `/static/icons/${name}.svg`;")
+        ));
+        assertNotEquals(changed.get("/static/icons/a.svg").getHash(), icon.getHash());
+        assertNotEquals(changed.get("/static/js/a.js").getHash(), js.getHash());
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(StaticAssets.acceptsGzip("gzip, deflate, br"));
+        assertTrue(StaticAssets.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(StaticAssets.acceptsGzip("*"));
+        assertFalse(StaticAssets.acceptsGzip("gzip;q=0, identity"));
+        assertFalse(StaticAssets.acceptsGzip("br, deflate"));
+        assertFalse(StaticAssets.acceptsGzip(null));
+    }
+
+    @Test
+    public void testMatches() {
+        assertTrue(StaticAssets.matches("W/\"abc\"", "abc"));
+        assertTrue(StaticAssets.matches("\"def\", \"abc\"", "abc"));
+        assertTrue(StaticAssets.matches("*", "abc"));
+        assertFalse(StaticAssets.matches("W/\"abd\"", "abc"));
+        assertFalse(StaticAssets.matches(null, "abc"));
+    }
+}
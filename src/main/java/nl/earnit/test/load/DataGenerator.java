@@ -0,0 +1,273 @@
+package nl.earnit.test.load;
+
+import nl.earnit.Auth;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fills the v2.5 schema with a synthetic dataset of configurable size: companies with their
+ * contracts and administrators, students working one contract each, worked weeks with their
+ * hours for a number of years and notifications.
+ * <p>
+ * The dataset is inserted with set-based statements while triggers are disabled, which needs
+ * a superuser connection such as the one of embedded Postgres. Every user has
+ * {@link #PASSWORD} as password, the staff user is {@code staff@example.com}.
+ */
+public class DataGenerator {
+    /**
+     * The password of every generated user.
+     */
+    public static final String PASSWORD = "password";
+
+    private final Config config;
+
+    /**
+     * Instantiates a new data generator.
+     *
+     * @param config the size of the dataset
+     */
+    public DataGenerator(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * Generates the dataset and updates the planner statistics.
+     *
+     * @param con the connection, must be allowed to disable triggers
+     * @return the number of rows generated per table
+     * @throws SQLException if the dataset could not be inserted
+     */
+    public Map<String, Long> generate(Connection con) throws SQLException {
+        // Hashing is slow on purpose, every user shares a single hash
+        String password = Auth.hashPassword(PASSWORD);
+        int contracts = config.companies * config.contractsPerCompany;
+
+        try (Statement statement = con.createStatement()) {
+            // Skip the notification triggers, notifications are generated below
+            statement.execute("SET session_replication_role = replica");
+
+            statement.execute("""
+                INSERT INTO company (name, kvk, address)
+                SELECT 'Company ' || i, lpad(i::text, 8, '0'), 'Street ' || i || ' 7522AZ Enschede'
+                FROM generate_series(1, %d) i
+                """.formatted(config.companies));
+
+            try (PreparedStatement users = con.prepareStatement("""
+                INSERT INTO "user" (email, first_name, last_name, type, password, kvk, btw, address)
+                SELECT 'student' || i || '@example.com', 'Student', 'Number ' || i, 'STUDENT', ?,
+                    lpad(i::text, 8, '0'), 'NL' || lpad(i::text, 9, '0') || 'B01', 'Street ' || i || ' 7522AZ Enschede'
+                FROM generate_series(1, ?) i
+                UNION ALL
+                SELECT 'company' || i || '@example.com', 'Administrator', 'Number ' || i, 'COMPANY', ?, NULL, NULL, NULL
+                FROM generate_series(1, ?) i
+                UNION ALL
+                SELECT 'staff@example.com', 'Staff', 'Member', 'ADMINISTRATOR', ?, NULL, NULL, NULL
+                """)) {
+                users.setString(1, password);
+                users.setInt(2, config.students);
+                users.setString(3, password);
+                users.setInt(4, config.companies);
+                users.setString(5, password);
+                users.executeUpdate();
+            }
+
+            statement.execute("""
+                INSERT INTO company_user (user_id, company_id)
+                SELECT u.id, c.id FROM company c
+                JOIN "user" u ON u.email = 'company' || substring(c.name from 9) || '@example.com'
+                """);
+            statement.execute("""
+                INSERT INTO contract (company_id, role, description)
+                SELECT c.id, 'Role ' || i, 'Generated contract ' || i FROM company c, generate_series(1, %d) i
+                """.formatted(config.contractsPerCompany));
+
+            // Students are spread evenly over all contracts
+            statement.execute("""
+                INSERT INTO user_contract (contract_id, user_id, hourly_wage)
+                SELECT c.id, s.id, 1200 + (s.n %% 20) * 50
+                FROM (SELECT id, row_number() OVER (ORDER BY id) - 1 as n FROM "user" WHERE type = 'STUDENT') s
+                JOIN (SELECT id, row_number() OVER (ORDER BY id) - 1 as n FROM contract) c ON c.n = s.n %% %d
+                """.formatted(contracts));
+
+            // Most weeks are approved, the remainder is spread over the other statuses
+            statement.execute(String.format(Locale.ROOT, """
+                INSERT INTO worked_week (contract_id, year, week, note, status)
+                SELECT s.id, s.y, s.w, CASE WHEN s.r < 0.1 THEN 'Generated note' END, CASE
+                    WHEN s.r < %1$f THEN 'APPROVED'
+                    WHEN s.r < %1$f + (1 - %1$f) * 0.4 THEN 'NOT_CONFIRMED'
+                    WHEN s.r < %1$f + (1 - %1$f) * 0.7 THEN 'CONFIRMED'
+                    WHEN s.r < %1$f + (1 - %1$f) * 0.9 THEN 'SUGGESTED'
+                    ELSE 'SUGGESTION_DENIED' END
+                FROM (SELECT uc.id, y, w, random() as r
+                    FROM user_contract uc, generate_series(%2$d, %3$d) y, generate_series(1, 52) w) s
+                """, config.approvedRatio, config.startYear, config.startYear + config.years - 1));
+            statement.execute("""
+                INSERT INTO worked (worked_week_id, day, minutes, work, suggestion)
+                SELECT ww.id, d, 60 * (1 + floor(random() * 8)), 'Generated work on day ' || d,
+                    CASE WHEN ww.status IN ('SUGGESTED', 'SUGGESTION_DENIED') AND d = 0 THEN 60 END
+                FROM worked_week ww, generate_series(0, %d) d
+                """.formatted(config.daysPerWeek - 1));
+            statement.execute("""
+                INSERT INTO worked_week_total (worked_week_id, minutes)
+                SELECT worked_week_id, sum(minutes) FROM worked GROUP BY worked_week_id
+                ON CONFLICT (worked_week_id) DO UPDATE SET minutes = EXCLUDED.minutes
+                """);
+
+            // Notifications of part of the weeks, about half of them has been seen
+            statement.execute(String.format(Locale.ROOT, """
+                INSERT INTO notification (user_id, company_id, worked_week_id, date, created_at, seen, type)
+                SELECT uc.user_id, c.company_id, ww.id,
+                    to_char(to_date(ww.year || ' ' || ww.week, 'IYYY IW') + 7, 'YYYY-MM-DD'),
+                    to_date(ww.year || ' ' || ww.week, 'IYYY IW') + 7 + random() * interval '1 day',
+                    random() < 0.5,
+                    CASE ww.status WHEN 'APPROVED' THEN 'APPROVED' WHEN 'SUGGESTED' THEN 'SUGGESTION'
+                        WHEN 'SUGGESTION_DENIED' THEN 'CONFLICT' ELSE 'HOURS' END
+                FROM worked_week ww JOIN user_contract uc ON uc.id = ww.contract_id
+                JOIN contract c ON c.id = uc.contract_id
+                WHERE random() < %f
+                """, config.notificationRatio));
+        } finally {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("SET session_replication_role = DEFAULT");
+            }
+        }
+
+        try (Statement statement = con.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+
+        return count(con);
+    }
+
+    /**
+     * Counts the rows in every table of the dataset.
+     *
+     * @param con the connection
+     * @return the number of rows per table
+     * @throws SQLException if a table could not be counted
+     */
+    public static Map<String, Long> count(Connection con) throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        try (Statement statement = con.createStatement()) {
+            for (String table : List.of("company", "user", "company_user", "contract", "user_contract",
+                "worked_week", "worked", "notification")) {
+                try (ResultSet res = statement.executeQuery("SELECT COUNT(*) as count FROM \"%s\"".formatted(table))) {
+                    res.next();
+                    counts.put(table, res.getLong("count"));
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * The size of a dataset.
+     */
+    public static class Config {
+        private int companies = 20;
+        private int contractsPerCompany = 5;
+        private int students = 500;
+        private int startYear = 2022;
+        private int years = 1;
+        private int daysPerWeek = 5;
+        private double approvedRatio = 0.85;
+        private double notificationRatio = 0.5;
+
+        /**
+         * Sets the number of companies, each has one administrator.
+         *
+         * @param companies the companies
+         * @return the config
+         */
+        public Config setCompanies(int companies) {
+            this.companies = companies;
+            return this;
+        }
+
+        /**
+         * Sets the number of contracts of every company.
+         *
+         * @param contractsPerCompany the contracts per company
+         * @return the config
+         */
+        public Config setContractsPerCompany(int contractsPerCompany) {
+            this.contractsPerCompany = contractsPerCompany;
+            return this;
+        }
+
+        /**
+         * Sets the number of students, each works one contract.
+         *
+         * @param students the students
+         * @return the config
+         */
+        public Config setStudents(int students) {
+            this.students = students;
+            return this;
+        }
+
+        /**
+         * Sets the first year worked weeks are generated for.
+         *
+         * @param startYear the start year
+         * @return the config
+         */
+        public Config setStartYear(int startYear) {
+            this.startYear = startYear;
+            return this;
+        }
+
+        /**
+         * Sets the number of years of 52 worked weeks generated for every student.
+         *
+         * @param years the years
+         * @return the config
+         */
+        public Config setYears(int years) {
+            this.years = years;
+            return this;
+        }
+
+        /**
+         * Sets the number of days with hours in every worked week.
+         *
+         * @param daysPerWeek the days per week, at most 7
+         * @return the config
+         */
+        public Config setDaysPerWeek(int daysPerWeek) {
+            this.daysPerWeek = daysPerWeek;
+            return this;
+        }
+
+        /**
+         * Sets the share of worked weeks that is approved.
+         *
+         * @param approvedRatio the approved ratio between 0 and 1
+         * @return the config
+         */
+        public Config setApprovedRatio(double approvedRatio) {
+            this.approvedRatio = approvedRatio;
+            return this;
+        }
+
+        /**
+         * Sets the share of worked weeks that has a notification.
+         *
+         * @param notificationRatio the notification ratio between 0 and 1
+         * @return the config
+         */
+        public Config setNotificationRatio(double notificationRatio) {
+            this.notificationRatio = notificationRatio;
+            return this;
+        }
+    }
+}
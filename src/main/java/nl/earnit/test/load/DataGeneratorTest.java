@@ -0,0 +1,58 @@
+package nl.earnit.test.load;
+
+import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
+import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import nl.earnit.TestDB;
+import nl.earnit.dao.WorkedWeekDAO;
+import nl.earnit.dto.workedweek.WorkedWeekDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataGeneratorTest {
+    @RegisterExtension
+    public SingleInstancePostgresExtension pg = EmbeddedPostgresExtension.singleInstance();
+
+    @Test
+    public void testGenerate() throws Exception {
+        TestDB db = new TestDB(pg);
+        Connection con = db.getConnection();
+
+        Map<String, Long> counts = new DataGenerator(new DataGenerator.Config().setCompanies(3)
+            .setContractsPerCompany(2).setStudents(12).setYears(2).setDaysPerWeek(3)).generate(con);
+
+        assertEquals(3, counts.get("company"));
+        assertEquals(12 + 3 + 1, counts.get("user"));
+        assertEquals(3, counts.get("company_user"));
+        assertEquals(6, counts.get("contract"));
+        assertEquals(12, counts.get("user_contract"));
+        assertEquals(12 * 2 * 52, counts.get("worked_week"));
+        assertEquals(12 * 2 * 52 * 3, counts.get("worked"));
+        assertTrue(counts.get("notification") > 0 && counts.get("notification") < counts.get("worked_week"));
+
+        // Every contract has students
+        ResultSet res = con.createStatement().executeQuery("""
+            SELECT COUNT(*) as count FROM contract c WHERE NOT EXISTS (SELECT 1 FROM user_contract uc WHERE uc.contract_id = c.id)""");
+        res.next();
+        assertEquals(0, res.getInt("count"));
+
+        // The triggers are enabled again
+        res = con.createStatement().executeQuery("SHOW session_replication_role");
+        res.next();
+        assertEquals("origin", res.getString(1));
+
+        // The dataset can be read through the daos
+        List<WorkedWeekDTO> rejects = new WorkedWeekDAO(con).getWorkedWeeksToApproveForStaff(true, true, true,
+            true, true, true, "worked_week.week:asc,hours.day:asc");
+        assertFalse(rejects.isEmpty());
+        assertEquals(3, rejects.get(0).getHours().size());
+
+        con.close();
+    }
+}
@@ -0,0 +1,458 @@
+package nl.earnit.test.load;
+
+import com.fasterxml.jackson.jakarta.rs.json.JacksonJsonProvider;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import nl.earnit.AccessCache;
+import nl.earnit.Auth;
+import nl.earnit.TestDB;
+import nl.earnit.dao.ConnectionPool;
+import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.Migrations;
+import nl.earnit.helpers.RequestMetrics;
+import nl.earnit.models.User;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replays a realistic mix of API calls against the Jersey application in-process, on a
+ * generated dataset in embedded Postgres, and reports the latency percentiles and throughput
+ * per endpoint.
+ * <p>
+ * Requests go straight to the Jersey {@link ApplicationHandler} without HTTP, every request
+ * is its own unit of work like {@code ConnectionFilter} makes it in the servlet container.
+ * Tokens are signed with {@code JWT_SECRET} and {@code JWT_ISSUER}, which have to be set.
+ * <p>
+ * Run with {@code java -cp <classpath> nl.earnit.test.load.LoadDriver [threads] [seconds] [students] [companies] [years]}.
+ */
+public class LoadDriver {
+    private static final URI BASE_URI = URI.create("http://localhost/api/");
+    private static final int WARMUP_SECONDS = 5;
+    private static final int BATCH_SIZE = 50;
+    private static final int SAMPLE_SIZE = 200;
+
+    private final ApplicationHandler handler;
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private int totalWeight = 0;
+
+    /**
+     * Instantiates a new load driver for the resources of the application.
+     */
+    public LoadDriver() {
+        // The servlet container discovers the json provider, here it is registered explicitly
+        this.handler = new ApplicationHandler(new ResourceConfig().packages("nl.earnit")
+            .register(JacksonJsonProvider.class));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        DataGenerator.Config config = new DataGenerator.Config()
+            .setStudents(args.length > 2 ? Integer.parseInt(args[2]) : 500)
+            .setCompanies(args.length > 3 ? Integer.parseInt(args[3]) : 20)
+            .setYears(args.length > 4 ? Integer.parseInt(args[4]) : 1);
+
+        if (System.getenv("JWT_SECRET") == null || !"earnit".equals(System.getenv("JWT_ISSUER"))) {
+            System.err.println("JWT_SECRET and JWT_ISSUER=earnit have to be set to sign tokens");
+            System.exit(1);
+        }
+
+        try (EmbeddedPostgres pg = EmbeddedPostgres.start()) {
+            try (Connection con = pg.getPostgresDatabase().getConnection()) {
+                TestDB.importSchema(con);
+                Migrations.migrate(con);
+                Map<String, Long> counts = new DataGenerator(config).generate(con);
+                System.out.println("Generated " + counts);
+            }
+
+            DAOManager.setConnectionPool(new ConnectionPool(pg.getPostgresDatabase(),
+                ConnectionPool.Config.fromEnvironment().setMaxSize(threads)));
+
+            LoadDriver driver = new LoadDriver();
+            try (Connection con = pg.getPostgresDatabase().getConnection()) {
+                driver.addDefaultScenarios(con);
+            }
+
+            System.out.printf("Warming up for %d seconds%n", WARMUP_SECONDS);
+            driver.run(threads, WARMUP_SECONDS);
+
+            RequestMetrics.clear();
+            System.out.printf("Running %d threads for %d seconds%n", threads, seconds);
+            driver.report(driver.run(threads, seconds), seconds);
+            driver.reportPhases();
+        } finally {
+            DAOManager.setConnectionPool(null);
+        }
+    }
+
+    /**
+     * Adds the calls of students, companies and staff, sampled from the dataset.
+     *
+     * @param con the connection
+     * @throws SQLException if the dataset could not be sampled
+     */
+    public void addDefaultScenarios(Connection con) throws SQLException {
+        long expiresAt = System.currentTimeMillis() + 24 * 60 * 60 * 1000L;
+
+        // Students enter hours in weeks after the generated ones, those are not confirmed yet
+        List<String[]> students = signed(sample(con, """
+            SELECT u.id, u.email, uc.id FROM "user" u JOIN user_contract uc ON uc.user_id = u.id
+            WHERE u.type = 'STUDENT'"""), -1, expiresAt);
+        int entryYear = 1 + query(con, "SELECT MAX(year) FROM worked_week").stream()
+            .mapToInt(row -> Integer.parseInt(row[0])).max().orElse(2022);
+        add("POST /users/{userId}/contracts/{userContractId}/worked/{year}/{week}", 40, () -> {
+            String[] student = pick(students);
+            return new Call("POST", "users/%s/contracts/%s/worked/%d/%d".formatted(student[0], student[2],
+                entryYear, ThreadLocalRandom.current().nextInt(1, 53)), student[3], """
+                {"day": %d, "minutes": 120, "work": "Load test"}""".formatted(ThreadLocalRandom.current().nextInt(7)));
+        });
+
+        // Or enter a whole week at once
+        add("POST /users/{userId}/contracts/{userContractId}/worked/{year}/{week}/tasks", 5, () -> {
+            String[] student = pick(students);
+            StringJoiner tasks = new StringJoiner(",", "[", "]");
+            for (int day = 0; day < 5; day++) {
+                tasks.add("{\"day\": %d, \"minutes\": 240, \"work\": \"Load test\"}".formatted(day));
+            }
+            return new Call("POST", "users/%s/contracts/%s/worked/%d/%d/tasks".formatted(student[0], student[2],
+                entryYear, ThreadLocalRandom.current().nextInt(1, 53)), student[3], tasks.toString());
+        });
+
+        // Companies approve confirmed weeks and download invoices of approved weeks
+        List<String[]> confirmed = signed(sample(con, """
+            SELECT u.id, u.email, cu.company_id, ww.id FROM worked_week ww
+            JOIN user_contract uc ON uc.id = ww.contract_id JOIN contract c ON c.id = uc.contract_id
+            JOIN company_user cu ON cu.company_id = c.company_id JOIN "user" u ON u.id = cu.user_id
+            WHERE ww.status = 'CONFIRMED'"""), 2, expiresAt);
+        add("POST /companies/{companyId}/approves/{workedWeekId}", 25, () -> {
+            String[] week = pick(confirmed);
+            return new Call("POST", "companies/%s/approves/%s".formatted(week[2], week[3]),
+                week[4], null);
+        });
+
+        // Or approve a whole batch of a company at once
+        Map<String, List<String[]>> confirmedByCompany = new HashMap<>();
+        for (String[] week : confirmed) {
+            confirmedByCompany.computeIfAbsent(week[2], company -> new ArrayList<>()).add(week);
+        }
+        List<List<String[]>> batches = new ArrayList<>(confirmedByCompany.values());
+        add("POST /companies/{companyId}/approves", 5, () -> {
+            List<String[]> weeks = pick(batches);
+            StringJoiner actions = new StringJoiner(",", "[", "]");
+            int start = ThreadLocalRandom.current().nextInt(weeks.size());
+            for (int i = 0; i < Math.min(BATCH_SIZE, weeks.size()); i++) {
+                actions.add("{\"workedWeekId\": \"%s\", \"action\": \"APPROVE\"}".formatted(
+                    weeks.get((start + i) % weeks.size())[3]));
+            }
+            return new Call("POST", "companies/%s/approves".formatted(weeks.get(0)[2]), weeks.get(0)[4],
+                actions.toString());
+        });
+
+        List<String[]> approved = signed(sample(con, """
+            SELECT u.id, u.email, cu.company_id, ww.id FROM worked_week ww
+            JOIN user_contract uc ON uc.id = ww.contract_id JOIN contract c ON c.id = uc.contract_id
+            JOIN company_user cu ON cu.company_id = c.company_id JOIN "user" u ON u.id = cu.user_id
+            WHERE ww.status = 'APPROVED'"""), 2, expiresAt);
+        add("GET /companies/{companyId}/invoices/download/week/{workedWeekId}", 20, () -> {
+            String[] week = pick(approved);
+            return new Call("GET", "companies/%s/invoices/download/week/%s".formatted(week[2], week[3]),
+                week[4], null);
+        });
+
+        // Staff goes through the rejected suggestions
+        List<String[]> staff = signed(query(con, "SELECT id, email FROM \"user\" WHERE type = 'ADMINISTRATOR'"),
+            -1, expiresAt);
+        add("GET /staff/rejects", 15, () -> new Call("GET",
+            "staff/rejects?user=true&contract=true&hours=true&totalHours=true&limit=50",
+            pick(staff)[2], null));
+    }
+
+    /**
+     * Adds a scenario to the mix.
+     *
+     * @param name   the name of the endpoint
+     * @param weight the share of the mix relative to the other scenarios
+     * @param calls  creates the calls of the scenario
+     */
+    public void add(String name, int weight, CallFactory calls) {
+        scenarios.add(new Scenario(name, weight, calls));
+        totalWeight += weight;
+    }
+
+    /**
+     * Runs the mix.
+     *
+     * @param threads the number of concurrent clients
+     * @param seconds the duration
+     * @return the samples of every scenario, in the order the scenarios were added
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public List<Samples> run(int threads, int seconds) throws InterruptedException {
+        List<Samples> samples = new ArrayList<>();
+        for (int i = 0; i < scenarios.size(); i++) {
+            samples.add(new Samples());
+        }
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread client = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    int index = choose();
+                    Call call = scenarios.get(index).calls().create();
+
+                    long start = System.nanoTime();
+                    int status = execute(call);
+                    samples.get(index).add(System.nanoTime() - start, status);
+                }
+            }, "load-client-" + i);
+            client.start();
+            clients.add(client);
+        }
+
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        return samples;
+    }
+
+    /**
+     * Executes a call as its own unit of work.
+     *
+     * @param call the call
+     * @return the status of the response, 0 if the application failed
+     */
+    public int execute(Call call) {
+        ContainerRequest request = new ContainerRequest(BASE_URI, BASE_URI.resolve(call.path()), call.method(),
+            null, new MapPropertiesDelegate(), handler.getConfiguration());
+        request.header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON + ", */*;q=0.1");
+        if (call.token() != null) {
+            request.header(HttpHeaders.AUTHORIZATION, "Token " + call.token());
+        }
+        if (call.body() != null) {
+            request.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+            request.setEntityStream(new ByteArrayInputStream(call.body().getBytes(StandardCharsets.UTF_8)));
+        }
+
+        CountingOutputStream output = new CountingOutputStream();
+        RequestMetrics.Timing timing = RequestMetrics.begin();
+        int status = 0;
+
+        DAOManager.getInstance().begin(call.method() + " " + call.path());
+        try {
+            ContainerResponse response = handler.apply(request, output).get();
+            status = response.getStatus();
+            return status;
+        } catch (Exception e) {
+            return 0;
+        } finally {
+            AccessCache.endRequest();
+            try {
+                DAOManager.getInstance().close();
+            } catch (SQLException ignored) {
+                // The pool discards connections it can not take back
+            }
+            RequestMetrics.end(timing, status, output.bytes);
+        }
+    }
+
+    /**
+     * Prints the latency percentiles and throughput of every scenario.
+     *
+     * @param samples the samples of every scenario
+     * @param seconds the duration of the run
+     */
+    public void report(List<Samples> samples, int seconds) {
+        System.out.printf("%-76s %8s %8s %9s %9s %9s %9s %9s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+        for (int i = 0; i < scenarios.size(); i++) {
+            Samples sample = samples.get(i);
+            long[] latencies = sample.getLatencies();
+            Arrays.sort(latencies);
+
+            System.out.printf("%-76s %8d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n", scenarios.get(i).name(),
+                latencies.length, sample.getErrors(), latencies.length / (double) seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                percentile(latencies, 1));
+        }
+    }
+
+    /**
+     * Prints where the time of every resource method went, as recorded by
+     * {@link RequestMetrics}.
+     */
+    public void reportPhases() {
+        System.out.printf("%-60s %8s %9s %9s %9s %9s %9s%n",
+            "resource", "requests", "avg ms", "db ms", "pdf ms", "write ms", "avg bytes");
+
+        RequestMetrics.getStats().forEach((resource, stats) -> {
+            long count = stats.getLatency().getCount();
+            System.out.printf("%-60s %8d %9.2f %9.2f %9.2f %9.2f %9.0f%n", resource, count,
+                stats.getLatency().getSum() / count,
+                stats.getPhase(RequestMetrics.Phase.DATABASE) / 1e6 / count,
+                stats.getPhase(RequestMetrics.Phase.PDF) / 1e6 / count,
+                stats.getPhase(RequestMetrics.Phase.SERIALIZATION) / 1e6 / count,
+                stats.getSize().getSum() / count);
+        });
+    }
+
+    private int choose() {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (int i = 0; i < scenarios.size(); i++) {
+            value -= scenarios.get(i).weight();
+            if (value < 0) return i;
+        }
+
+        return scenarios.size() - 1;
+    }
+
+    /**
+     * Gets a percentile with the nearest rank method.
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+
+    /**
+     * Appends a token to every row starting with the id and email of a user, tokens are
+     * signed up front so signing does not count towards the latency.
+     */
+    private static List<String[]> signed(List<String[]> rows, int companyColumn, long expiresAt) {
+        List<String[]> signed = new ArrayList<>();
+        for (String[] row : rows) {
+            User user = new User();
+            user.setId(row[0]);
+            user.setEmail(row[1]);
+
+            String[] signedRow = Arrays.copyOf(row, row.length + 1);
+            signedRow[row.length] = Auth.createJWT(user, companyColumn < 0 ? null : row[companyColumn], expiresAt);
+            signed.add(signedRow);
+        }
+
+        return signed;
+    }
+
+    private static List<String[]> sample(Connection con, String query) throws SQLException {
+        List<String[]> rows = query(con, query + " ORDER BY random() LIMIT " + SAMPLE_SIZE);
+        if (rows.isEmpty()) throw new IllegalStateException("The dataset has no rows for " + query);
+
+        return rows;
+    }
+
+    private static List<String[]> query(Connection con, String query) throws SQLException {
+        List<String[]> rows = new ArrayList<>();
+        try (Statement statement = con.createStatement(); ResultSet res = statement.executeQuery(query)) {
+            int columns = res.getMetaData().getColumnCount();
+            while (res.next()) {
+                String[] row = new String[columns];
+                for (int i = 0; i < columns; i++) {
+                    row[i] = res.getString(i + 1);
+                }
+                rows.add(row);
+            }
+        }
+
+        return rows;
+    }
+
+    private static <T> T pick(List<T> items) {
+        return items.get(ThreadLocalRandom.current().nextInt(items.size()));
+    }
+
+    /**
+     * Creates the next call of a scenario.
+     */
+    @FunctionalInterface
+    public interface CallFactory {
+        /**
+         * Creates a call.
+         *
+         * @return the call
+         */
+        Call create();
+    }
+
+    /**
+     * A call to the API.
+     *
+     * @param method the http method
+     * @param path   the path relative to the api root, with query
+     * @param token  the token to authenticate with, null for none
+     * @param body   the json body, null for none
+     */
+    public record Call(String method, String path, String token, String body) {}
+
+    private record Scenario(String name, int weight, CallFactory calls) {}
+
+    /**
+     * The latencies and errors of the calls of a scenario.
+     */
+    public static class Samples {
+        private long[] latencies = new long[1024];
+        private int size = 0;
+        private long errors = 0;
+
+        private synchronized void add(long nanos, int status) {
+            if (size == latencies.length) latencies = Arrays.copyOf(latencies, size * 2);
+            latencies[size++] = nanos;
+            if (status == 0 || status >= 400) errors++;
+        }
+
+        /**
+         * Gets the latencies.
+         *
+         * @return the latencies in nanoseconds
+         */
+        public synchronized long[] getLatencies() {
+            return Arrays.copyOf(latencies, size);
+        }
+
+        /**
+         * Gets the number of calls that failed.
+         *
+         * @return the errors
+         */
+        public synchronized long getErrors() {
+            return errors;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package nl.earnit.test.resources;
+
+import io.zonky.test.db.postgres.junit5.EmbeddedPostgresExtension;
+import io.zonky.test.db.postgres.junit5.SingleInstancePostgresExtension;
+import jakarta.ws.rs.core.Response;
+import nl.earnit.Auth;
+import nl.earnit.TestDB;
+import nl.earnit.dao.CompanyDAO;
+import nl.earnit.dao.ConnectionPool;
+import nl.earnit.dao.ContractDAO;
+import nl.earnit.dao.DAOManager;
+import nl.earnit.dao.UserContractDAO;
+import nl.earnit.dao.UserDAO;
+import nl.earnit.dao.WorkedWeekDAO;
+import nl.earnit.dto.contracts.ContractDTO;
+import nl.earnit.dto.workedweek.WorkedWeekActionDTO;
+import nl.earnit.dto.workedweek.WorkedWeekActionResultDTO;
+import nl.earnit.models.Company;
+import nl.earnit.models.User;
+import nl.earnit.models.UserContract;
+import nl.earnit.resources.companies.CompanyResource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompanyResourceTest {
+    @RegisterExtension
+    public SingleInstancePostgresExtension pg = EmbeddedPostgresExtension.singleInstance();
+
+    private TestDB db;
+
+    public void setupCompanyResourceTest() throws Exception {
+        db = new TestDB(pg);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSetApprovalsNormalizesIds() throws Exception {
+        setupCompanyResourceTest();
+        Connection con = db.getConnection();
+        CompanyDAO companyDAO = new CompanyDAO(con);
+        Company company = companyDAO.createCompany("TestCompany", "NL845838", "Finkenstraat 42, 7544NM Amsterdam");
+        UserDAO userDAO = new UserDAO(con);
+        User user = userDAO.createUser("student@example.com", "John", null, "Smith", Auth.hashPassword("test"), "STUDENT",
+                "12345678", "NL000099998B57", "Street 2 7522AZ");
+        ContractDAO contractDAO = new ContractDAO(con);
+        ContractDTO contractDTO = contractDAO.createContract(new ContractDTO(UUID.randomUUID().toString(), "Engineer", "doing a lot of work"), company.getId());
+        UserContractDAO userContractDAO = new UserContractDAO(con);
+        UserContract userContract = userContractDAO.addNewUserContract(user.getId(), contractDTO.getId(), 12);
+        WorkedWeekDAO workedWeekDAO = new WorkedWeekDAO(con);
+
+        List<String> workedWeekIds = new ArrayList<>();
+        for (int week = 30; week < 32; week++) {
+            workedWeekDAO.addWorkedWeek(userContract.getId(), "2023", String.valueOf(week));
+            workedWeekIds.add(workedWeekDAO.getWorkedWeekIdByDate(userContract.getId(), 2023, week));
+        }
+
+        DAOManager.setConnectionPool(new ConnectionPool(pg.getEmbeddedPostgres().getPostgresDatabase(),
+            new ConnectionPool.Config().setMaxSize(1)));
+        try {
+            DAOManager.getInstance().begin("setApprovals");
+            CompanyResource resource = new CompanyResource(null, null, company.getId());
+
+            // An uppercase id is the same worked week, in any case it is a duplicate
+            String upper = workedWeekIds.get(0).toUpperCase();
+            Response response = resource.setApprovals(List.of(
+                new WorkedWeekActionDTO(upper, "APPROVE"),
+                new WorkedWeekActionDTO(workedWeekIds.get(1).toUpperCase(), "APPROVE"),
+                new WorkedWeekActionDTO(workedWeekIds.get(1), "REJECT")));
+            assertEquals(response.getStatus(), 200);
+
+            List<WorkedWeekActionResultDTO> results = (List<WorkedWeekActionResultDTO>) response.getEntity();
+            assertEquals(results.get(0).getWorkedWeekId(), upper);
+            assertEquals(results.get(0).getResult(), WorkedWeekActionResultDTO.UPDATED);
+            assertEquals(results.get(0).getStatus(), "APPROVED");
+            assertEquals(results.get(1).getResult(), WorkedWeekActionResultDTO.INVALID);
+            assertEquals(results.get(2).getResult(), WorkedWeekActionResultDTO.INVALID);
+        } finally {
+            DAOManager.getInstance().close();
+            DAOManager.setConnectionPool(null);
+        }
+
+        assertEquals("APPROVED", workedWeekDAO.getWorkedWeekById(workedWeekIds.get(0)).getStatus());
+        assertEquals("NOT_CONFIRMED", workedWeekDAO.getWorkedWeekById(workedWeekIds.get(1)).getStatus());
+
+        con.close();
+    }
+}
@@ -0,0 +1,42 @@
+package nl.earnit.test.resources;
+
+import jakarta.ws.rs.core.Response;
+import nl.earnit.dto.InvalidEntryDTO;
+import nl.earnit.models.Worked;
+import nl.earnit.resources.users.UserContractWorkedResource;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserContractWorkedResourceTest {
+    private static UserContractWorkedResource createResource() {
+        return new UserContractWorkedResource(null, null, UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(), "2023", "30");
+    }
+
+    private static void assertInvalid(Response response, String field) {
+        assertEquals(response.getStatus(), 422);
+        assertEquals(((InvalidEntryDTO) response.getEntity()).getField(), field);
+    }
+
+    @Test
+    public void testAddWorkedWeekTasksValidation() {
+        UserContractWorkedResource resource = createResource();
+
+        // Days are counted from monday
+        assertInvalid(resource.addWorkedWeekTasks(List.of(new Worked(null, null, 7, 60, "worked"))), "day");
+        assertInvalid(resource.addWorkedWeekTasks(List.of(new Worked(null, null, 0, 60, "worked"),
+            new Worked(null, null, -1, 60, "worked"))), "day");
+        assertInvalid(resource.addWorkedWeekTasks(List.of(new Worked(null, null, 6, 0, "worked"))), "minutes");
+        assertInvalid(resource.addWorkedWeekTasks(List.of(new Worked(null, null, 6, -30, "worked"))), "minutes");
+        assertInvalid(resource.addWorkedWeekTasks(List.of(new Worked(null, null, 6, 30, null))), "work");
+
+        // Nothing is added without reaching the database
+        Response response = resource.addWorkedWeekTasks(List.of());
+        assertEquals(response.getStatus(), 200);
+        assertEquals(response.getEntity(), List.of());
+    }
+}
@@ -1,6 +1,7 @@
 window.addEventListener("helpersLoaded", async () => {
     const name = document.getElementById("name");
-    const requests = await getRequestsForCompany(getUserCompany(), getJWTCookie())
+    const dashboard = await obtainDashboard(getUserCompany(), getJWTCookie());
+    const requests = dashboard.approvals;
     const requestsDiv = document.getElementById("newRequests");
 
     //if there are no new requests from students we don't want to display notification on the request
@@ -26,23 +27,22 @@ window.addEventListener("helpersLoaded", async () => {
         })
 
     //checks if there are any notifications that need to be showed
-    const notifications = await obtainNotifications();
-    createEntries(notifications);
+    createEntries(dashboard.notifications);
 
-    const workedWeeks = await getHours(getUserCompany(), getJWTCookie());
-    updateChart(workedWeeks)
+    updateChart(dashboard.weeks)
 });
 
-//Gets all the requests that students have posted for their company to review
-function getRequestsForCompany(uid, token) {
-    return fetch(`/api/companies/${uid}/approves?user=true&contract=true&order=worked_week.year:asc,worked_week.week:asc`, {
+//Gets the requests that students have posted for their company to review, the approved hours
+//of this week and the notifications at once
+function obtainDashboard(uid, token) {
+    return fetch(`/api/companies/${uid}/dashboard`, {
         headers: {
             'authorization': `token ${token}`,
             'accept-type': 'application/json'
         }
     })
         .then(async (res) => await res.json())
-        .catch(() => []);
+        .catch(() => ({approvals: [], weeks: [], notifications: []}));
 }
 
 //creates the notification elements
@@ -129,28 +129,6 @@ function toggleSeen (id) {
         .catch(() => null);
 }
 
-//gets all the notifications for a company
-// Get request to obtain notifications
-function obtainNotifications() {
-    return fetch("/api/companies/" + getUserCompany() + "/notifications", {
-        headers: {
-            'authorization': `token ${getJWTCookie()}`
-        }
-    })
-        .then(response => response.json())
-        .catch(() => null);
-}
-
-// Get request to obtain hours of employees for the graph
-function getHours(companyId, token) {
-    return fetch(`/api/companies/${companyId}/invoices/${getCurrentYear()}/${getCurrentWeek()}?totalHours=true&user=true`, {
-        headers: {
-            'authorization': `token ${token}`,
-            'accept-type': 'application/json'
-        }
-    }).then(res => res.json()).catch(() => null)
-}
-
 // Inputs all the relevant data into the graph
 function updateChart(studentsPerCompany) {
     const labels = [];
@@ -136,18 +136,8 @@ function getWeek(ofDate) {
         - 3 + (week1.getDay() + 6) % 7) / 7);
 }
 
-function obtainInvoices(contract) {
-    return fetch("/api/users/" + getUserId() + "/contracts/" + contract.id + "/invoices?totalHours=true&company=true", {
-        headers: {
-            'authorization': `token ${getJWTCookie()}`
-        }
-    })
-        .then(response => response.json())
-        .catch(e => null);
-}
-
-function obtainContractsForUser() {
-    return fetch("/api/users/" + getUserId() + "/contracts", {
+function obtainDashboard() {
+    return fetch("/api/users/" + getUserId() + "/dashboard?weeks=6", {
         headers: {
             'authorization': `token ${getJWTCookie()}`
         }
@@ -167,12 +157,8 @@ function obtainNotifications() {
 }
 
 async function getData() {
-    let data = [];
-    const contracts = await obtainContractsForUser();
-    let arrayOfInvoices = [];
-    for (let contract of contracts) {
-        arrayOfInvoices.push(await obtainInvoices(contract))
-    }
+    const dashboard = await obtainDashboard();
+    const weeks = dashboard === null ? [] : dashboard.weeks;
 
     let week0 = 0;
     let week1 = 0;
@@ -181,22 +167,20 @@ async function getData() {
     let week4 = 0;
     let week5 = 0;
 
-    arrayOfInvoices.forEach(invoice => {
-        invoice.forEach(i => {
-            if (i.week === getCurrentWeek() - 5) {
-                week0 += i.totalMinutes;
-            } else if (i.week === getCurrentWeek() - 4) {
-                week1 += i.totalMinutes;
-            } else if (i.week === getCurrentWeek() - 3) {
-                week2 += i.totalMinutes;
-            } else if (i.week === getCurrentWeek() - 2) {
-                week3 += i.totalMinutes;
-            } else if (i.week === getCurrentWeek() - 1) {
-                week4 += i.totalMinutes;
-            } else if (i.week === getCurrentWeek()) {
-                week5 += i.totalMinutes;
-            }
-        })
+    weeks.filter(i => i.status === "APPROVED").forEach(i => {
+        if (i.week === getCurrentWeek() - 5) {
+            week0 += i.totalMinutes;
+        } else if (i.week === getCurrentWeek() - 4) {
+            week1 += i.totalMinutes;
+        } else if (i.week === getCurrentWeek() - 3) {
+            week2 += i.totalMinutes;
+        } else if (i.week === getCurrentWeek() - 2) {
+            week3 += i.totalMinutes;
+        } else if (i.week === getCurrentWeek() - 1) {
+            week4 += i.totalMinutes;
+        } else if (i.week === getCurrentWeek()) {
+            week5 += i.totalMinutes;
+        }
     })
     return [week0 / 60, week1 / 60, week2 / 60, week3 / 60, week4 / 60, week5 / 60]
 }